@@ -0,0 +1,45 @@
+package something.with.sheets.benchmark;
+
+import something.with.sheets.dto.ColumnDto;
+import something.with.sheets.dto.CreateSheetRequest;
+import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.persistence.InMemoryMutationLog;
+import something.with.sheets.persistence.NoSheetStore;
+import something.with.sheets.persistence.NoSnapshotStore;
+import something.with.sheets.repository.SheetRepository;
+import something.with.sheets.repository.TieredSheetCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixtures shared by the benchmarks: an in-memory service stack without persistence or eviction
+final class Benchmarks {
+    private Benchmarks() {
+    }
+
+    static SheetRepository inMemoryRepository() {
+        return new SheetRepository(new TieredSheetCache(Long.MAX_VALUE, null), new InMemoryMutationLog(),
+            new NoSnapshotStore(), new NoSheetStore());
+    }
+
+    static CreateSheetRequest createRequest(String... intColumns) {
+        List<ColumnDto> columns = new ArrayList<>();
+        for (String name : intColumns) {
+            ColumnDto column = new ColumnDto();
+            column.setName(name);
+            column.setType("int");
+            columns.add(column);
+        }
+        CreateSheetRequest request = new CreateSheetRequest();
+        request.setColumns(columns);
+        return request;
+    }
+
+    static SetCellValueRequest cell(String column, int row, Object value) {
+        SetCellValueRequest request = new SetCellValueRequest();
+        request.setColumnName(column);
+        request.setRowIndex(row);
+        request.setValue(value);
+        return request;
+    }
+}
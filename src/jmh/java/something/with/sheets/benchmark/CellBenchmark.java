@@ -0,0 +1,61 @@
+package something.with.sheets.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import something.with.sheets.model.Cell;
+import something.with.sheets.model.Column;
+
+import java.util.concurrent.TimeUnit;
+
+// A chain of `depth` lookups: row i of column A reads row i - 1, and row 0 holds a value
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int depth;
+
+    private Cell head;
+    private Cell tail;
+    private int value;
+
+    @Setup
+    public void setUp() {
+        Column column = new Column("A", "int");
+        head = column.getOrCreateCell(0);
+        head.setValue(0);
+        for (int row = 1; row <= depth; row++) {
+            column.getOrCreateCell(row).setLookup(column.getOrCreateCell(row - 1));
+        }
+        tail = column.getOrCreateCell(depth);
+    }
+
+    // Reads are served from the cached result, so this should not grow with depth
+    @Benchmark
+    public Object getValue() {
+        return tail.getValue();
+    }
+
+    @Benchmark
+    public boolean hasCycle() {
+        return tail.hasCycle(head);
+    }
+
+    // Writing the head recomputes every cell in the chain
+    @Benchmark
+    public void setHeadValue() {
+        head.setValue(value++);
+    }
+}
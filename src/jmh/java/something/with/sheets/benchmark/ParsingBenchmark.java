@@ -0,0 +1,65 @@
+package something.with.sheets.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import something.with.sheets.formula.CompiledFormula;
+import something.with.sheets.formula.FormulaCompiler;
+import something.with.sheets.model.ColumnType;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-request validation work: formula compilation (formerly parseLookupReference) and value type checks
+// (formerly isValueOfType)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+    private static final String LOOKUP = "lookup(\"A\",12345)";
+    private static final String EXPRESSION = "sum(A,0,999) / 2 + lookup(B,7) * -3";
+
+    private final FormulaCompiler cached = new FormulaCompiler();
+    private final FormulaCompiler uncached = new FormulaCompiler(0);
+    private final Object intValue = 42;
+    private final Object doubleValue = 4.5;
+    private final Object stringValue = "text";
+
+    @Benchmark
+    public CompiledFormula compileLookupCached() {
+        return cached.compile(LOOKUP);
+    }
+
+    @Benchmark
+    public CompiledFormula compileLookupUncached() {
+        return uncached.compile(LOOKUP);
+    }
+
+    @Benchmark
+    public CompiledFormula compileExpressionUncached() {
+        return uncached.compile(EXPRESSION);
+    }
+
+    @Benchmark
+    public Object coerceInt() {
+        return ColumnType.INT.coerce(intValue);
+    }
+
+    @Benchmark
+    public Object coerceDouble() {
+        return ColumnType.DOUBLE.coerce(doubleValue);
+    }
+
+    @Benchmark
+    public Object coerceString() {
+        return ColumnType.STRING.coerce(stringValue);
+    }
+}
@@ -0,0 +1,82 @@
+package something.with.sheets.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.model.Column;
+import something.with.sheets.repository.SheetRepository;
+import something.with.sheets.serialization.SheetJsonWriter;
+import something.with.sheets.service.SheetService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// Service-level write and read paths on a sheet whose column A holds `rows` values
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SheetServiceBenchmark {
+    private static final int REQUESTS = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private SheetService service;
+    private SheetJsonWriter writer;
+    private String sheetId;
+    private final SetCellValueRequest[] plainWrites = new SetCellValueRequest[REQUESTS];
+    private final SetCellValueRequest[] lookupWrites = new SetCellValueRequest[REQUESTS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SheetRepository repository = Benchmarks.inMemoryRepository();
+        service = new SheetService(repository);
+        writer = new SheetJsonWriter(new ObjectMapper());
+        sheetId = service.createSheet(Benchmarks.createRequest("A", "B"));
+        Column column = repository.findById(sheetId).getColumns().get("A");
+        for (int row = 0; row < rows; row++) {
+            column.setCell(row, row);
+        }
+        // Spread over the sheet so writes touch more than one page
+        int stride = Math.max(1, rows / REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            int row = (i * stride) % rows;
+            plainWrites[i] = Benchmarks.cell("A", row, i);
+            lookupWrites[i] = Benchmarks.cell("B", row, "lookup(A," + row + ")");
+        }
+    }
+
+    @Benchmark
+    public void setCellValuePlain() {
+        service.setCellValue(sheetId, plainWrites[next++ & (REQUESTS - 1)]);
+    }
+
+    @Benchmark
+    public void setCellValueLookup() {
+        service.setCellValue(sheetId, lookupWrites[next++ & (REQUESTS - 1)]);
+    }
+
+    // The full GET path: pinning a version, streaming it as JSON and releasing it, as the controller does
+    @Benchmark
+    public void getSheetById() throws IOException {
+        try (GetSheetResponse response = service.getSheetById(sheetId)) {
+            writer.write(response, OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package something.with.sheets.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import something.with.sheets.persistence.FileMutationLog;
+import something.with.sheets.persistence.FileSnapshotStore;
+import something.with.sheets.persistence.InMemoryMutationLog;
+import something.with.sheets.persistence.JdbcSheetStore;
+import something.with.sheets.persistence.MutationLog;
+import something.with.sheets.persistence.NoSheetStore;
+import something.with.sheets.persistence.NoSnapshotStore;
+import something.with.sheets.persistence.SheetSpillStore;
+import something.with.sheets.persistence.SheetStore;
+import something.with.sheets.persistence.SnapshotStore;
+import something.with.sheets.repository.TieredSheetCache;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+@Configuration
+@EnableScheduling
+public class PersistenceConfig {
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "sheets.persistence.mode", havingValue = "wal")
+    public FileMutationLog fileMutationLog(ObjectMapper objectMapper,
+                                           @Value("${sheets.wal.path:data/sheets.wal}") String path,
+                                           @Value("${sheets.wal.max-delay-ms:2}") long maxDelayMillis,
+                                           @Value("${sheets.wal.max-batch:1024}") int maxBatch) {
+        return new FileMutationLog(Path.of(path), objectMapper, maxDelayMillis, maxBatch);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "sheets.persistence.mode", havingValue = "wal")
+    public FileSnapshotStore fileSnapshotStore(@Value("${sheets.snapshot.path:data/sheets.snapshot}") String path) {
+        return new FileSnapshotStore(Path.of(path));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sheets.persistence.mode", havingValue = "jdbc")
+    public SheetStore jdbcSheetStore(DataSource dataSource) {
+        return new JdbcSheetStore(dataSource);
+    }
+
+    // max-bytes of 0 budgets half the heap for sheets. The jdbc store reloads evicted sheets itself, so in
+    // that mode nothing is spilled
+    @Bean
+    public TieredSheetCache tieredSheetCache(@Value("${sheets.persistence.mode:memory}") String mode,
+                                             @Value("${sheets.cache.max-bytes:0}") long maxBytes,
+                                             @Value("${sheets.cache.spill-path:data/spill}") String spillPath) {
+        long budget = maxBytes > 0 ? maxBytes : Runtime.getRuntime().maxMemory() / 2;
+        return new TieredSheetCache(budget, mode.equals("jdbc") ? null : new SheetSpillStore(Path.of(spillPath)));
+    }
+
+    // Fallbacks for the modes that do not use the corresponding store
+    @Bean
+    @ConditionalOnMissingBean(MutationLog.class)
+    public MutationLog inMemoryMutationLog() {
+        return new InMemoryMutationLog();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SnapshotStore.class)
+    public SnapshotStore noSnapshotStore() {
+        return new NoSnapshotStore();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SheetStore.class)
+    public SheetStore noSheetStore() {
+        return new NoSheetStore();
+    }
+}
@@ -3,54 +3,293 @@ package something.with.sheets.controller;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import something.with.sheets.service.SheetService;
 import something.with.sheets.dto.CreateSheetRequest;
 import something.with.sheets.dto.CreateSheetResponse;
 import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.dto.SetCellValuesRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import something.with.sheets.dto.SheetChanges;
+import something.with.sheets.serialization.SheetJsonWriter;
+import something.with.sheets.serialization.SheetColumnarWriter;
+import something.with.sheets.serialization.SheetExportWriter;
+import something.with.sheets.serialization.SheetQueryWriter;
+import something.with.sheets.query.SheetQuery;
+import something.with.sheets.dto.QueryRequest;
+import something.with.sheets.dto.IndexRequest;
+import something.with.sheets.dto.IndexStatus;
+import something.with.sheets.service.SheetIndexService;
+import something.with.sheets.serialization.CsvImportReader;
+import something.with.sheets.serialization.ImportRecordReader;
+import something.with.sheets.serialization.NdjsonImportReader;
+import something.with.sheets.service.SheetImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.SheetWindowRequest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.http.InvalidMediaTypeException;
 
 @RestController
 @RequestMapping("/sheets")
 public class SheetController {
     private final SheetService sheetService;
+    private final SheetJsonWriter sheetJsonWriter;
+    private final SheetColumnarWriter sheetColumnarWriter;
+    private final SheetExportWriter sheetExportWriter;
+    private final SheetImporter sheetImporter;
+    private final SheetQueryWriter sheetQueryWriter;
+    private final SheetIndexService sheetIndexService;
+    private final ObjectMapper objectMapper;
+    private final int maxImportRecordChars;
 
     @Autowired
-    public SheetController(SheetService sheetService) {
+    public SheetController(SheetService sheetService, SheetJsonWriter sheetJsonWriter,
+                           SheetColumnarWriter sheetColumnarWriter, SheetExportWriter sheetExportWriter,
+                           SheetImporter sheetImporter, SheetQueryWriter sheetQueryWriter,
+                           SheetIndexService sheetIndexService, ObjectMapper objectMapper,
+                           @Value("${sheets.import.max-record-chars:1048576}") int maxImportRecordChars) {
         this.sheetService = sheetService;
+        this.sheetJsonWriter = sheetJsonWriter;
+        this.sheetColumnarWriter = sheetColumnarWriter;
+        this.sheetExportWriter = sheetExportWriter;
+        this.sheetImporter = sheetImporter;
+        this.sheetQueryWriter = sheetQueryWriter;
+        this.sheetIndexService = sheetIndexService;
+        this.objectMapper = objectMapper;
+        this.maxImportRecordChars = maxImportRecordChars;
     }
 
     @PostMapping
-    public ResponseEntity<CreateSheetResponse> createSheet(@RequestBody CreateSheetRequest request) {
-        String sheetId = sheetService.createSheet(request);
-        return ResponseEntity.ok(new CreateSheetResponse(sheetId));
+    public ResponseEntity<?> createSheet(@RequestBody CreateSheetRequest request) {
+        try {
+            String sheetId = sheetService.createSheet(request);
+            return ResponseEntity.ok(new CreateSheetResponse(sheetId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PostMapping("/{sheetId}/cell")
     public ResponseEntity<?> setCellValue(@PathVariable String sheetId, @RequestBody SetCellValueRequest request) {
+        sheetService.setCellValue(sheetId, request);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/{sheetId}/cells")
+    public ResponseEntity<?> setCellValues(@PathVariable String sheetId, @RequestBody SetCellValuesRequest request) {
+        sheetService.setCellValues(sheetId, request.getCells() != null ? request.getCells() : List.of());
+        return ResponseEntity.ok().build();
+    }
+
+    // Streams the body into the sheet; the format comes from the format parameter or else the Content-Type
+    @PostMapping("/{sheetId}/import")
+    public ResponseEntity<?> importRows(@PathVariable String sheetId,
+                                        @RequestParam(required = false) String format,
+                                        @RequestParam(defaultValue = "0") int startRow,
+                                        HttpServletRequest servletRequest) throws IOException {
+        String contentType = servletRequest.getContentType() != null ? servletRequest.getContentType() : "";
+        String selected = format != null ? format
+            : contentType.startsWith("text/csv") ? "csv"
+            : contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/jsonl") ? "ndjson"
+            : "";
+        ImportRecordReader reader;
+        if (selected.equals("csv")) {
+            reader = new CsvImportReader(servletRequest.getInputStream(), maxImportRecordChars);
+        } else if (selected.equals("ndjson")) {
+            reader = new NdjsonImportReader(servletRequest.getInputStream(), objectMapper.getFactory(),
+                maxImportRecordChars);
+        } else {
+            throw new IllegalArgumentException("Unsupported import format, expected csv or ndjson");
+        }
+        return ResponseEntity.ok(sheetImporter.importRows(sheetId, reader, startRow));
+    }
+
+    // Streams the whole sheet without a Content-Length, so the response is sent chunked as it is written
+    @GetMapping("/{sheetId}/export")
+    public ResponseEntity<?> exportSheet(@PathVariable String sheetId, @RequestParam String format,
+                                         HttpServletResponse servletResponse) throws IOException {
+        String contentType;
+        SheetBodyWriter writer;
+        switch (format) {
+            case "csv":
+                contentType = "text/csv;charset=UTF-8";
+                writer = sheetExportWriter::writeCsv;
+                break;
+            case "ndjson":
+                contentType = "application/x-ndjson";
+                writer = sheetExportWriter::writeNdjson;
+                break;
+            case "columnar":
+                contentType = SheetColumnarWriter.MEDIA_TYPE;
+                writer = sheetColumnarWriter::write;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported export format, expected csv, ndjson or columnar");
+        }
+        try (GetSheetResponse response = sheetService.getSheetById(sheetId)) {
+            servletResponse.setContentType(contentType);
+            servletResponse.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + sheetId + "." + format + "\"");
+            writer.write(response, servletResponse.getOutputStream());
+        }
+        return null;
+    }
+
+    // Matching rows are streamed as the scan finds them; errors in the query are reported before the first byte
+    @PostMapping("/{sheetId}/query")
+    public ResponseEntity<?> query(@PathVariable String sheetId, @RequestBody QueryRequest request,
+                                   HttpServletResponse servletResponse) throws IOException {
+        try (SheetQuery query = sheetService.prepareQuery(sheetId, request)) {
+            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            sheetQueryWriter.write(query, servletResponse.getOutputStream());
+            return null;
+        }
+    }
+
+    @GetMapping("/{sheetId}/columns/{columnName}/stats")
+    public ResponseEntity<?> getColumnStats(@PathVariable String sheetId, @PathVariable String columnName) {
+        return ResponseEntity.ok(sheetService.getColumnStats(sheetId, columnName));
+    }
+
+    // The index is built in the background: 202 while it is building, 200 when it is already ready
+    @PostMapping("/{sheetId}/columns/{columnName}/indexes")
+    public ResponseEntity<?> createIndex(@PathVariable String sheetId, @PathVariable String columnName,
+                                         @RequestBody IndexRequest request) {
+        IndexStatus status = sheetIndexService.createIndex(sheetId, columnName, request.getType());
+        return ResponseEntity.status("ready".equals(status.getState()) ? HttpStatus.OK : HttpStatus.ACCEPTED).body(status);
+    }
+
+    @GetMapping("/{sheetId}/columns/{columnName}/indexes")
+    public ResponseEntity<?> getIndexes(@PathVariable String sheetId, @PathVariable String columnName) {
         try {
-            sheetService.setCellValue(sheetId, request);
-            return ResponseEntity.ok().build();
+            return ResponseEntity.ok(sheetIndexService.getIndexes(sheetId, columnName));
         } catch (IllegalArgumentException e) {
-            String msg = e.getMessage();
-            if (msg != null && msg.contains("not found")) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(msg);
-            }
-            return ResponseEntity.badRequest().body(msg);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
     }
 
-    @GetMapping("/{sheetId}")
-    public ResponseEntity<?> getSheetById(@PathVariable String sheetId) {
+    @GetMapping("/{sheetId}/columns/{columnName}/find")
+    public ResponseEntity<?> findRows(@PathVariable String sheetId, @PathVariable String columnName,
+                                      @RequestParam(required = false) String value,
+                                      @RequestParam(required = false) String from,
+                                      @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(sheetIndexService.find(sheetId, columnName, value, from, to));
+    }
+
+    // Server-Sent Events: a ready event with the current version, then batches of changed cells with their
+    // resolved values, or a resync event when the client fell too far behind and should re-read the sheet
+    @GetMapping("/{sheetId}/events")
+    // The body must be typed as an emitter for Spring to stream it, so a missing sheet is a bare 404
+    public ResponseEntity<SseEmitter> events(@PathVariable String sheetId) {
         try {
-            GetSheetResponse response = sheetService.getSheetById(sheetId);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(sheetService.subscribe(sheetId));
         } catch (IllegalArgumentException e) {
-            String msg = e.getMessage();
-            if (msg != null && msg.contains("not found")) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(msg);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    // The ETag is the sheet's version, read before the values, so a tag never claims more than the body holds
+    @GetMapping("/{sheetId}")
+    public ResponseEntity<?> getSheetById(@PathVariable String sheetId, @ModelAttribute SheetWindowRequest window,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                          HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException {
+        String contentType = negotiate(accept);
+        if (contentType.equals(MediaType.APPLICATION_CBOR_VALUE)) {
+            return writeSheet(sheetId, window, servletRequest, servletResponse, contentType, "-cbor", sheetJsonWriter::writeCbor);
+        }
+        if (contentType.equals(SheetColumnarWriter.MEDIA_TYPE)) {
+            // Typed value buffers and validity bitmaps per column, see SheetColumnarWriter for the layout
+            return writeSheet(sheetId, window, servletRequest, servletResponse, contentType, "-columnar", sheetColumnarWriter::write);
+        }
+        return writeSheet(sheetId, window, servletRequest, servletResponse, contentType, "", sheetJsonWriter::write);
+    }
+
+    // A binary encoding is only sent when the client lists it ahead of JSON; anything else keeps getting JSON
+    private static String negotiate(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON_VALUE;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON_VALUE;
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                return MediaType.APPLICATION_CBOR_VALUE;
+            }
+            if (type.equalsTypeAndSubtype(MediaType.parseMediaType(SheetColumnarWriter.MEDIA_TYPE))) {
+                return SheetColumnarWriter.MEDIA_TYPE;
+            }
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                break;
             }
-            return ResponseEntity.badRequest().body(msg);
         }
+        return MediaType.APPLICATION_JSON_VALUE;
+    }
+
+    private interface SheetBodyWriter {
+        void write(GetSheetResponse response, OutputStream out) throws IOException;
+    }
+
+    // Each encoding gets its own ETag, since a cached body is only valid for the representation it was sent as
+    private ResponseEntity<?> writeSheet(String sheetId, SheetWindowRequest window, HttpServletRequest servletRequest,
+                                         HttpServletResponse servletResponse, String contentType, String etagSuffix,
+                                         SheetBodyWriter writer) throws IOException {
+        long version = sheetService.getSheetVersion(sheetId);
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (new ServletWebRequest(servletRequest, servletResponse).checkNotModified(version + etagSuffix)) {
+            return null;
+        }
+        // Streamed directly to the client instead of being rendered by the message converter, from a pinned
+        // version of the sheet that writes made meanwhile do not change
+        try (GetSheetResponse response = window.isEmpty()
+                ? sheetService.getSheetById(sheetId)
+                : sheetService.getSheetWindow(sheetId, window)) {
+            servletResponse.setContentType(contentType);
+            writer.write(response, servletResponse.getOutputStream());
+        }
+        return null;
+    }
+
+    // Cells changed after version since, coalesced to their latest values; when the change log no longer
+    // reaches back to since, the whole sheet is returned instead with full set to true
+    @GetMapping("/{sheetId}/changes")
+    public ResponseEntity<?> getChanges(@PathVariable String sheetId, @RequestParam long since,
+                                        HttpServletResponse servletResponse) throws IOException {
+        SheetChanges changes = sheetService.getChanges(sheetId, since);
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (changes != null) {
+            sheetJsonWriter.writeChanges(sheetId, changes, servletResponse.getOutputStream());
+        } else {
+            long version = sheetService.getSheetVersion(sheetId);
+            try (GetSheetResponse response = sheetService.getSheetById(sheetId)) {
+                // The pinned version is the one the values belong to, at or after the version read above
+                long pinned = response.getVersion() != null ? response.getVersion() : version;
+                sheetJsonWriter.writeFullChanges(pinned, response, servletResponse.getOutputStream());
+            }
+        }
+        return null;
+    }
+
+    // Service errors surface as IllegalArgumentException: a message about something not found is a 404, any other
+    // is a bad request. Plain text, since a streaming endpoint may already have set a binary content type
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        String msg = e.getMessage();
+        HttpStatus status = msg != null && msg.contains("not found") ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_PLAIN).body(msg);
     }
-} 
\ No newline at end of file
+}
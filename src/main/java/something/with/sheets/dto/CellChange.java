@@ -0,0 +1,40 @@
+package something.with.sheets.dto;
+
+public class CellChange {
+    private String columnName;
+    private int rowIndex;
+    private Object value;
+
+    public CellChange() {
+    }
+
+    public CellChange(String columnName, int rowIndex, Object value) {
+        this.columnName = columnName;
+        this.rowIndex = rowIndex;
+        this.value = value;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public void setColumnName(String columnName) {
+        this.columnName = columnName;
+    }
+
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    public void setRowIndex(int rowIndex) {
+        this.rowIndex = rowIndex;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+}
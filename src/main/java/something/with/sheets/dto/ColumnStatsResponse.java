@@ -0,0 +1,68 @@
+package something.with.sheets.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import something.with.sheets.model.storage.ColumnSummary;
+
+// Fields that do not apply to the column's type are left out: sum, min, max and avg for numeric columns,
+// distinctCount for strings
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnStatsResponse {
+    private String column;
+    private String type;
+    private int count;
+    private long nonNullCount;
+    private Number sum;
+    private Number min;
+    private Number max;
+    private Double avg;
+    private Long distinctCount;
+
+    public ColumnStatsResponse(String column, String type, ColumnSummary summary) {
+        this.column = column;
+        this.type = type;
+        this.count = summary.getRowCount();
+        this.nonNullCount = summary.getValueCount();
+        this.sum = summary.getSum();
+        this.min = summary.getMin();
+        this.max = summary.getMax();
+        this.avg = summary.getAverage();
+        this.distinctCount = summary.getDistinctCount();
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    // Rows in the column, null cells included
+    public int getCount() {
+        return count;
+    }
+
+    public long getNonNullCount() {
+        return nonNullCount;
+    }
+
+    public Number getSum() {
+        return sum;
+    }
+
+    public Number getMin() {
+        return min;
+    }
+
+    public Number getMax() {
+        return max;
+    }
+
+    public Double getAvg() {
+        return avg;
+    }
+
+    public Long getDistinctCount() {
+        return distinctCount;
+    }
+}
@@ -0,0 +1,26 @@
+package something.with.sheets.dto;
+
+public class FindRowsResponse {
+    private String column;
+    // The index that answered, or null when the column was scanned
+    private String index;
+    private int[] rows;
+
+    public FindRowsResponse(String column, String index, int[] rows) {
+        this.column = column;
+        this.index = index;
+        this.rows = rows;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public int[] getRows() {
+        return rows;
+    }
+}
@@ -1,16 +1,27 @@
 package something.with.sheets.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import something.with.sheets.model.SheetVersion;
+
 import java.util.List;
 
-public class GetSheetResponse {
+// Closed once written, which releases the sheet version the column values were pinned at
+public class GetSheetResponse implements AutoCloseable {
     private String id;
     private List<ColumnData> columns;
+    private SheetVersion pinned;
 
+    @JsonCreator
     public GetSheetResponse(String id, List<ColumnData> columns) {
         this.id = id;
         this.columns = columns;
     }
 
+    public GetSheetResponse(String id, List<ColumnData> columns, SheetVersion pinned) {
+        this(id, columns);
+        this.pinned = pinned;
+    }
+
     public String getId() {
         return id;
     }
@@ -19,6 +30,18 @@ public class GetSheetResponse {
         return columns;
     }
 
+    // Version the values belong to, or null when they were not read from a pinned version
+    public Long getVersion() {
+        return pinned != null ? pinned.getVersion() : null;
+    }
+
+    @Override
+    public void close() {
+        if (pinned != null) {
+            pinned.close();
+        }
+    }
+
     public static class ColumnData {
         private String name;
         private String type;
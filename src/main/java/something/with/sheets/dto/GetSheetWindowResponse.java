@@ -0,0 +1,43 @@
+package something.with.sheets.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import something.with.sheets.model.SheetVersion;
+
+import java.util.List;
+
+public class GetSheetWindowResponse extends GetSheetResponse {
+    private int fromRow;
+    private int toRow;
+    private int rowCount;
+    private String nextCursor;
+
+    @JsonCreator
+    public GetSheetWindowResponse(String id, List<ColumnData> columns, int fromRow, int toRow, int rowCount, String nextCursor) {
+        this(id, columns, fromRow, toRow, rowCount, nextCursor, null);
+    }
+
+    public GetSheetWindowResponse(String id, List<ColumnData> columns, int fromRow, int toRow, int rowCount, String nextCursor,
+                                  SheetVersion pinned) {
+        super(id, columns, pinned);
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+        this.rowCount = rowCount;
+        this.nextCursor = nextCursor;
+    }
+
+    public int getFromRow() {
+        return fromRow;
+    }
+
+    public int getToRow() {
+        return toRow;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,64 @@
+package something.with.sheets.dto;
+
+import java.util.List;
+
+public class ImportSheetResponse {
+    private long importedRows;
+    private long failedRows;
+    private int batches;
+    private long version;
+    private List<RowError> errors;
+
+    public ImportSheetResponse(long importedRows, long failedRows, int batches, long version, List<RowError> errors) {
+        this.importedRows = importedRows;
+        this.failedRows = failedRows;
+        this.batches = batches;
+        this.version = version;
+        this.errors = errors;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // The first failed rows only; failedRows has the total
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public static class RowError {
+        private long record;
+        private long rowIndex;
+        private String message;
+
+        public RowError(long record, long rowIndex, String message) {
+            this.record = record;
+            this.rowIndex = rowIndex;
+            this.message = message;
+        }
+
+        public long getRecord() {
+            return record;
+        }
+
+        public long getRowIndex() {
+            return rowIndex;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
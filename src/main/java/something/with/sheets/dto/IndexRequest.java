@@ -0,0 +1,14 @@
+package something.with.sheets.dto;
+
+public class IndexRequest {
+    // hash (equality lookups) or sorted (equality and range lookups)
+    private String type;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
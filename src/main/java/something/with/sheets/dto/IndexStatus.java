@@ -0,0 +1,32 @@
+package something.with.sheets.dto;
+
+public class IndexStatus {
+    private String column;
+    private String type;
+    // building while the background build is still reading the column, then ready
+    private String state;
+    private long indexedRows;
+
+    public IndexStatus(String column, String type, String state, long indexedRows) {
+        this.column = column;
+        this.type = type;
+        this.state = state;
+        this.indexedRows = indexedRows;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public long getIndexedRows() {
+        return indexedRows;
+    }
+}
@@ -0,0 +1,35 @@
+package something.with.sheets.dto;
+
+import java.util.List;
+
+public class QueryRequest {
+    // Filter expression, e.g. "B > 100 and C = true"; blank or absent matches every row
+    private String where;
+    // Columns whose values are returned with each matching row; absent means every column
+    private List<String> select;
+    private Integer limit;
+
+    public String getWhere() {
+        return where;
+    }
+
+    public void setWhere(String where) {
+        this.where = where;
+    }
+
+    public List<String> getSelect() {
+        return select;
+    }
+
+    public void setSelect(List<String> select) {
+        this.select = select;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
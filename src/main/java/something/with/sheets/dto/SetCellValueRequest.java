@@ -4,6 +4,8 @@ public class SetCellValueRequest {
     private int rowIndex;
     private String columnName;
     private Object value;
+    // Formula expression such as "sum(A,0,9) * 2", with or without a leading '='; set instead of value
+    private String formula;
 
     public int getRowIndex() {
         return rowIndex;
@@ -28,4 +30,12 @@ public class SetCellValueRequest {
     public void setValue(Object value) {
         this.value = value;
     }
-} 
\ No newline at end of file
+
+    public String getFormula() {
+        return formula;
+    }
+
+    public void setFormula(String formula) {
+        this.formula = formula;
+    }
+}
@@ -0,0 +1,15 @@
+package something.with.sheets.dto;
+
+import java.util.List;
+
+public class SetCellValuesRequest {
+    private List<SetCellValueRequest> cells;
+
+    public List<SetCellValueRequest> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<SetCellValueRequest> cells) {
+        this.cells = cells;
+    }
+}
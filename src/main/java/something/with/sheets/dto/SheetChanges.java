@@ -0,0 +1,33 @@
+package something.with.sheets.dto;
+
+import java.util.List;
+
+// Resolved values of the cells that changed up to and including version
+public class SheetChanges {
+    private long version;
+    private List<CellChange> cells;
+
+    public SheetChanges() {
+    }
+
+    public SheetChanges(long version, List<CellChange> cells) {
+        this.version = version;
+        this.cells = cells;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<CellChange> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<CellChange> cells) {
+        this.cells = cells;
+    }
+}
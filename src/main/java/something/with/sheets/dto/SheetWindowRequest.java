@@ -0,0 +1,55 @@
+package something.with.sheets.dto;
+
+import java.util.List;
+
+public class SheetWindowRequest {
+    private Integer fromRow;
+    private Integer toRow;
+    private List<String> columns;
+    private Integer limit;
+    private String cursor;
+
+    public Integer getFromRow() {
+        return fromRow;
+    }
+
+    public void setFromRow(Integer fromRow) {
+        this.fromRow = fromRow;
+    }
+
+    public Integer getToRow() {
+        return toRow;
+    }
+
+    public void setToRow(Integer toRow) {
+        this.toRow = toRow;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isEmpty() {
+        return fromRow == null && toRow == null && columns == null && limit == null && cursor == null;
+    }
+}
@@ -0,0 +1,41 @@
+package something.with.sheets.formula;
+
+import java.util.List;
+
+// Immutable result of compiling formula text; safe to share between cells and sheets
+public class CompiledFormula {
+    private final String text;
+    private final Expression root;
+    private final List<Reference> references;
+    private final boolean plainLookup;
+
+    CompiledFormula(String text, Expression root, List<Reference> references) {
+        this.text = text;
+        this.root = root;
+        this.references = List.copyOf(references);
+        this.plainLookup = root instanceof Nodes.Lookup;
+    }
+
+    // Its text parses back to the same reference whatever the column name holds
+    public static CompiledFormula lookup(String columnName, int rowIndex) {
+        return new CompiledFormula("lookup(" + FormulaParser.quoteColumnName(columnName) + "," + rowIndex + ")",
+            new Nodes.Lookup(0, rowIndex), List.of(new Reference(columnName, rowIndex, rowIndex)));
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Reference> getReferences() {
+        return references;
+    }
+
+    // A formula that is a single lookup yields the referenced value as is; anything else yields a number
+    public boolean isPlainLookup() {
+        return plainLookup;
+    }
+
+    public Object evaluate(ValueReader reader) {
+        return root.evaluate(reader);
+    }
+}
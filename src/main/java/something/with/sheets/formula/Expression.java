@@ -0,0 +1,5 @@
+package something.with.sheets.formula;
+
+public interface Expression {
+    Object evaluate(ValueReader reader);
+}
@@ -0,0 +1,34 @@
+package something.with.sheets.formula;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Parses formula text once and hands out the shared compiled form for repeated text
+public class FormulaCompiler {
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private final Map<String, CompiledFormula> cache;
+
+    public FormulaCompiler() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public FormulaCompiler(int cacheSize) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledFormula> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public CompiledFormula compile(String text) {
+        CompiledFormula compiled = cache.get(text);
+        if (compiled == null) {
+            compiled = new FormulaParser(text).parse();
+            cache.put(text, compiled);
+        }
+        return compiled;
+    }
+}
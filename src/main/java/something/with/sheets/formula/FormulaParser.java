@@ -0,0 +1,223 @@
+package something.with.sheets.formula;
+
+import something.with.sheets.model.storage.ColumnStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Recursive-descent parser for formula text:
+ *   expr    := term (('+' | '-') term)*
+ *   term    := unary (('*' | '/') unary)*
+ *   unary   := '-' unary | primary
+ *   primary := number | '(' expr ')' | lookup(column, row) | fn(column, fromRow, toRow)
+ * where fn is sum, min, max or avg over an inclusive row range of at most MAX_RANGE_ROWS rows and column is a
+ * name, optionally quoted, with a doubled quote standing for a quote inside it. Text is at most MAX_LENGTH
+ * characters and nests unary minus and parentheses at most MAX_DEPTH levels deep, so neither parsing nor
+ * evaluating the tree can overflow the stack.
+ */
+class FormulaParser {
+    // Aggregates read the summaries of the storage pages wholly inside their range and only the rows of the
+    // partial pages at either end, so an evaluation costs at most 2 * PAGE_SIZE row reads plus one summary per
+    // page (256 at this limit)
+    static final int MAX_RANGE_ROWS = 1 << 20;
+    static final int MAX_LENGTH = 4096;
+    static final int MAX_DEPTH = 100;
+
+    private final String text;
+    private final List<Reference> references = new ArrayList<>();
+    private int pos;
+    private int depth;
+
+    FormulaParser(String text) {
+        this.text = text;
+    }
+
+    CompiledFormula parse() {
+        if (text.length() > MAX_LENGTH) {
+            throw error("longer than " + MAX_LENGTH + " characters");
+        }
+        Expression root = parseExpression();
+        skipWhitespace();
+        if (pos != text.length()) {
+            throw error("unexpected '" + text.charAt(pos) + "'");
+        }
+        if (references.isEmpty()) {
+            throw error("a formula must reference at least one cell");
+        }
+        return new CompiledFormula(text, root, references);
+    }
+
+    private Expression parseExpression() {
+        Expression left = parseTerm();
+        while (true) {
+            if (accept('+')) {
+                left = new Nodes.Binary('+', left, parseTerm());
+            } else if (accept('-')) {
+                left = new Nodes.Binary('-', left, parseTerm());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression parseTerm() {
+        Expression left = parseUnary();
+        while (true) {
+            if (accept('*')) {
+                left = new Nodes.Binary('*', left, parseUnary());
+            } else if (accept('/')) {
+                left = new Nodes.Binary('/', left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression parseUnary() {
+        if (++depth > MAX_DEPTH) {
+            throw error("nested more than " + MAX_DEPTH + " levels deep");
+        }
+        Expression unary = accept('-') ? new Nodes.Negate(parseUnary()) : parsePrimary();
+        depth--;
+        return unary;
+    }
+
+    private Expression parsePrimary() {
+        skipWhitespace();
+        if (accept('(')) {
+            Expression inner = parseExpression();
+            expect(')');
+            return inner;
+        }
+        if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+            return new Nodes.Constant(parseNumber());
+        }
+        String function = parseIdentifier().toLowerCase();
+        expect('(');
+        String column = parseColumnName();
+        expect(',');
+        int fromRow = parseRowIndex();
+        switch (function) {
+            case "lookup":
+                expect(')');
+                return new Nodes.Lookup(addReference(column, fromRow, fromRow), fromRow);
+            case "sum":
+            case "min":
+            case "max":
+            case "avg":
+                expect(',');
+                int toRow = parseRowIndex();
+                expect(')');
+                if (toRow < fromRow) {
+                    throw error("range end " + toRow + " is before its start " + fromRow);
+                }
+                if (toRow - fromRow >= MAX_RANGE_ROWS) {
+                    throw error("range " + fromRow + ".." + toRow + " spans more than " + MAX_RANGE_ROWS + " rows");
+                }
+                return new Nodes.Aggregate(function, addReference(column, fromRow, toRow), fromRow, toRow);
+            default:
+                throw error("unknown function '" + function + "'");
+        }
+    }
+
+    private int addReference(String column, int fromRow, int toRow) {
+        references.add(new Reference(column, fromRow, toRow));
+        return references.size() - 1;
+    }
+
+    // A doubled quote inside the quotes stands for one quote character, as quoteColumnName writes it
+    private String parseColumnName() {
+        skipWhitespace();
+        if (pos < text.length() && (text.charAt(pos) == '"' || text.charAt(pos) == '\'')) {
+            char quote = text.charAt(pos++);
+            StringBuilder name = new StringBuilder();
+            while (true) {
+                int end = text.indexOf(quote, pos);
+                if (end < 0) {
+                    throw error("unterminated column name");
+                }
+                name.append(text, pos, end);
+                pos = end + 1;
+                if (pos < text.length() && text.charAt(pos) == quote) {
+                    name.append(quote);
+                    pos++;
+                } else {
+                    return name.toString();
+                }
+            }
+        }
+        return parseIdentifier();
+    }
+
+    static String quoteColumnName(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    private String parseIdentifier() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error(pos < text.length() ? "unexpected '" + text.charAt(pos) + "'" : "unexpected end of formula");
+        }
+        return text.substring(start, pos);
+    }
+
+    private int parseRowIndex() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        int row;
+        try {
+            row = Integer.parseInt(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("invalid row index");
+        }
+        if (row > ColumnStorage.MAX_ROW_INDEX) {
+            throw error("row index " + row + " is above " + ColumnStorage.MAX_ROW_INDEX);
+        }
+        return row;
+    }
+
+    private double parseNumber() {
+        int start = pos;
+        while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+            pos++;
+        }
+        try {
+            return Double.parseDouble(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("invalid number");
+        }
+    }
+
+    private boolean accept(char c) {
+        skipWhitespace();
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("expected '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String detail) {
+        return new IllegalArgumentException("Invalid formula syntax: " + detail);
+    }
+}
@@ -0,0 +1,146 @@
+package something.with.sheets.formula;
+
+import something.with.sheets.model.storage.ColumnSummary;
+import something.with.sheets.model.storage.PagedColumnStorage;
+
+// Evaluator objects produced by FormulaParser; arithmetic is done in doubles and a null operand yields null
+final class Nodes {
+    private Nodes() {
+    }
+
+    static Double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    static class Constant implements Expression {
+        private final Double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(ValueReader reader) {
+            return value;
+        }
+    }
+
+    static class Lookup implements Expression {
+        private final int slot;
+        private final int rowIndex;
+
+        Lookup(int slot, int rowIndex) {
+            this.slot = slot;
+            this.rowIndex = rowIndex;
+        }
+
+        @Override
+        public Object evaluate(ValueReader reader) {
+            return reader.read(slot, rowIndex);
+        }
+    }
+
+    static class Negate implements Expression {
+        private final Expression operand;
+
+        Negate(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public Object evaluate(ValueReader reader) {
+            Double value = toDouble(operand.evaluate(reader));
+            return value == null ? null : -value;
+        }
+    }
+
+    static class Binary implements Expression {
+        private final char operator;
+        private final Expression left;
+        private final Expression right;
+
+        Binary(char operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(ValueReader reader) {
+            Double l = toDouble(left.evaluate(reader));
+            Double r = toDouble(right.evaluate(reader));
+            if (l == null || r == null) {
+                return null;
+            }
+            switch (operator) {
+                case '+':
+                    return l + r;
+                case '-':
+                    return l - r;
+                case '*':
+                    return l * r;
+                default:
+                    return r == 0 ? null : l / r;
+            }
+        }
+    }
+
+    static class Aggregate implements Expression {
+        private final String function;
+        private final int slot;
+        private final int fromRow;
+        private final int toRow;
+
+        Aggregate(String function, int slot, int fromRow, int toRow) {
+            this.function = function;
+            this.slot = slot;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        // Whole storage pages inside the range come from the reader's page summaries when it has them, so only
+        // the partial pages at either end are read row by row
+        @Override
+        public Object evaluate(ValueReader reader) {
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            long count = 0;
+            int lastRow = Math.min(toRow, reader.rowCount(slot) - 1);
+            for (int row = fromRow; row <= lastRow; row++) {
+                int pageEnd = row | (PagedColumnStorage.PAGE_SIZE - 1);
+                if ((row & (PagedColumnStorage.PAGE_SIZE - 1)) == 0 && pageEnd <= lastRow) {
+                    ColumnSummary page = reader.pageSummary(slot, row >>> PagedColumnStorage.PAGE_SHIFT);
+                    if (page != null) {
+                        if (page.getValueCount() > 0) {
+                            sum += page.getSum().doubleValue();
+                            min = Math.min(min, page.getMin().doubleValue());
+                            max = Math.max(max, page.getMax().doubleValue());
+                            count += page.getValueCount();
+                        }
+                        row = pageEnd;
+                        continue;
+                    }
+                }
+                Double value = toDouble(reader.read(slot, row));
+                if (value == null) {
+                    continue;
+                }
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                count++;
+            }
+            switch (function) {
+                case "sum":
+                    return sum;
+                case "min":
+                    return count == 0 ? null : min;
+                case "max":
+                    return count == 0 ? null : max;
+                default:
+                    return count == 0 ? null : sum / count;
+            }
+        }
+    }
+}
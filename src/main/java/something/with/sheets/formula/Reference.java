@@ -0,0 +1,30 @@
+package something.with.sheets.formula;
+
+// A column and an inclusive row range read by a formula; single-cell lookups have fromRow == toRow
+public class Reference {
+    private final String columnName;
+    private final int fromRow;
+    private final int toRow;
+
+    public Reference(String columnName, int fromRow, int toRow) {
+        this.columnName = columnName;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public int getFromRow() {
+        return fromRow;
+    }
+
+    public int getToRow() {
+        return toRow;
+    }
+
+    public boolean isRange() {
+        return fromRow != toRow;
+    }
+}
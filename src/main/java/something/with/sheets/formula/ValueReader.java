@@ -0,0 +1,19 @@
+package something.with.sheets.formula;
+
+import something.with.sheets.model.storage.ColumnSummary;
+
+// Supplies cell values to a compiled formula; slots are indexes into the formula's references
+public interface ValueReader {
+    Object read(int slot, int rowIndex);
+
+    // Rows the slot's column holds; rows at or past it read as null, so ranges stop there
+    default int rowCount(int slot) {
+        return Integer.MAX_VALUE;
+    }
+
+    // Count, sum, min and max of one storage page of the slot's column, or null to have aggregates read the
+    // page's rows one by one
+    default ColumnSummary pageSummary(int slot, int pageIndex) {
+        return null;
+    }
+}
@@ -1,42 +1,61 @@
 package something.with.sheets.model;
 
+import java.util.Objects;
+
+// Lightweight handle on a single row of a column; values live in the column's typed storage
 public class Cell {
-    private Object value;
-    Cell lookUpCell;
+    private final Column column;
+    private final int rowIndex;
+
+    public Cell(Column column, int rowIndex) {
+        this.column = column;
+        this.rowIndex = rowIndex;
+    }
+
+    public Column getColumn() {
+        return column;
+    }
 
-    public Cell(Object value) {
-        this.value = value;
+    public int getRowIndex() {
+        return rowIndex;
     }
 
+    // True for any formula cell, including plain lookups
     public boolean isLookup() {
-        return lookUpCell != null;
+        return column.getFormula(rowIndex) != null;
     }
 
     public void setLookup(Cell target) {
-        this.lookUpCell = target;
+        column.setCellLookup(rowIndex, target);
     }
 
     public void clearLookup() {
-        this.lookUpCell = null;
+        column.removeFormula(rowIndex);
     }
 
     public Object getValue() {
-        if (lookUpCell != null) {
-            return lookUpCell.getValue();
-        }
-        return value;
+        return column.getCell(rowIndex);
     }
 
+    // True when this cell is target or (transitively) reads it, i.e. making target read this cell would form a cycle
     public boolean hasCycle(Cell target) {
-        Cell current = this;
-        while (current != null) {
-            if (current == target) return true;
-            current = current.lookUpCell;
-        }
-        return false;
+        return DependencyGraph.reaches(this, target);
     }
 
     public void setValue(Object value) {
-        this.value = value;
+        column.setCell(rowIndex, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Cell)) return false;
+        Cell other = (Cell) o;
+        return column == other.column && rowIndex == other.rowIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(column), rowIndex);
     }
-} 
\ No newline at end of file
+}
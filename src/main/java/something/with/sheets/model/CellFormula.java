@@ -0,0 +1,74 @@
+package something.with.sheets.model;
+
+import something.with.sheets.formula.CompiledFormula;
+import something.with.sheets.formula.Reference;
+import something.with.sheets.formula.ValueReader;
+import something.with.sheets.model.storage.ColumnSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// A compiled formula bound to the columns its references name
+public class CellFormula implements ValueReader {
+    private final CompiledFormula compiled;
+    private final Column[] columns;
+
+    public CellFormula(CompiledFormula compiled, Column[] columns) {
+        this.compiled = compiled;
+        this.columns = columns;
+    }
+
+    public static CellFormula lookup(Cell target) {
+        return new CellFormula(CompiledFormula.lookup(target.getColumn().getName(), target.getRowIndex()),
+            new Column[] {target.getColumn()});
+    }
+
+    // Binds references by column name; used when restoring formulas that were validated when first written
+    public static CellFormula bind(CompiledFormula compiled, Map<String, Column> columns) {
+        List<Reference> references = compiled.getReferences();
+        Column[] bound = new Column[references.size()];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = columns.get(references.get(i).getColumnName());
+        }
+        return new CellFormula(compiled, bound);
+    }
+
+    public CompiledFormula getCompiled() {
+        return compiled;
+    }
+
+    public boolean isPlainLookup() {
+        return compiled.isPlainLookup();
+    }
+
+    public List<CellRange> getReferences() {
+        List<Reference> references = compiled.getReferences();
+        List<CellRange> ranges = new ArrayList<>(references.size());
+        for (int i = 0; i < references.size(); i++) {
+            ranges.add(new CellRange(columns[i], references.get(i).getFromRow(), references.get(i).getToRow()));
+        }
+        return ranges;
+    }
+
+    Object evaluate(ColumnType resultType) {
+        Object value = compiled.evaluate(this);
+        return compiled.isPlainLookup() ? value : resultType.coerceOrNull(value);
+    }
+
+    // Called with the sheet's write locks held, so storage is read directly
+    @Override
+    public Object read(int slot, int rowIndex) {
+        return columns[slot].getStorage().get(rowIndex);
+    }
+
+    @Override
+    public int rowCount(int slot) {
+        return columns[slot].getStorage().size();
+    }
+
+    @Override
+    public ColumnSummary pageSummary(int slot, int pageIndex) {
+        return columns[slot].getStorage().pageSummary(pageIndex);
+    }
+}
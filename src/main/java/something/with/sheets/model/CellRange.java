@@ -0,0 +1,30 @@
+package something.with.sheets.model;
+
+// Inclusive row range of one column
+public class CellRange {
+    private final Column column;
+    private final int fromRow;
+    private final int toRow;
+
+    public CellRange(Column column, int fromRow, int toRow) {
+        this.column = column;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    public int getFromRow() {
+        return fromRow;
+    }
+
+    public int getToRow() {
+        return toRow;
+    }
+
+    public boolean contains(Cell cell) {
+        return cell.getColumn() == column && cell.getRowIndex() >= fromRow && cell.getRowIndex() <= toRow;
+    }
+}
@@ -1,19 +1,46 @@
 package something.with.sheets.model;
 
 import something.with.sheets.dto.ColumnDto;
-import something.with.sheets.model.Cell;
+import something.with.sheets.model.storage.ColumnStorage;
+import something.with.sheets.model.storage.ColumnSummary;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 
 public class Column {
     private final String name;
-    private final String type;
-    private final List<Cell> cells = new ArrayList<>();
+    private final ColumnType type;
+    // Holds each row's resolved value; for formula rows this is the cached result of the formula
+    private final ColumnStorage storage;
+    // Fills the storage on first access for a column whose values are still in the database
+    private volatile Consumer<ColumnStorage> loader;
+    // The loader runs a query, so waiters park on a lock instead of a monitor that would pin a virtual thread
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // Size the storage must reach once loaded, for rows formulas were attached to before it was
+    private int reservedSize;
+    // Rows written since the last drain, for stores that persist deltas; null while tracking is off
+    private BitSet dirtyRows;
+    // Formula dependency graph of the sheet, kept on the columns it connects: forward edges from a formula
+    // row to what it reads, reverse edges from a row (or row range) to the formula cells that read it
+    final TreeMap<Integer, CellFormula> formulas = new TreeMap<>();
+    final Map<Integer, List<Cell>> dependents = new HashMap<>();
+    final RangeEdges rangeDependents = new RangeEdges();
+    // Write lock for this column's stripe of the sheet; readers validate optimistic stamps instead of blocking
+    private final StampedLock lock = new StampedLock();
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
 
     public Column(String name, String type) {
         this.name = name;
-        this.type = type;
+        this.type = ColumnType.fromName(type);
+        this.storage = this.type.newStorage();
     }
 
     public String getName() {
@@ -21,42 +48,257 @@ public class Column {
     }
 
     public String getType() {
+        return type.getName();
+    }
+
+    public ColumnType getColumnType() {
         return type;
     }
 
-    public List<Cell> getCells() {
-        return cells;
+    public ColumnStorage getStorage() {
+        if (loader != null) {
+            load();
+        }
+        return storage;
     }
 
-    public void ensureCellExists(int rowIndex) {
-        while (cells.size() <= rowIndex) {
-            cells.add(new Cell(null));
+    // False while the column's values are still waiting for the loader
+    public boolean isLoaded() {
+        return loader == null;
+    }
+
+    public void setLoader(Consumer<ColumnStorage> loader) {
+        this.loader = loader;
+    }
+
+    private void load() {
+        loadLock.lock();
+        try {
+            Consumer<ColumnStorage> pending = loader;
+            if (pending != null) {
+                pending.accept(storage);
+                if (reservedSize > 0) {
+                    storage.ensureSize(reservedSize);
+                }
+                loader = null;
+            }
+        } finally {
+            loadLock.unlock();
         }
     }
 
-    public void setCell(int rowIndex, Object value) {
-        ensureCellExists(rowIndex);
-        cells.get(rowIndex).setValue(value);
+    // Callers hold the sheet's exclusive lock, or the column is not shared yet
+    public void enableChangeTracking() {
+        dirtyRows = new BitSet();
+    }
+
+    // Returns the rows written since the previous call; callers hold the column's write lock
+    public BitSet drainDirtyRows() {
+        BitSet drained = dirtyRows;
+        dirtyRows = new BitSet();
+        return drained;
+    }
+
+    // Puts rows back after a failed save so the next save retries them; callers hold the column's write lock
+    public void markDirty(BitSet rows) {
+        dirtyRows.or(rows);
+    }
+
+    private void markDirty(int rowIndex) {
+        if (dirtyRows != null) {
+            dirtyRows.set(rowIndex);
+        }
+    }
+
+    public int size() {
+        return getStorage().size();
+    }
+
+    public long valueCount() {
+        return loader != null ? 0 : storage.valueCount();
+    }
+
+    // Values plus a rough per-formula cost for the formula and its edges; a column not loaded yet holds no values
+    public long estimatedBytes() {
+        long values = loader != null ? 0 : storage.estimatedBytes();
+        return values + formulas.size() * 200L;
+    }
+
+    public void ensureCellExists(int rowIndex) {
+        getStorage().ensureSize(rowIndex + 1);
+    }
+
+    public Propagation setCell(int rowIndex, Object value) {
+        Object coerced = type.coerce(value);
+        removeFormula(rowIndex);
+        getStorage().set(rowIndex, coerced);
+        markDirty(rowIndex);
+        return DependencyGraph.propagate(new Cell(this, rowIndex));
+    }
+
+    public StampedLock getLock() {
+        return lock;
     }
 
     public Object getCell(int rowIndex) {
-        if (rowIndex < 0 || rowIndex >= cells.size()) {
-            return null;
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            try {
+                Object value = getStorage().get(rowIndex);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // Torn read while a writer was replacing a page; retried below
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return getStorage().get(rowIndex);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Read from the storage's running aggregates, under the read lock so a write is seen whole or not at all
+    public ColumnSummary summary() {
+        ColumnStorage storage = getStorage();
+        long stamp = lock.readLock();
+        try {
+            return storage.summary();
+        } finally {
+            lock.unlockRead(stamp);
         }
-        return cells.get(rowIndex).getValue();
+    }
+
+    // True when writing this row may touch other cells through formula edges
+    public boolean hasEdges(int rowIndex) {
+        return formulas.containsKey(rowIndex) || DependencyGraph.hasDependents(this, rowIndex);
+    }
+
+    // Read-only view of the resolved values; rows are read on demand so unwritten pages are never materialized
+    public ColumnValues values() {
+        return new ColumnValues(this, 0, Integer.MAX_VALUE);
+    }
+
+    public ColumnValues values(int fromRow, int toRow) {
+        return new ColumnValues(this, fromRow, toRow);
     }
 
     public Cell getOrCreateCell(int rowIndex) {
         ensureCellExists(rowIndex);
-        return cells.get(rowIndex);
+        return new Cell(this, rowIndex);
+    }
+
+    public CellFormula getFormula(int rowIndex) {
+        return formulas.get(rowIndex);
+    }
+
+    public Set<Integer> getFormulaRows(int fromRow, int toRow) {
+        return formulas.subMap(fromRow, true, toRow, true).keySet();
+    }
+
+    // Target of a single-cell lookup, or null when the row holds a value or a more complex formula
+    public Cell getLookup(int rowIndex) {
+        CellFormula formula = formulas.get(rowIndex);
+        if (formula == null || !formula.isPlainLookup()) {
+            return null;
+        }
+        CellRange target = formula.getReferences().get(0);
+        return new Cell(target.getColumn(), target.getFromRow());
+    }
+
+    public List<Cell> getDependents(int rowIndex) {
+        return DependencyGraph.dependentsOf(new Cell(this, rowIndex));
     }
 
     public void setCellLookup(int rowIndex, Cell target) {
+        setCellFormula(rowIndex, CellFormula.lookup(target));
+    }
+
+    public Propagation setCellFormula(int rowIndex, CellFormula formula) {
+        Cell cell = attachFormula(rowIndex, formula);
+        getStorage().set(rowIndex, formula.evaluate(type));
+        markDirty(rowIndex);
+        return DependencyGraph.propagate(cell);
+    }
+
+    // Re-attaches a formula whose result is already in storage, e.g. when loading a snapshot
+    public void restoreFormula(int rowIndex, CellFormula formula) {
+        attachFormula(rowIndex, formula);
+    }
+
+    private Cell attachFormula(int rowIndex, CellFormula formula) {
+        reserveRow(rowIndex);
+        removeFormula(rowIndex);
+        formulas.put(rowIndex, formula);
+        Cell cell = new Cell(this, rowIndex);
+        for (CellRange reference : formula.getReferences()) {
+            Column target = reference.getColumn();
+            if (reference.getFromRow() == reference.getToRow()) {
+                target.reserveRow(reference.getFromRow());
+                target.dependents.computeIfAbsent(reference.getFromRow(), r -> new ArrayList<>()).add(cell);
+            } else {
+                target.rangeDependents.add(reference.getFromRow(), reference.getToRow(), cell);
+            }
+        }
+        return cell;
+    }
+
+    // Makes the row exist like ensureCellExists, but leaves a column that is not loaded yet unloaded, so restoring
+    // formulas does not read every column they connect
+    private void reserveRow(int rowIndex) {
+        if (loader != null) {
+            loadLock.lock();
+            try {
+                if (loader != null) {
+                    reservedSize = Math.max(reservedSize, rowIndex + 1);
+                    return;
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
         ensureCellExists(rowIndex);
-        cells.get(rowIndex).setLookup(target);
+    }
+
+    // Detaches the row from its formula, keeping the last computed value
+    void removeFormula(int rowIndex) {
+        CellFormula formula = formulas.remove(rowIndex);
+        if (formula == null) {
+            return;
+        }
+        markDirty(rowIndex);
+        Cell cell = new Cell(this, rowIndex);
+        for (CellRange reference : formula.getReferences()) {
+            Column target = reference.getColumn();
+            if (reference.getFromRow() == reference.getToRow()) {
+                List<Cell> cells = target.dependents.get(reference.getFromRow());
+                if (cells != null) {
+                    cells.remove(cell);
+                    if (cells.isEmpty()) {
+                        target.dependents.remove(reference.getFromRow());
+                    }
+                }
+            } else {
+                target.rangeDependents.remove(reference.getFromRow(), reference.getToRow(), cell);
+            }
+        }
+    }
+
+    void recompute(int rowIndex) {
+        CellFormula formula = formulas.get(rowIndex);
+        if (formula != null) {
+            getStorage().set(rowIndex, formula.evaluate(type));
+            markDirty(rowIndex);
+        }
     }
 
     public static Column fromDto(ColumnDto dto) {
         return new Column(dto.getName(), dto.getType());
     }
-}
\ No newline at end of file
+}
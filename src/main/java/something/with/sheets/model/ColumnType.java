@@ -0,0 +1,158 @@
+package something.with.sheets.model;
+
+import something.with.sheets.model.storage.BooleanColumnStorage;
+import something.with.sheets.model.storage.ColumnStorage;
+import something.with.sheets.model.storage.DoubleColumnStorage;
+import something.with.sheets.model.storage.IntColumnStorage;
+import something.with.sheets.model.storage.StringColumnStorage;
+
+public enum ColumnType {
+    INT("int") {
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Integer || (value instanceof Number && ((Number) value).intValue() == ((Number) value).doubleValue());
+        }
+
+        @Override
+        protected Object convert(Object value) {
+            return ((Number) value).intValue();
+        }
+
+        @Override
+        public ColumnStorage newStorage() {
+            return new IntColumnStorage();
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Integer.valueOf(text);
+        }
+    },
+    DOUBLE("double") {
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Double || value instanceof Float || value instanceof Integer || value instanceof Long;
+        }
+
+        @Override
+        protected Object convert(Object value) {
+            return ((Number) value).doubleValue();
+        }
+
+        @Override
+        public ColumnStorage newStorage() {
+            return new DoubleColumnStorage();
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Double.valueOf(text);
+        }
+    },
+    BOOLEAN("boolean") {
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        protected Object convert(Object value) {
+            return value;
+        }
+
+        @Override
+        public ColumnStorage newStorage() {
+            return new BooleanColumnStorage();
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Boolean.valueOf(text);
+        }
+    },
+    STRING("string") {
+        @Override
+        public boolean accepts(Object value) {
+            return value instanceof String;
+        }
+
+        @Override
+        protected Object convert(Object value) {
+            return value;
+        }
+
+        @Override
+        public ColumnStorage newStorage() {
+            return new StringColumnStorage();
+        }
+
+        @Override
+        public Object parse(String text) {
+            return text;
+        }
+    };
+
+    private final String name;
+
+    ColumnType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public abstract boolean accepts(Object value);
+
+    protected abstract Object convert(Object value);
+
+    public abstract ColumnStorage newStorage();
+
+    // Reads back a stored value written with String.valueOf
+    public abstract Object parse(String text);
+
+    // Validates and normalizes a raw request value to the boxed type the storage expects
+    public Object coerce(Object value) {
+        if (value == null || !accepts(value)) {
+            throw new IllegalArgumentException("Value does not match column type: " + name);
+        }
+        return convert(value);
+    }
+
+    // Parses a text field, e.g. from an imported CSV file, under the same rules coerce applies to JSON values
+    public Object parseField(String text) {
+        Object value = text;
+        if (isNumeric()) {
+            try {
+                value = Integer.valueOf(text.trim());
+            } catch (NumberFormatException e) {
+                try {
+                    value = Double.valueOf(text.trim());
+                } catch (NumberFormatException notNumber) {
+                    // Left as text, which coerce rejects
+                }
+            }
+        } else if (this == BOOLEAN && (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false"))) {
+            value = Boolean.valueOf(text);
+        }
+        return coerce(value);
+    }
+
+    // Like coerce, but maps values the column cannot hold (e.g. a fractional formula result in an int column) to null
+    public Object coerceOrNull(Object value) {
+        return value != null && accepts(value) ? convert(value) : null;
+    }
+
+    public boolean isNumeric() {
+        return this == INT || this == DOUBLE;
+    }
+
+    public static ColumnType fromName(String name) {
+        for (ColumnType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported column type: " + name);
+    }
+}
@@ -0,0 +1,57 @@
+package something.with.sheets.model;
+
+import something.with.sheets.model.storage.ColumnStorage;
+
+import java.util.AbstractList;
+
+// Read-only view of a column's resolved values over the row range [fromRow, toRow), clipped to the column length.
+// A view taken from a SheetVersion reads that pinned version without locks; otherwise it reads the live column
+public class ColumnValues extends AbstractList<Object> {
+    private final Column column;
+    private final ColumnStorage pinned;
+    private final int fromRow;
+    private final int toRow;
+
+    ColumnValues(Column column, int fromRow, int toRow) {
+        this(column, null, fromRow, toRow);
+    }
+
+    ColumnValues(Column column, ColumnStorage pinned, int fromRow, int toRow) {
+        this.column = column;
+        this.pinned = pinned;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    public boolean isPinned() {
+        return pinned != null;
+    }
+
+    // The storage to read rows from; reading a live column's storage needs the column's read lock
+    public ColumnStorage getStorage() {
+        return pinned != null ? pinned : column.getStorage();
+    }
+
+    public int getFromRow() {
+        return fromRow;
+    }
+
+    public int getToRow() {
+        return fromRow + size();
+    }
+
+    @Override
+    public Object get(int index) {
+        return pinned != null ? pinned.get(fromRow + index) : column.getCell(fromRow + index);
+    }
+
+    @Override
+    public int size() {
+        int columnSize = pinned != null ? pinned.size() : column.size();
+        return Math.max(0, Math.min(toRow, columnSize) - fromRow);
+    }
+}
@@ -0,0 +1,108 @@
+package something.with.sheets.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+// Traversals over the formula edges stored on columns; all iterative so deep chains cannot overflow the stack
+final class DependencyGraph {
+    private DependencyGraph() {
+    }
+
+    static boolean hasDependents(Column column, int rowIndex) {
+        return column.dependents.containsKey(rowIndex) || column.rangeDependents.covers(rowIndex);
+    }
+
+    static List<Cell> dependentsOf(Cell cell) {
+        Column column = cell.getColumn();
+        int row = cell.getRowIndex();
+        List<Cell> point = column.dependents.get(row);
+        if (column.rangeDependents.isEmpty()) {
+            return point == null ? List.of() : point;
+        }
+        List<Cell> result = point == null ? new ArrayList<>() : new ArrayList<>(point);
+        column.rangeDependents.collect(row, result);
+        return result;
+    }
+
+    // Cells whose formulas read any row of the given range and are themselves formulas, i.e. can lead further
+    static List<Cell> formulaCellsIn(CellRange range) {
+        List<Cell> cells = new ArrayList<>();
+        for (Integer row : range.getColumn().getFormulaRows(range.getFromRow(), range.getToRow())) {
+            cells.add(new Cell(range.getColumn(), row));
+        }
+        return cells;
+    }
+
+    // True when following formula references from start eventually reads target (or start is target)
+    static boolean reaches(Cell start, Cell target) {
+        Set<Cell> visited = new HashSet<>();
+        Deque<Cell> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Cell cell = pending.pop();
+            if (cell.equals(target)) {
+                return true;
+            }
+            if (!visited.add(cell)) {
+                continue;
+            }
+            CellFormula formula = cell.getColumn().formulas.get(cell.getRowIndex());
+            if (formula == null) {
+                continue;
+            }
+            for (CellRange reference : formula.getReferences()) {
+                if (reference.contains(target)) {
+                    return true;
+                }
+                if (reference.getFromRow() == reference.getToRow()) {
+                    pending.push(new Cell(reference.getColumn(), reference.getFromRow()));
+                } else {
+                    formulaCellsIn(reference).forEach(pending::push);
+                }
+            }
+        }
+        return false;
+    }
+
+    // Recomputes every formula that transitively reads the changed cell, in topological order so each
+    // formula is evaluated once, after all of its inputs
+    static Propagation propagate(Cell changed) {
+        if (!hasDependents(changed.getColumn(), changed.getRowIndex())) {
+            return Propagation.NONE;
+        }
+        int depth = 0;
+        List<Cell> postOrder = new ArrayList<>();
+        Set<Cell> visited = new HashSet<>();
+        Deque<Cell> path = new ArrayDeque<>();
+        Deque<Iterator<Cell>> iterators = new ArrayDeque<>();
+        visited.add(changed);
+        path.push(changed);
+        iterators.push(dependentsOf(changed).iterator());
+        while (!path.isEmpty()) {
+            Iterator<Cell> iterator = iterators.peek();
+            if (iterator.hasNext()) {
+                Cell next = iterator.next();
+                if (visited.add(next)) {
+                    path.push(next);
+                    iterators.push(dependentsOf(next).iterator());
+                    depth = Math.max(depth, path.size() - 1);
+                }
+            } else {
+                postOrder.add(path.pop());
+                iterators.pop();
+            }
+        }
+        Collections.reverse(postOrder);
+        List<Cell> recomputed = postOrder.subList(1, postOrder.size());
+        for (Cell cell : recomputed) {
+            cell.getColumn().recompute(cell.getRowIndex());
+        }
+        return new Propagation(depth, recomputed);
+    }
+}
@@ -0,0 +1,24 @@
+package something.with.sheets.model;
+
+import java.util.List;
+
+// What a write recomputed: the formula cells that read it, in evaluation order, and the longest chain followed
+public final class Propagation {
+    static final Propagation NONE = new Propagation(0, List.of());
+
+    private final int depth;
+    private final List<Cell> recomputed;
+
+    Propagation(int depth, List<Cell> recomputed) {
+        this.depth = depth;
+        this.recomputed = recomputed;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public List<Cell> getRecomputed() {
+        return recomputed;
+    }
+}
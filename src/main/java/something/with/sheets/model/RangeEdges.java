@@ -0,0 +1,93 @@
+package something.with.sheets.model;
+
+import something.with.sheets.model.storage.PagedColumnStorage;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Reverse edges from row ranges of a column to the formula cells that read them. Each range is filed under
+// every storage page it overlaps, so a write only looks at the ranges that share its page, not every range
+// formula reading the column
+final class RangeEdges {
+    private static final int BLOCK_SHIFT = PagedColumnStorage.PAGE_SHIFT;
+
+    private final Map<Integer, Set<Edge>> blocks = new HashMap<>();
+
+    boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    void add(int fromRow, int toRow, Cell dependent) {
+        Edge edge = new Edge(fromRow, toRow, dependent);
+        for (int block = fromRow >>> BLOCK_SHIFT; block <= toRow >>> BLOCK_SHIFT; block++) {
+            blocks.computeIfAbsent(block, b -> new LinkedHashSet<>()).add(edge);
+        }
+    }
+
+    void remove(int fromRow, int toRow, Cell dependent) {
+        Edge edge = new Edge(fromRow, toRow, dependent);
+        for (int block = fromRow >>> BLOCK_SHIFT; block <= toRow >>> BLOCK_SHIFT; block++) {
+            Set<Edge> edges = blocks.get(block);
+            if (edges != null && edges.remove(edge) && edges.isEmpty()) {
+                blocks.remove(block);
+            }
+        }
+    }
+
+    boolean covers(int row) {
+        Set<Edge> edges = blocks.get(row >>> BLOCK_SHIFT);
+        if (edges != null) {
+            for (Edge edge : edges) {
+                if (edge.contains(row)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Adds the formula cells whose ranges contain the row
+    void collect(int row, List<Cell> dependents) {
+        Set<Edge> edges = blocks.get(row >>> BLOCK_SHIFT);
+        if (edges != null) {
+            for (Edge edge : edges) {
+                if (edge.contains(row)) {
+                    dependents.add(edge.dependent);
+                }
+            }
+        }
+    }
+
+    private static final class Edge {
+        final int fromRow;
+        final int toRow;
+        final Cell dependent;
+
+        Edge(int fromRow, int toRow, Cell dependent) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.dependent = dependent;
+        }
+
+        boolean contains(int row) {
+            return row >= fromRow && row <= toRow;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Edge)) return false;
+            Edge edge = (Edge) o;
+            return fromRow == edge.fromRow && toRow == edge.toRow && dependent.equals(edge.dependent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fromRow, toRow, dependent);
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package something.with.sheets.model;
 
 import something.with.sheets.dto.CreateSheetRequest;
+import something.with.sheets.model.storage.ColumnStorage;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Sheet {
     private final String id;
     private final Map<String, Column> columns;
+    // Shared by writes confined to one column, exclusive for writes that follow lookup edges across columns
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Number of mutations applied; snapshots record it so replay can skip mutations they already contain
+    private final AtomicLong version = new AtomicLong();
+    private final SheetChangeLog changeLog = new SheetChangeLog(SheetChangeLog.DEFAULT_MAX_CELLS, 0);
+    // Held while a writer takes its version and appends its mutation, so concurrent writes to different
+    // columns reach the log in version order
+    private final ReentrantLock sequencer = new ReentrantLock();
 
     public Sheet(String id, List<Column> columnsList) {
         this.id = id;
@@ -23,14 +39,149 @@ public class Sheet {
         return id;
     }
 
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Called by the writer that applies a mutation, while it still holds the locks for it and inside sequenced
+    public long nextVersion() {
+        return version.incrementAndGet();
+    }
+
+    public <T> T sequenced(Supplier<T> step) {
+        sequencer.lock();
+        try {
+            return step.get();
+        } finally {
+            sequencer.unlock();
+        }
+    }
+
+    public void setVersion(long version) {
+        this.version.set(version);
+        changeLog.reset(version);
+    }
+
+    public SheetChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    public long cellCount() {
+        long cells = 0;
+        for (Column column : columns.values()) {
+            cells += column.valueCount();
+        }
+        return cells;
+    }
+
+    public long estimatedBytes() {
+        long bytes = changeLog.estimatedBytes();
+        for (Column column : columns.values()) {
+            bytes += column.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    public void enableChangeTracking() {
+        for (Column column : columns.values()) {
+            column.enableChangeTracking();
+        }
+    }
+
     public Map<String, Column> getColumns() {
         return columns;
     }
 
+    public <T> T writeCell(Column column, int rowIndex, Supplier<T> write) {
+        lock.readLock().lock();
+        try {
+            if (!column.hasEdges(rowIndex)) {
+                long stamp = column.getLock().writeLock();
+                try {
+                    return write.get();
+                } finally {
+                    column.getLock().unlockWrite(stamp);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return writeLinked(write);
+    }
+
+    public <T> T writeLinked(Supplier<T> write) {
+        lock.writeLock().lock();
+        List<Column> locked = new ArrayList<>(columns.values());
+        long[] stamps = new long[locked.size()];
+        try {
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = locked.get(i).getLock().writeLock();
+            }
+            return write.get();
+        } finally {
+            for (int i = 0; i < stamps.length; i++) {
+                if (stamps[i] != 0) {
+                    locked.get(i).getLock().unlockWrite(stamps[i]);
+                }
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Pins every column at the current version. All column read locks are held together while the storages are
+    // pinned, so a pin waits only for the writes in flight and never sees one half applied; the version read
+    // under them is the one the pinned values belong to. Callers close the result once done reading it
+    public SheetVersion pin() {
+        return pin(false);
+    }
+
+    // pin() that also copies the text of every formula under the same locks, for writers that serialize a whole
+    // sheet without holding it
+    public SheetVersion pinWithFormulas() {
+        return pin(true);
+    }
+
+    private SheetVersion pin(boolean withFormulas) {
+        List<Column> locked = new ArrayList<>(columns.values());
+        List<ColumnStorage> storages = new ArrayList<>(locked.size());
+        for (Column column : locked) {
+            storages.add(column.getStorage());
+        }
+        long[] stamps = new long[locked.size()];
+        try {
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = locked.get(i).getLock().readLock();
+            }
+            Map<String, ColumnStorage> pinned = new HashMap<>();
+            Map<String, SortedMap<Integer, String>> formulas = new HashMap<>();
+            for (int i = 0; i < stamps.length; i++) {
+                Column column = locked.get(i);
+                pinned.put(column.getName(), storages.get(i).pin());
+                if (withFormulas) {
+                    SortedMap<Integer, String> texts = new TreeMap<>();
+                    for (Integer row : column.getFormulaRows(0, Integer.MAX_VALUE)) {
+                        texts.put(row, column.getFormula(row).getCompiled().getText());
+                    }
+                    formulas.put(column.getName(), texts);
+                }
+            }
+            return new SheetVersion(version.get(), pinned, formulas);
+        } finally {
+            for (int i = 0; i < stamps.length; i++) {
+                if (stamps[i] != 0) {
+                    locked.get(i).getLock().unlockRead(stamps[i]);
+                }
+            }
+        }
+    }
+
     public void setCellValue(int rowIndex, String columnName, Object value) {
         Column column = columns.get(columnName);
         if (column == null) throw new IllegalArgumentException("Column not found");
-        column.setCell(rowIndex, value);
+        writeCell(column, rowIndex, () -> {
+            column.setCell(rowIndex, value);
+            return null;
+        });
     }
 
     public Object getCellValue(int rowIndex, String columnName) {
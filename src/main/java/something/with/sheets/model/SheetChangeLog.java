@@ -0,0 +1,116 @@
+package something.with.sheets.model;
+
+import something.with.sheets.dto.CellChange;
+import something.with.sheets.dto.SheetChanges;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * The cells changed by a sheet's recent mutations, by version, so a client holding version N can catch up
+ * without re-reading the sheet. Bounded by the number of cells held: the oldest versions are dropped first,
+ * and a client whose version is older than what is left has to do a full read. Every mutation appends (or
+ * skips) its version under the sheet's sequencer, which hands out versions, so versions arrive one after
+ * another without gaps and whatever the log holds after since is everything the client is missing.
+ */
+public class SheetChangeLog {
+    static final int DEFAULT_MAX_CELLS = 4096;
+
+    private final int maxCells;
+    private final TreeMap<Long, List<CellChange>> entries = new TreeMap<>();
+    // Appends run under the sheet's sequencer and reads on request threads; a lock rather than a monitor, so a
+    // virtual thread that waits here is unmounted from its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private int cells;
+    // Every version after this one is held
+    private long coveredFrom;
+
+    public SheetChangeLog(int maxCells, long version) {
+        this.maxCells = maxCells;
+        this.coveredFrom = version;
+    }
+
+    public int getMaxCells() {
+        return maxCells;
+    }
+
+    public void append(long version, List<CellChange> changes) {
+        lock.lock();
+        try {
+            if (version <= coveredFrom) {
+                return;
+            }
+            entries.put(version, changes);
+            cells += changes.size();
+            while (cells > maxCells && !entries.isEmpty()) {
+                Map.Entry<Long, List<CellChange>> oldest = entries.pollFirstEntry();
+                cells -= oldest.getValue().size();
+                coveredFrom = oldest.getKey();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A mutation whose cells were not collected because they would not fit: it drops everything before it, as
+    // appending its cells would have, so clients older than it do a full read
+    public void skip(long version) {
+        lock.lock();
+        try {
+            if (version > coveredFrom) {
+                reset(version);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops everything, e.g. when the sheet's version is restored from storage
+    public void reset(long version) {
+        lock.lock();
+        try {
+            entries.clear();
+            cells = 0;
+            coveredFrom = version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Latest value of each cell changed after version since, and the version they bring the client to;
+    // null when since is too old for the log to cover
+    public SheetChanges since(long since) {
+        lock.lock();
+        try {
+            if (since < coveredFrom) {
+                return null;
+            }
+            Map<String, CellChange> changed = new LinkedHashMap<>();
+            long version = since;
+            for (Map.Entry<Long, List<CellChange>> entry : entries.tailMap(since, false).entrySet()) {
+                version = entry.getKey();
+                for (CellChange change : entry.getValue()) {
+                    String key = change.getColumnName() + ':' + change.getRowIndex();
+                    changed.remove(key);
+                    changed.put(key, change);
+                }
+            }
+            return new SheetChanges(version, new ArrayList<>(changed.values()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.lock();
+        try {
+            return cells * 64L;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
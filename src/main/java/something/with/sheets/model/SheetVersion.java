@@ -0,0 +1,65 @@
+package something.with.sheets.model;
+
+import something.with.sheets.model.storage.ColumnStorage;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Every column of a sheet as it was at one version, pinned by Sheet.pin. Reading it takes no locks and never
+// shows a later write; closing it unpins the columns' pages, so writers stop copying them and the versions no
+// longer held by anyone can be collected
+public class SheetVersion implements AutoCloseable {
+    private final long version;
+    private final Map<String, ColumnStorage> storages;
+    // Formula texts by column and row, when pinned with Sheet.pinWithFormulas
+    private final Map<String, SortedMap<Integer, String>> formulas;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    SheetVersion(long version, Map<String, ColumnStorage> storages, Map<String, SortedMap<Integer, String>> formulas) {
+        this.version = version;
+        this.storages = storages;
+        this.formulas = formulas;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size(Column column) {
+        return storage(column).size();
+    }
+
+    public ColumnValues values(Column column) {
+        return values(column, 0, Integer.MAX_VALUE);
+    }
+
+    public ColumnValues values(Column column, int fromRow, int toRow) {
+        return new ColumnValues(column, storage(column), fromRow, toRow);
+    }
+
+    public ColumnStorage storage(Column column) {
+        ColumnStorage storage = storages.get(column.getName());
+        if (storage == null) {
+            throw new IllegalArgumentException("Column not found: " + column.getName());
+        }
+        return storage;
+    }
+
+    public SortedMap<Integer, String> formulas(Column column) {
+        SortedMap<Integer, String> texts = formulas.get(column.getName());
+        if (texts == null) {
+            throw new IllegalArgumentException("Formulas were not pinned for column: " + column.getName());
+        }
+        return texts;
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            for (ColumnStorage storage : storages.values()) {
+                storage.release();
+            }
+        }
+    }
+}
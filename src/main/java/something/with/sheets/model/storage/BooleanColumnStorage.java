@@ -0,0 +1,95 @@
+package something.with.sheets.model.storage;
+
+import java.nio.ByteBuffer;
+
+public class BooleanColumnStorage extends PagedColumnStorage<BooleanColumnStorage.BooleanPage> {
+    private static final BooleanPage EMPTY = new BooleanPage();
+
+    @Override
+    protected BooleanPage emptyPage() {
+        return EMPTY;
+    }
+
+    @Override
+    protected BooleanPage newPage() {
+        return new BooleanPage();
+    }
+
+    @Override
+    protected BooleanPage copyPage(BooleanPage page) {
+        BooleanPage copy = new BooleanPage();
+        System.arraycopy(page.bits, 0, copy.bits, 0, page.bits.length);
+        return copy;
+    }
+
+    @Override
+    protected BooleanColumnStorage emptyPinned() {
+        return new BooleanColumnStorage();
+    }
+
+    public boolean getBoolean(int rowIndex) {
+        return page(rowIndex).get(offset(rowIndex));
+    }
+
+    public void setBoolean(int rowIndex, boolean value) {
+        BooleanPage page = pageForWrite(rowIndex);
+        page.set(offset(rowIndex), value);
+        written(page, rowIndex);
+    }
+
+    @Override
+    protected int valueBytes() {
+        return (PAGE_SIZE >>> 6) * Long.BYTES;
+    }
+
+    @Override
+    protected void writeValues(BooleanPage page, ByteBuffer out) {
+        putLongs(out, page.bits);
+    }
+
+    @Override
+    protected void readValues(BooleanPage page, ByteBuffer in) {
+        getLongs(in, page.bits);
+    }
+
+    // Bit-packed like the validity bitmap
+    @Override
+    protected void writeColumnarValues(BooleanPage page, int offset, int count, ByteBuffer out) {
+        putBits(out, page.bits, offset, count);
+    }
+
+    // Only EQ and NE apply to booleans: both reduce to whole words of the bit-packed values
+    @Override
+    protected void matchValues(BooleanPage page, ValueFilter filter, long[] matches) {
+        boolean wanted = (Boolean) filter.getOperand() != filter.isNegated();
+        for (int word = 0; word < page.bits.length; word++) {
+            matches[word] = wanted ? page.bits[word] : ~page.bits[word];
+        }
+    }
+
+    @Override
+    protected Object read(BooleanPage page, int offset) {
+        return page.get(offset);
+    }
+
+    @Override
+    protected void write(BooleanPage page, int offset, Object value) {
+        page.set(offset, (Boolean) value);
+    }
+
+    static class BooleanPage extends Page {
+        private final long[] bits = new long[PAGE_SIZE >>> 6];
+
+        boolean get(int offset) {
+            return (bits[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        void set(int offset, boolean value) {
+            if (value) {
+                bits[offset >>> 6] |= 1L << offset;
+            } else {
+                bits[offset >>> 6] &= ~(1L << offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package something.with.sheets.model.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface ColumnStorage {
+    // The last row a column can hold, so its size still fits an int
+    int MAX_ROW_INDEX = Integer.MAX_VALUE - 1;
+
+    int size();
+
+    void ensureSize(int size);
+
+    boolean isNull(int rowIndex);
+
+    Object get(int rowIndex);
+
+    // Expects a value already coerced by the column's type; null clears the row
+    void set(int rowIndex, Object value);
+
+    // Number of rows holding a value
+    long valueCount();
+
+    // Aggregates over the stored values, kept up to date by every write; callers hold the column's read lock
+    ColumnSummary summary();
+
+    // The same aggregates over one storage page, or null when the storage keeps none per page; callers hold the
+    // column's read lock
+    default ColumnSummary pageSummary(int pageIndex) {
+        return null;
+    }
+
+    // Approximate heap footprint, used to weigh sheets in the repository cache
+    long estimatedBytes();
+
+    // Read-only version of the current rows that later writes leave alone; callers hold the column's read lock
+    // and release the version once they are done reading it
+    ColumnStorage pin();
+
+    void release();
+
+    // Snapshot encoding; readFrom expects an empty storage
+    void writeTo(DataOutputStream out) throws IOException;
+
+    void readFrom(ByteBuffer in);
+}
@@ -0,0 +1,53 @@
+package something.with.sheets.model.storage;
+
+// Aggregates over a column's stored values: sum, min and max for numeric columns, distinctCount for strings
+public class ColumnSummary {
+    private final int rowCount;
+    private final long valueCount;
+    private final Number sum;
+    private final Number min;
+    private final Number max;
+    private final Long distinctCount;
+
+    public ColumnSummary(int rowCount, long valueCount) {
+        this(rowCount, valueCount, null, null, null, null);
+    }
+
+    public ColumnSummary(int rowCount, long valueCount, Number sum, Number min, Number max, Long distinctCount) {
+        this.rowCount = rowCount;
+        this.valueCount = valueCount;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.distinctCount = distinctCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public Number getSum() {
+        return sum;
+    }
+
+    // Null for a column without values
+    public Number getMin() {
+        return min;
+    }
+
+    public Number getMax() {
+        return max;
+    }
+
+    public Double getAverage() {
+        return sum != null && valueCount > 0 ? sum.doubleValue() / valueCount : null;
+    }
+
+    public Long getDistinctCount() {
+        return distinctCount;
+    }
+}
@@ -0,0 +1,157 @@
+package something.with.sheets.model.storage;
+
+import java.nio.ByteBuffer;
+
+public class DoubleColumnStorage extends PagedColumnStorage<DoubleColumnStorage.DoublePage> {
+    private static final DoublePage EMPTY = new DoublePage();
+
+    private final PageSummaries summaries;
+
+    public DoubleColumnStorage() {
+        this(new PageSummaries(false));
+    }
+
+    private DoubleColumnStorage(PageSummaries summaries) {
+        this.summaries = summaries;
+    }
+
+    @Override
+    protected DoublePage emptyPage() {
+        return EMPTY;
+    }
+
+    @Override
+    protected DoublePage newPage() {
+        return new DoublePage();
+    }
+
+    @Override
+    protected DoublePage copyPage(DoublePage page) {
+        DoublePage copy = new DoublePage();
+        System.arraycopy(page.values, 0, copy.values, 0, PAGE_SIZE);
+        summaries.copy(page, copy);
+        return copy;
+    }
+
+    @Override
+    protected DoubleColumnStorage emptyPinned() {
+        return new DoubleColumnStorage(summaries.forPinned());
+    }
+
+    public double getDouble(int rowIndex) {
+        return page(rowIndex).values[offset(rowIndex)];
+    }
+
+    public void setDouble(int rowIndex, double value) {
+        DoublePage page = pageForWrite(rowIndex);
+        page.values[offset(rowIndex)] = value;
+        written(page, rowIndex);
+    }
+
+    @Override
+    protected void valueAdded(DoublePage page, int pageIndex, int offset) {
+        summaries.add(page, pageIndex, page.values[offset]);
+    }
+
+    @Override
+    protected void valueRemoved(DoublePage page, int pageIndex, int offset) {
+        summaries.remove(page, pageIndex, page.values[offset]);
+    }
+
+    @Override
+    protected void pageLoaded(DoublePage page, int pageIndex) {
+        summaries.loaded(page, pageIndex);
+    }
+
+    @Override
+    public ColumnSummary summary() {
+        PageSummaries.Totals totals = summaries.totals(pageIndex -> page(pageIndex << PAGE_SHIFT), pageCount());
+        if (totals.count == 0) {
+            return new ColumnSummary(size(), 0, 0.0, null, null, null);
+        }
+        return new ColumnSummary(size(), valueCount(), totals.doubleSum, totals.min, totals.max, null);
+    }
+
+    @Override
+    public ColumnSummary pageSummary(int pageIndex) {
+        PageSummaries.Totals totals = summaries.page(page(pageIndex << PAGE_SHIFT));
+        if (totals.count == 0) {
+            return new ColumnSummary(PAGE_SIZE, 0, 0.0, null, null, null);
+        }
+        return new ColumnSummary(PAGE_SIZE, totals.count, totals.doubleSum, totals.min, totals.max, null);
+    }
+
+    @Override
+    protected boolean mayContain(DoublePage page, int pageIndex, ValueFilter filter) {
+        return summaries.mayMatch(page, filter);
+    }
+
+    @Override
+    protected void matchValues(DoublePage page, ValueFilter filter, long[] matches) {
+        long flip = filter.isNegated() ? -1L : 0L;
+        double[] values = page.values;
+        for (int word = 0; word < matches.length; word++) {
+            long bits = 0;
+            int base = word << 6;
+            for (int bit = 0; bit < 64; bit++) {
+                bits |= (filter.inRange(values[base + bit]) ? 1L : 0L) << bit;
+            }
+            matches[word] = bits ^ flip;
+        }
+    }
+
+    @Override
+    protected int valueBytes() {
+        return PAGE_SIZE * Double.BYTES;
+    }
+
+    @Override
+    protected void writeValues(DoublePage page, ByteBuffer out) {
+        out.asDoubleBuffer().put(page.values);
+        out.position(out.position() + PAGE_SIZE * Double.BYTES);
+    }
+
+    @Override
+    protected void readValues(DoublePage page, ByteBuffer in) {
+        in.asDoubleBuffer().get(page.values);
+        in.position(in.position() + PAGE_SIZE * Double.BYTES);
+    }
+
+    @Override
+    protected void writeColumnarValues(DoublePage page, int offset, int count, ByteBuffer out) {
+        out.asDoubleBuffer().put(page.values, offset, count);
+        out.position(out.position() + count * Double.BYTES);
+    }
+
+    @Override
+    protected Object read(DoublePage page, int offset) {
+        return page.values[offset];
+    }
+
+    @Override
+    protected void write(DoublePage page, int offset, Object value) {
+        page.values[offset] = (Double) value;
+    }
+
+    static class DoublePage extends PageSummaries.SummarizedPage {
+        private final double[] values = new double[PAGE_SIZE];
+
+        @Override
+        void summarize() {
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int offset = 0; offset < PAGE_SIZE; offset++) {
+                if (isPresent(offset)) {
+                    double value = values[offset];
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            doubleSum = sum;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
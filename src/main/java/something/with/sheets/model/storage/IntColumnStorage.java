@@ -0,0 +1,159 @@
+package something.with.sheets.model.storage;
+
+import java.nio.ByteBuffer;
+
+public class IntColumnStorage extends PagedColumnStorage<IntColumnStorage.IntPage> {
+    private static final IntPage EMPTY = new IntPage();
+
+    private final PageSummaries summaries;
+
+    public IntColumnStorage() {
+        this(new PageSummaries(true));
+    }
+
+    private IntColumnStorage(PageSummaries summaries) {
+        this.summaries = summaries;
+    }
+
+    @Override
+    protected IntPage emptyPage() {
+        return EMPTY;
+    }
+
+    @Override
+    protected IntPage newPage() {
+        return new IntPage();
+    }
+
+    @Override
+    protected IntPage copyPage(IntPage page) {
+        IntPage copy = new IntPage();
+        System.arraycopy(page.values, 0, copy.values, 0, PAGE_SIZE);
+        summaries.copy(page, copy);
+        return copy;
+    }
+
+    @Override
+    protected IntColumnStorage emptyPinned() {
+        return new IntColumnStorage(summaries.forPinned());
+    }
+
+    public int getInt(int rowIndex) {
+        return page(rowIndex).values[offset(rowIndex)];
+    }
+
+    public void setInt(int rowIndex, int value) {
+        IntPage page = pageForWrite(rowIndex);
+        page.values[offset(rowIndex)] = value;
+        written(page, rowIndex);
+    }
+
+    @Override
+    protected void valueAdded(IntPage page, int pageIndex, int offset) {
+        summaries.add(page, pageIndex, page.values[offset]);
+    }
+
+    @Override
+    protected void valueRemoved(IntPage page, int pageIndex, int offset) {
+        summaries.remove(page, pageIndex, page.values[offset]);
+    }
+
+    @Override
+    protected void pageLoaded(IntPage page, int pageIndex) {
+        summaries.loaded(page, pageIndex);
+    }
+
+    @Override
+    public ColumnSummary summary() {
+        PageSummaries.Totals totals = summaries.totals(pageIndex -> page(pageIndex << PAGE_SHIFT), pageCount());
+        if (totals.count == 0) {
+            return new ColumnSummary(size(), 0, 0L, null, null, null);
+        }
+        return new ColumnSummary(size(), valueCount(), totals.longSum, (int) totals.min, (int) totals.max, null);
+    }
+
+    @Override
+    public ColumnSummary pageSummary(int pageIndex) {
+        PageSummaries.Totals totals = summaries.page(page(pageIndex << PAGE_SHIFT));
+        if (totals.count == 0) {
+            return new ColumnSummary(PAGE_SIZE, 0, 0L, null, null, null);
+        }
+        return new ColumnSummary(PAGE_SIZE, totals.count, totals.longSum, (int) totals.min, (int) totals.max, null);
+    }
+
+    @Override
+    protected boolean mayContain(IntPage page, int pageIndex, ValueFilter filter) {
+        return summaries.mayMatch(page, filter);
+    }
+
+    // The filter's range narrowed to whole ints, so each row costs two integer compares
+    @Override
+    protected void matchValues(IntPage page, ValueFilter filter, long[] matches) {
+        long low = (long) (filter.lowInclusive ? Math.ceil(filter.low) : Math.floor(filter.low) + 1);
+        long high = (long) (filter.highInclusive ? Math.floor(filter.high) : Math.ceil(filter.high) - 1);
+        long flip = filter.isNegated() ? -1L : 0L;
+        int[] values = page.values;
+        for (int word = 0; word < matches.length; word++) {
+            long bits = 0;
+            int base = word << 6;
+            for (int bit = 0; bit < 64; bit++) {
+                int value = values[base + bit];
+                bits |= (value >= low && value <= high ? 1L : 0L) << bit;
+            }
+            matches[word] = bits ^ flip;
+        }
+    }
+
+    @Override
+    protected int valueBytes() {
+        return PAGE_SIZE * Integer.BYTES;
+    }
+
+    @Override
+    protected void writeValues(IntPage page, ByteBuffer out) {
+        putInts(out, page.values);
+    }
+
+    @Override
+    protected void readValues(IntPage page, ByteBuffer in) {
+        getInts(in, page.values);
+    }
+
+    @Override
+    protected void writeColumnarValues(IntPage page, int offset, int count, ByteBuffer out) {
+        out.asIntBuffer().put(page.values, offset, count);
+        out.position(out.position() + count * Integer.BYTES);
+    }
+
+    @Override
+    protected Object read(IntPage page, int offset) {
+        return page.values[offset];
+    }
+
+    @Override
+    protected void write(IntPage page, int offset, Object value) {
+        page.values[offset] = (Integer) value;
+    }
+
+    static class IntPage extends PageSummaries.SummarizedPage {
+        private final int[] values = new int[PAGE_SIZE];
+
+        @Override
+        void summarize() {
+            long sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int offset = 0; offset < PAGE_SIZE; offset++) {
+                if (isPresent(offset)) {
+                    int value = values[offset];
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            longSum = sum;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
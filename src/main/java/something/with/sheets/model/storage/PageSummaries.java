@@ -0,0 +1,201 @@
+package something.with.sheets.model.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/*
+ * Sum, min and max of a numeric column per storage page (a zone map). Each summary lives on its page, so
+ * unallocated pages cost nothing and a write at the last row allocates one page, not a summary per page below
+ * it. Removing a page's min or max, or overwriting a double (whose running sum would drift), only marks the page
+ * stale; a stale page is rescanned by the next read that needs it.
+ *
+ * Column totals combine per-block totals, one per BLOCK_SIZE pages, cached until a write to the block drops
+ * them, so a read recomputes only the blocks written since the previous read; a column has at most
+ * MAX_ROW_INDEX / (PAGE_SIZE * BLOCK_SIZE) + 1 = 512 blocks.
+ *
+ * Writers hold the column's write lock; readers hold its read lock and take refreshLock, since refreshing
+ * mutates page summaries and the block cache.
+ */
+final class PageSummaries {
+    static final int BLOCK_SHIFT = 10;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final Totals NONE = new Totals(0, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    private final boolean integral;
+    private final ReentrantLock refreshLock;
+    // Totals of each block of pages; null until read, and again once a write changes the block
+    private Totals[] blocks = new Totals[0];
+
+    // Integral columns keep an exact long sum, so adding and removing values never drifts
+    PageSummaries(boolean integral) {
+        this(integral, new ReentrantLock());
+    }
+
+    private PageSummaries(boolean integral, ReentrantLock refreshLock) {
+        this.integral = integral;
+        this.refreshLock = refreshLock;
+    }
+
+    // Summaries for a pinned version: its page summaries come with the pages it shares, and its block totals are
+    // recomputed if anything reads them, so pinning copies nothing. The lock is shared, since both sides refresh
+    // the same shared pages
+    PageSummaries forPinned() {
+        return new PageSummaries(integral, refreshLock);
+    }
+
+    void add(SummarizedPage page, int pageIndex, double value) {
+        if (integral) {
+            page.longSum += (long) value;
+        } else {
+            page.doubleSum += value;
+        }
+        page.min = Math.min(page.min, value);
+        page.max = Math.max(page.max, value);
+        changed(pageIndex);
+    }
+
+    void remove(SummarizedPage page, int pageIndex, double value) {
+        if (integral) {
+            page.longSum -= (long) value;
+        } else {
+            page.doubleSum -= value;
+            page.stale = true;
+        }
+        if (value <= page.min || value >= page.max) {
+            page.stale = true;
+        }
+        changed(pageIndex);
+    }
+
+    // A snapshot block was read into the page without going through add
+    void loaded(SummarizedPage page, int pageIndex) {
+        page.stale = true;
+        changed(pageIndex);
+    }
+
+    // Gives a copy of a shared page the shared page's summary; a pinned reader may be refreshing it meanwhile
+    void copy(SummarizedPage from, SummarizedPage to) {
+        refreshLock.lock();
+        try {
+            to.longSum = from.longSum;
+            to.doubleSum = from.doubleSum;
+            to.min = from.min;
+            to.max = from.max;
+            to.stale = from.stale;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Combines the pages [0, pageCount); pages returns a page by index, with a count of 0 when unallocated
+    Totals totals(IntFunction<? extends SummarizedPage> pages, int pageCount) {
+        refreshLock.lock();
+        try {
+            int blockCount = (pageCount + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+            if (blocks.length < blockCount) {
+                blocks = Arrays.copyOf(blocks, blockCount);
+            }
+            Totals totals = NONE;
+            for (int block = 0; block < blockCount; block++) {
+                if (blocks[block] == null) {
+                    blocks[block] = summarizeBlock(block, pages, pageCount);
+                }
+                totals = totals.plus(blocks[block]);
+            }
+            return totals;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // One page's summary, rescanning it first if stale
+    Totals page(SummarizedPage page) {
+        if (page.getCount() == 0) {
+            return NONE;
+        }
+        refreshLocked(page);
+        return new Totals(page.getCount(), page.longSum, page.doubleSum, page.min, page.max);
+    }
+
+    // Zone-map test for one page with values; a stale page is rescanned first, since after a snapshot load its
+    // summary holds nothing
+    boolean mayMatch(SummarizedPage page, ValueFilter filter) {
+        refreshLocked(page);
+        return filter.mayMatch(page.min, page.max);
+    }
+
+    private Totals summarizeBlock(int block, IntFunction<? extends SummarizedPage> pages, int pageCount) {
+        Totals totals = NONE;
+        int end = Math.min(pageCount, (block + 1) << BLOCK_SHIFT);
+        for (int pageIndex = block << BLOCK_SHIFT; pageIndex < end; pageIndex++) {
+            SummarizedPage page = pages.apply(pageIndex);
+            if (page.getCount() > 0) {
+                refresh(page);
+                totals = totals.plus(new Totals(page.getCount(), page.longSum, page.doubleSum, page.min, page.max));
+            }
+        }
+        return totals;
+    }
+
+    private void refreshLocked(SummarizedPage page) {
+        if (page.stale) {
+            refreshLock.lock();
+            try {
+                refresh(page);
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+    }
+
+    private void refresh(SummarizedPage page) {
+        if (page.stale) {
+            page.summarize();
+            page.stale = false;
+        }
+    }
+
+    private void changed(int pageIndex) {
+        int block = pageIndex >>> BLOCK_SHIFT;
+        if (block < blocks.length) {
+            blocks[block] = null;
+        }
+    }
+
+    // A page that carries its own summary; summarize recomputes it from the page's values
+    abstract static class SummarizedPage extends PagedColumnStorage.Page {
+        long longSum;
+        double doubleSum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        // Volatile so a reader that sees a page fresh also sees the summary the refreshing reader wrote
+        volatile boolean stale;
+
+        abstract void summarize();
+    }
+
+    static final class Totals {
+        final long count;
+        final long longSum;
+        final double doubleSum;
+        final double min;
+        final double max;
+
+        Totals(long count, long longSum, double doubleSum, double min, double max) {
+            this.count = count;
+            this.longSum = longSum;
+            this.doubleSum = doubleSum;
+            this.min = min;
+            this.max = max;
+        }
+
+        Totals plus(Totals other) {
+            if (other.count == 0) {
+                return this;
+            }
+            return new Totals(count + other.count, longSum + other.longSum, doubleSum + other.doubleSum,
+                    Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+}
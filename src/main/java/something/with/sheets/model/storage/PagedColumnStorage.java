@@ -0,0 +1,479 @@
+package something.with.sheets.model.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Rows are kept in fixed-size pages that are only allocated on first write, so a
+// write to a high row index costs one page instead of every row below it.
+// Pinned versions share the pages, and the page array itself: while one is held, a write copies the array before
+// its first change to it since the latest pin, and copies the page it is about to change unless the page was
+// already copied since that pin, so a pinned version never sees a later write and pinning copies nothing
+public abstract class PagedColumnStorage<P extends PagedColumnStorage.Page> implements ColumnStorage {
+    public static final int PAGE_SHIFT = 12;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PRESENCE_WORDS = PAGE_SIZE >>> 6;
+
+    private Page[] pages = new Page[0];
+    private int size;
+    private int allocatedPages;
+    private long values;
+    private ValueIndex[] indexes = new ValueIndex[0];
+    // Bumped by every pin; a page stamped with an older generation may be shared with a pinned version
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicInteger pins = new AtomicInteger();
+    // Set on a pinned version: the storage whose pages it shares
+    private PagedColumnStorage<P> origin;
+    private boolean released;
+    // Set by pin once the page array is shared with a pinned version; the next write to it copies the array
+    private boolean pagesShared;
+
+    protected abstract P emptyPage();
+
+    protected abstract P newPage();
+
+    // A page holding the same values; presence is copied by the caller
+    protected abstract P copyPage(P page);
+
+    // An empty storage of the same type to hold a pinned version, carrying whatever reads need besides the pages
+    protected abstract PagedColumnStorage<P> emptyPinned();
+
+    // Encoded size of one page's values in a snapshot
+    protected abstract int valueBytes();
+
+    protected abstract void writeValues(P page, ByteBuffer out);
+
+    protected abstract void readValues(P page, ByteBuffer in);
+
+    // Values of page rows [offset, offset + count) in the columnar export layout
+    protected abstract void writeColumnarValues(P page, int offset, int count, ByteBuffer out);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void ensureSize(int size) {
+        if (origin != null) {
+            throw new UnsupportedOperationException("Pinned versions are read-only");
+        }
+        // A row index past MAX_ROW_INDEX arrives here as a size that overflowed
+        if (size < 0) {
+            throw new IllegalArgumentException("Row index must be at most " + MAX_ROW_INDEX);
+        }
+        if (size > this.size) {
+            this.size = size;
+        }
+    }
+
+    public int pageCount() {
+        return (size + PAGE_MASK) >>> PAGE_SHIFT;
+    }
+
+    @Override
+    public long valueCount() {
+        return values;
+    }
+
+    @Override
+    public ColumnSummary summary() {
+        return new ColumnSummary(size, values);
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = (long) allocatedPages * (PRESENCE_WORDS * Long.BYTES + valueBytes() + 48) + (long) pages.length * 8 + 32;
+        for (ValueIndex index : indexes) {
+            bytes += index.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    public boolean isPageAllocated(int pageIndex) {
+        return pageIndex < pages.length && pages[pageIndex] != emptyPage();
+    }
+
+    @Override
+    public boolean isNull(int rowIndex) {
+        return !page(rowIndex).isPresent(offset(rowIndex));
+    }
+
+    @Override
+    public Object get(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= size || isNull(rowIndex)) {
+            return null;
+        }
+        return read(page(rowIndex), offset(rowIndex));
+    }
+
+    protected abstract Object read(P page, int offset);
+
+    @Override
+    public void set(int rowIndex, Object value) {
+        ensureSize(rowIndex + 1);
+        if (value == null) {
+            int offset = offset(rowIndex);
+            if (page(rowIndex).isPresent(offset)) {
+                P page = writablePage(rowIndex);
+                values--;
+                valueRemoved(page, rowIndex >>> PAGE_SHIFT, offset);
+                unindex(page, rowIndex, offset);
+                page.markNull(offset);
+            }
+            return;
+        }
+        P page = pageForWrite(rowIndex);
+        write(page, offset(rowIndex), value);
+        written(page, rowIndex);
+    }
+
+    protected abstract void write(P page, int offset, Object value);
+
+    // Every write goes through pageForWrite and then written, typed setters included, so the value count and
+    // the subclasses' summaries see the value a row loses and the one it gains
+    protected P pageForWrite(int rowIndex) {
+        P page = writablePage(rowIndex);
+        int offset = offset(rowIndex);
+        if (page.isPresent(offset)) {
+            values--;
+            valueRemoved(page, rowIndex >>> PAGE_SHIFT, offset);
+            unindex(page, rowIndex, offset);
+        }
+        return page;
+    }
+
+    protected void written(P page, int rowIndex) {
+        int offset = offset(rowIndex);
+        page.markPresent(offset);
+        values++;
+        valueAdded(page, rowIndex >>> PAGE_SHIFT, offset);
+        for (ValueIndex index : indexes) {
+            if (index.covers(rowIndex >>> PAGE_SHIFT)) {
+                index.add(read(page, offset), rowIndex);
+            }
+        }
+    }
+
+    private void unindex(P page, int rowIndex, int offset) {
+        for (ValueIndex index : indexes) {
+            if (index.covers(rowIndex >>> PAGE_SHIFT)) {
+                index.remove(read(page, offset), rowIndex);
+            }
+        }
+    }
+
+    // Starts maintaining an index that covers no pages yet; callers hold the column's write lock and then fill
+    // it with indexPage
+    public void addIndex(ValueIndex index) {
+        indexes = Arrays.copyOf(indexes, indexes.length + 1);
+        indexes[indexes.length - 1] = index;
+    }
+
+    public ValueIndex getIndex(ValueIndex.Kind kind) {
+        for (ValueIndex index : indexes) {
+            if (index.getKind() == kind) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    // Adds one page's values to an index being built and returns true once the index covers the whole column.
+    // Callers hold the column's read lock and call it for pages 0, 1, ... in turn
+    public boolean indexPage(ValueIndex index, int pageIndex) {
+        P page = page(pageIndex << PAGE_SHIFT);
+        if (page != emptyPage()) {
+            for (int offset = 0; offset < PAGE_SIZE; offset++) {
+                if (page.isPresent(offset)) {
+                    index.add(read(page, offset), (pageIndex << PAGE_SHIFT) + offset);
+                }
+            }
+        }
+        boolean complete = pageIndex + 1 >= pageCount();
+        index.covered(pageIndex + 1, complete);
+        return complete;
+    }
+
+    protected void valueAdded(P page, int pageIndex, int offset) {
+    }
+
+    protected void valueRemoved(P page, int pageIndex, int offset) {
+    }
+
+    // Called after a snapshot block was read into pageIndex, which bypasses the write hooks
+    protected void pageLoaded(P page, int pageIndex) {
+    }
+
+    @SuppressWarnings("unchecked")
+    protected P page(int rowIndex) {
+        int pageIndex = rowIndex >>> PAGE_SHIFT;
+        return pageIndex < pages.length ? (P) pages[pageIndex] : emptyPage();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected P writablePage(int rowIndex) {
+        ensureSize(rowIndex + 1);
+        int pageIndex = rowIndex >>> PAGE_SHIFT;
+        if (pageIndex >= pages.length) {
+            int oldLength = pages.length;
+            pages = Arrays.copyOf(pages, Math.max(oldLength * 2, pageIndex + 1));
+            Arrays.fill(pages, oldLength, pages.length, emptyPage());
+            pagesShared = false;
+        }
+        boolean copyPage = pins.get() > 0 && pages[pageIndex] != emptyPage()
+                && pages[pageIndex].generation != generation.get();
+        if ((pages[pageIndex] == emptyPage() || copyPage) && pagesShared && pins.get() > 0) {
+            pages = pages.clone();
+            pagesShared = false;
+        }
+        if (pages[pageIndex] == emptyPage()) {
+            pages[pageIndex] = newPage();
+            pages[pageIndex].generation = generation.get();
+            allocatedPages++;
+        } else if (copyPage) {
+            P copy = copyPage((P) pages[pageIndex]);
+            copy.copyPresence(pages[pageIndex]);
+            copy.generation = generation.get();
+            pages[pageIndex] = copy;
+        }
+        return (P) pages[pageIndex];
+    }
+
+    // Read-only view of the rows as they are now, sharing this storage's pages; later writes copy a shared page
+    // before changing it. Callers hold the column's read lock, and release the version once done with it so
+    // writes stop copying. Reading and filtering it need no lock; value indexes are not available
+    @Override
+    public PagedColumnStorage<P> pin() {
+        PagedColumnStorage<P> pinned = emptyPinned();
+        pinned.pages = pages;
+        pagesShared = true;
+        pinned.size = size;
+        pinned.values = values;
+        pinned.origin = this;
+        pins.incrementAndGet();
+        generation.incrementAndGet();
+        return pinned;
+    }
+
+    protected boolean isPinned() {
+        return origin != null;
+    }
+
+    // True while a pinned version that has not been released shares this storage's pages
+    protected boolean isShared() {
+        return pins.get() > 0;
+    }
+
+    // Unpins the version and drops its rows, so the pages no other version holds can be collected
+    @Override
+    public void release() {
+        if (origin != null && !released) {
+            released = true;
+            pages = new Page[0];
+            size = 0;
+            values = 0;
+            origin.pins.decrementAndGet();
+        }
+    }
+
+    // Snapshot block: the logical size, an optional type-specific header, then every allocated page as
+    // its index, presence bitmap and typed values; unallocated pages are not written at all
+    @Override
+    @SuppressWarnings("unchecked")
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        writeHeader(out);
+        int allocated = 0;
+        for (Page page : pages) {
+            if (page != emptyPage()) {
+                allocated++;
+            }
+        }
+        out.writeInt(allocated);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + PRESENCE_WORDS * Long.BYTES + valueBytes());
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] == emptyPage()) {
+                continue;
+            }
+            buffer.clear();
+            buffer.putInt(i);
+            putLongs(buffer, pages[i].present);
+            writeValues((P) pages[i], buffer);
+            out.write(buffer.array(), 0, buffer.position());
+        }
+    }
+
+    @Override
+    public void readFrom(ByteBuffer in) {
+        int storedSize = in.getInt();
+        readHeader(in);
+        int allocated = in.getInt();
+        for (int i = 0; i < allocated; i++) {
+            int pageIndex = in.getInt();
+            P page = writablePage(pageIndex << PAGE_SHIFT);
+            page.readPresence(in);
+            readValues(page, in);
+            values += page.getCount();
+            pageLoaded(page, pageIndex);
+        }
+        ensureSize(storedSize);
+    }
+
+    // Columnar export of rows [fromRow, toRow), which must lie within one page: a validity bitmap with bit i
+    // (least significant first) set when row fromRow + i holds a value, and the rows' typed values. Multi-byte
+    // values follow the buffer's byte order; callers hold the column's read lock
+    public void writeValidity(int fromRow, int toRow, ByteBuffer out) {
+        Page page = page(fromRow);
+        putBits(out, page.present, offset(fromRow), toRow - fromRow);
+    }
+
+    public void writeColumnarValues(int fromRow, int toRow, ByteBuffer out) {
+        writeColumnarValues(page(fromRow), offset(fromRow), toRow - fromRow, out);
+    }
+
+    // Zone-map check for scans: false only when no row of the page can satisfy the filter. Callers hold the
+    // column's read lock unless this is a pinned version, as for filterPage
+    @SuppressWarnings("unchecked")
+    public boolean mayMatch(int pageIndex, ValueFilter filter) {
+        Page page = page(pageIndex << PAGE_SHIFT);
+        switch (filter.getOp()) {
+            case IS_NULL:
+                return page.getCount() < PAGE_SIZE;
+            case NOT_NULL:
+                return page.getCount() > 0;
+            default:
+                return page.getCount() > 0 && mayContain((P) page, pageIndex, filter);
+        }
+    }
+
+    // Sets bit i of matches, PAGE_SIZE / 64 words, when row i of the page satisfies the filter and clears it
+    // otherwise. IS_NULL also sets the bits of rows past the end of the column
+    @SuppressWarnings("unchecked")
+    public void filterPage(int pageIndex, ValueFilter filter, long[] matches) {
+        Page page = page(pageIndex << PAGE_SHIFT);
+        long[] present = page.present;
+        switch (filter.getOp()) {
+            case IS_NULL:
+                for (int word = 0; word < PRESENCE_WORDS; word++) {
+                    matches[word] = ~present[word];
+                }
+                return;
+            case NOT_NULL:
+                System.arraycopy(present, 0, matches, 0, PRESENCE_WORDS);
+                return;
+            default:
+                if (page.getCount() == 0) {
+                    Arrays.fill(matches, 0, PRESENCE_WORDS, 0L);
+                    return;
+                }
+                matchValues((P) page, filter, matches);
+                for (int word = 0; word < PRESENCE_WORDS; word++) {
+                    matches[word] &= present[word];
+                }
+        }
+    }
+
+    // Per-page bounds a storage keeps for pruning; without any, every page with values may match
+    protected boolean mayContain(P page, int pageIndex, ValueFilter filter) {
+        return true;
+    }
+
+    // Sets the bits of the rows whose stored value satisfies a comparison; bits of null rows are masked after
+    protected abstract void matchValues(P page, ValueFilter filter, long[] matches);
+
+    protected void writeHeader(DataOutputStream out) throws IOException {
+    }
+
+    protected void readHeader(ByteBuffer in) {
+    }
+
+    protected static void putLongs(ByteBuffer out, long[] values) {
+        out.asLongBuffer().put(values);
+        out.position(out.position() + values.length * Long.BYTES);
+    }
+
+    protected static void getLongs(ByteBuffer in, long[] values) {
+        in.asLongBuffer().get(values);
+        in.position(in.position() + values.length * Long.BYTES);
+    }
+
+    protected static void putInts(ByteBuffer out, int[] values) {
+        out.asIntBuffer().put(values);
+        out.position(out.position() + values.length * Integer.BYTES);
+    }
+
+    protected static void getInts(ByteBuffer in, int[] values) {
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+    }
+
+    // Packs bits [offset, offset + count) of a page bitmap into (count + 7) / 8 bytes
+    protected static void putBits(ByteBuffer out, long[] words, int offset, int count) {
+        int bytes = (count + 7) >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            int bit = offset + (i << 3);
+            int word = bit >>> 6;
+            int shift = bit & 63;
+            long value = words[word] >>> shift;
+            if (shift > 56 && word + 1 < words.length) {
+                value |= words[word + 1] << (64 - shift);
+            }
+            int remaining = count - (i << 3);
+            if (remaining < 8) {
+                value &= (1L << remaining) - 1;
+            }
+            out.put((byte) value);
+        }
+    }
+
+    protected static int offset(int rowIndex) {
+        return rowIndex & PAGE_MASK;
+    }
+
+    public abstract static class Page {
+        private final long[] present = new long[PRESENCE_WORDS];
+        private int count;
+        int generation;
+
+        public boolean isPresent(int offset) {
+            return (present[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        void readPresence(ByteBuffer in) {
+            getLongs(in, present);
+            count = 0;
+            for (long word : present) {
+                count += Long.bitCount(word);
+            }
+        }
+
+        void copyPresence(Page from) {
+            System.arraycopy(from.present, 0, present, 0, PRESENCE_WORDS);
+            count = from.count;
+        }
+
+        void markPresent(int offset) {
+            long bit = 1L << offset;
+            if ((present[offset >>> 6] & bit) == 0) {
+                present[offset >>> 6] |= bit;
+                count++;
+            }
+        }
+
+        void markNull(int offset) {
+            long bit = 1L << offset;
+            if ((present[offset >>> 6] & bit) != 0) {
+                present[offset >>> 6] &= ~bit;
+                count--;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package something.with.sheets.model.storage;
+
+import java.util.Arrays;
+
+// Rows holding one indexed value: an open-addressing set of row indexes with linear probing, so adding and
+// removing a row costs O(1) however many rows share the value
+final class RowSet {
+    private static final int FREE = -1;
+
+    private int[] slots;
+    private int size;
+
+    RowSet(int first, int second) {
+        slots = new int[8];
+        Arrays.fill(slots, FREE);
+        add(first);
+        add(second);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean add(int row) {
+        int mask = slots.length - 1;
+        for (int slot = hash(row) & mask; ; slot = (slot + 1) & mask) {
+            if (slots[slot] == row) {
+                return false;
+            }
+            if (slots[slot] == FREE) {
+                slots[slot] = row;
+                if (++size * 2 > slots.length) {
+                    resize(slots.length * 2);
+                }
+                return true;
+            }
+        }
+    }
+
+    // Shifts the rest of the probe run back over the removed slot, so lookups never need tombstones
+    boolean remove(int row) {
+        int mask = slots.length - 1;
+        int slot = hash(row) & mask;
+        while (slots[slot] != row) {
+            if (slots[slot] == FREE) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for (int next = (gap + 1) & mask; slots[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+        }
+        slots[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    int any() {
+        for (int row : slots) {
+            if (row != FREE) {
+                return row;
+            }
+        }
+        return FREE;
+    }
+
+    int copyTo(int[] rows, int at) {
+        for (int row : slots) {
+            if (row != FREE) {
+                rows[at++] = row;
+            }
+        }
+        return at;
+    }
+
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        Arrays.fill(slots, FREE);
+        size = 0;
+        for (int row : old) {
+            if (row != FREE) {
+                add(row);
+            }
+        }
+    }
+
+    private static int hash(int row) {
+        int h = row * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
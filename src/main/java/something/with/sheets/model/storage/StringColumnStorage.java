@@ -0,0 +1,291 @@
+package something.with.sheets.model.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StringColumnStorage extends PagedColumnStorage<StringColumnStorage.IdPage> {
+    private static final IdPage EMPTY = new IdPage();
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    // Dictionary encoding: each distinct string is stored once and rows hold its id. Entries are appended to
+    // chunks that never move, so a pinned version reads the ids below its size while writers keep appending.
+    // Pinned versions share idsByValue too, looking values up without the column lock, and ignore newer ids.
+    // An id no row holds any more goes on the free list and is handed to the next new value, but only while no
+    // version is pinned: a pinned version may still hold rows with the id and reads the same chunks
+    private Map<String, Integer> idsByValue = new ConcurrentHashMap<>();
+    private String[][] dictionary = new String[0][];
+    private int dictionarySize;
+    private long dictionaryBytes;
+    // Rows holding each dictionary id, so the number of distinct values in use is known without a scan
+    private int[] references = new int[16];
+    private long distinct;
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private final BitSet listedFree = new BitSet();
+
+    @Override
+    protected IdPage emptyPage() {
+        return EMPTY;
+    }
+
+    @Override
+    protected IdPage newPage() {
+        return new IdPage();
+    }
+
+    @Override
+    protected IdPage copyPage(IdPage page) {
+        IdPage copy = new IdPage();
+        System.arraycopy(page.ids, 0, copy.ids, 0, PAGE_SIZE);
+        return copy;
+    }
+
+    @Override
+    protected StringColumnStorage emptyPinned() {
+        StringColumnStorage pinned = new StringColumnStorage();
+        pinned.idsByValue = idsByValue;
+        pinned.dictionary = dictionary;
+        pinned.dictionarySize = dictionarySize;
+        return pinned;
+    }
+
+    public int getId(int rowIndex) {
+        return isNull(rowIndex) ? -1 : page(rowIndex).ids[offset(rowIndex)];
+    }
+
+    public String getString(int rowIndex) {
+        return isNull(rowIndex) ? null : lookupId(page(rowIndex).ids[offset(rowIndex)]);
+    }
+
+    public String lookupId(int id) {
+        return dictionary[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+    }
+
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    // Id of a value in this version's dictionary, -1 when no row of it can hold the value
+    private int idOf(String value) {
+        Integer id = idsByValue.get(value);
+        return id != null && id < dictionarySize ? id : -1;
+    }
+
+    private int addToDictionary(String value) {
+        while (freeCount > 0 && !isShared()) {
+            int id = freeIds[--freeCount];
+            listedFree.clear(id);
+            // A value written again after its last row was overwritten keeps its id and revives it
+            if (references[id] == 0) {
+                String old = lookupId(id);
+                idsByValue.remove(old);
+                dictionaryBytes -= dictionaryEntryBytes(old);
+                dictionary[id >>> CHUNK_SHIFT][id & CHUNK_MASK] = value;
+                dictionaryBytes += dictionaryEntryBytes(value);
+                return id;
+            }
+        }
+        int chunk = dictionarySize >>> CHUNK_SHIFT;
+        if (chunk == dictionary.length) {
+            dictionary = Arrays.copyOf(dictionary, Math.max(4, chunk * 2));
+        }
+        if (dictionary[chunk] == null) {
+            dictionary[chunk] = new String[CHUNK_MASK + 1];
+        }
+        dictionary[chunk][dictionarySize & CHUNK_MASK] = value;
+        dictionaryBytes += dictionaryEntryBytes(value);
+        return dictionarySize++;
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return super.estimatedBytes() + dictionaryBytes;
+    }
+
+    // The string itself plus its chunk slot and map entry
+    private static long dictionaryEntryBytes(String value) {
+        return 96 + value.length();
+    }
+
+    public void setString(int rowIndex, String value) {
+        set(rowIndex, value);
+    }
+
+    @Override
+    protected void valueAdded(IdPage page, int pageIndex, int offset) {
+        int id = page.ids[offset];
+        if (id >= references.length) {
+            references = Arrays.copyOf(references, Math.max(references.length * 2, id + 1));
+        }
+        if (references[id]++ == 0) {
+            distinct++;
+        }
+    }
+
+    @Override
+    protected void valueRemoved(IdPage page, int pageIndex, int offset) {
+        int id = page.ids[offset];
+        if (--references[id] == 0) {
+            distinct--;
+            freeId(id);
+        }
+    }
+
+    private void freeId(int id) {
+        if (listedFree.get(id)) {
+            return;
+        }
+        listedFree.set(id);
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    @Override
+    protected void pageLoaded(IdPage page, int pageIndex) {
+        for (int offset = 0; offset < PAGE_SIZE; offset++) {
+            if (page.isPresent(offset)) {
+                valueAdded(page, pageIndex, offset);
+            }
+        }
+    }
+
+    // Entries of a snapshot's dictionary that no loaded row holds are free from the start
+    @Override
+    public void readFrom(ByteBuffer in) {
+        super.readFrom(in);
+        for (int id = 0; id < dictionarySize; id++) {
+            if (id >= references.length || references[id] == 0) {
+                freeId(id);
+            }
+        }
+    }
+
+    @Override
+    public ColumnSummary summary() {
+        return new ColumnSummary(size(), valueCount(), null, null, null, distinct);
+    }
+
+    // A value missing from the dictionary is held by no row, which settles equality for every page at once.
+    // Pinned versions keep no reference counts, so for them only the dictionary decides
+    @Override
+    protected boolean mayContain(IdPage page, int pageIndex, ValueFilter filter) {
+        if (filter.getOp() != ValueFilter.Op.EQ) {
+            return true;
+        }
+        int id = idOf((String) filter.getOperand());
+        return id >= 0 && (isPinned() || references[id] > 0);
+    }
+
+    // Equality compares ids; ordering compares each distinct id's string once per page
+    @Override
+    protected void matchValues(IdPage page, ValueFilter filter, long[] matches) {
+        ValueFilter.Op op = filter.getOp();
+        if (op == ValueFilter.Op.EQ || op == ValueFilter.Op.NE) {
+            int id = idOf((String) filter.getOperand());
+            long flip = op == ValueFilter.Op.NE ? -1L : 0L;
+            for (int word = 0; word < matches.length; word++) {
+                long bits = 0;
+                int base = word << 6;
+                for (int bit = 0; bit < 64; bit++) {
+                    bits |= (page.ids[base + bit] == id ? 1L : 0L) << bit;
+                }
+                matches[word] = bits ^ flip;
+            }
+            return;
+        }
+        String operand = (String) filter.getOperand();
+        Map<Integer, Boolean> accepted = new HashMap<>();
+        for (int word = 0; word < matches.length; word++) {
+            long bits = 0;
+            int base = word << 6;
+            for (int bit = 0; bit < 64; bit++) {
+                if (page.isPresent(base + bit)) {
+                    int id = page.ids[base + bit];
+                    Boolean match = accepted.get(id);
+                    if (match == null) {
+                        match = filter.accepts(lookupId(id).compareTo(operand));
+                        accepted.put(id, match);
+                    }
+                    if (match) {
+                        bits |= 1L << bit;
+                    }
+                }
+            }
+            matches[word] = bits;
+        }
+    }
+
+    @Override
+    protected int valueBytes() {
+        return PAGE_SIZE * Integer.BYTES;
+    }
+
+    @Override
+    protected void writeValues(IdPage page, ByteBuffer out) {
+        putInts(out, page.ids);
+    }
+
+    @Override
+    protected void readValues(IdPage page, ByteBuffer in) {
+        getInts(in, page.ids);
+    }
+
+    // Dictionary ids; the id of a null row is meaningless
+    @Override
+    protected void writeColumnarValues(IdPage page, int offset, int count, ByteBuffer out) {
+        out.asIntBuffer().put(page.ids, offset, count);
+        out.position(out.position() + count * Integer.BYTES);
+    }
+
+    // The dictionary page precedes the row pages so ids resolve as soon as the block is read
+    @Override
+    protected void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(dictionarySize);
+        for (int id = 0; id < dictionarySize; id++) {
+            byte[] bytes = lookupId(id).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    protected void readHeader(ByteBuffer in) {
+        int count = in.getInt();
+        for (int id = 0; id < count; id++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            idsByValue.put(value, addToDictionary(value));
+        }
+    }
+
+    @Override
+    protected Object read(IdPage page, int offset) {
+        return lookupId(page.ids[offset]);
+    }
+
+    @Override
+    protected void write(IdPage page, int offset, Object value) {
+        String string = (String) value;
+        Integer id = idsByValue.get(string);
+        if (id == null) {
+            id = addToDictionary(string);
+            idsByValue.put(string, id);
+        }
+        page.ids[offset] = id;
+    }
+
+    static class IdPage extends Page {
+        private final int[] ids = new int[PAGE_SIZE];
+    }
+}
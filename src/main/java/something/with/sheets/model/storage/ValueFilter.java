@@ -0,0 +1,75 @@
+package something.with.sheets.model.storage;
+
+/*
+ * A comparison of a column's values with a constant, evaluated by the storages a page at a time. The operand
+ * is a Double for numeric columns, a Boolean for boolean columns and a String for string columns, which
+ * compare lexicographically; IS_NULL and NOT_NULL take none. Comparisons never match a null row.
+ *
+ * Numeric comparisons are also described as a range of accepted values, the form the int and double storages
+ * scan with and test their per-page min and max against: NE accepts everything outside the single-value range
+ * of the matching EQ.
+ */
+public final class ValueFilter {
+    public enum Op {
+        EQ, NE, LT, LE, GT, GE, IS_NULL, NOT_NULL
+    }
+
+    private final Op op;
+    private final Object operand;
+    final double low;
+    final double high;
+    final boolean lowInclusive;
+    final boolean highInclusive;
+
+    public ValueFilter(Op op, Object operand) {
+        this.op = op;
+        this.operand = operand;
+        double value = operand instanceof Number ? ((Number) operand).doubleValue() : Double.NaN;
+        this.low = op == Op.LT || op == Op.LE ? Double.NEGATIVE_INFINITY : value;
+        this.high = op == Op.GT || op == Op.GE ? Double.POSITIVE_INFINITY : value;
+        this.lowInclusive = op != Op.GT;
+        this.highInclusive = op != Op.LT;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public Object getOperand() {
+        return operand;
+    }
+
+    boolean isNegated() {
+        return op == Op.NE;
+    }
+
+    // The outcome for a value that compares to the operand as comparison does (as in compareTo)
+    boolean accepts(int comparison) {
+        switch (op) {
+            case EQ:
+                return comparison == 0;
+            case NE:
+                return comparison != 0;
+            case LT:
+                return comparison < 0;
+            case LE:
+                return comparison <= 0;
+            case GT:
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    boolean inRange(double value) {
+        return (value > low || lowInclusive && value == low) && (value < high || highInclusive && value == high);
+    }
+
+    // Zone-map test: whether a page whose values lie within [min, max] can hold a match
+    boolean mayMatch(double min, double max) {
+        if (isNegated()) {
+            return min != low || max != low;
+        }
+        return (max > low || lowInclusive && max == low) && (min < high || highInclusive && min == high);
+    }
+}
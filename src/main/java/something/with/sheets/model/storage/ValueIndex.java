@@ -0,0 +1,146 @@
+package something.with.sheets.model.storage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+ * Secondary index from a column's values to the rows holding them: a hash map for equality lookups or a
+ * sorted map that also answers ranges. A value held by one row maps to that row; a shared value maps to a
+ * RowSet. The storage keeps the index in step with every write to a page the index covers, which includes
+ * formula and lookup results since those are stored like any other value.
+ *
+ * An index added to a column that already has values starts out covering no pages. The builder adds the
+ * column's pages one at a time under the column's read lock (PagedColumnStorage.indexPage), so writers wait
+ * for at most one page, and writes to pages not yet covered are left for the builder to read. The index is
+ * ready once it covers every page. Everything here is guarded by the column's lock: mutations happen under
+ * the write lock or, while building, under the read lock with only the builder touching the index.
+ */
+public class ValueIndex {
+    public enum Kind {
+        HASH, SORTED
+    }
+
+    private final Kind kind;
+    private final Map<Object, Object> buckets;
+    private volatile int coveredPages;
+    private volatile boolean ready;
+    private volatile long entries;
+
+    public ValueIndex(Kind kind) {
+        this.kind = kind;
+        this.buckets = kind == Kind.SORTED ? new TreeMap<>() : new HashMap<>();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Rows indexed so far
+    public long size() {
+        return entries;
+    }
+
+    // A map entry and boxed key per value, or a RowSet slot pair per shared row; a rough upper bound
+    long estimatedBytes() {
+        return entries * 64 + 64;
+    }
+
+    boolean covers(int pageIndex) {
+        return pageIndex < coveredPages;
+    }
+
+    void covered(int pages, boolean complete) {
+        coveredPages = complete ? Integer.MAX_VALUE : pages;
+        ready = complete;
+    }
+
+    void add(Object value, int row) {
+        Object bucket = buckets.get(value);
+        if (bucket == null) {
+            buckets.put(value, row);
+        } else if (bucket instanceof Integer) {
+            if ((Integer) bucket == row) {
+                return;
+            }
+            buckets.put(value, new RowSet((Integer) bucket, row));
+        } else if (!((RowSet) bucket).add(row)) {
+            return;
+        }
+        entries++;
+    }
+
+    void remove(Object value, int row) {
+        Object bucket = buckets.get(value);
+        if (bucket instanceof Integer) {
+            if ((Integer) bucket != row) {
+                return;
+            }
+            buckets.remove(value);
+        } else if (bucket == null || !((RowSet) bucket).remove(row)) {
+            return;
+        } else if (((RowSet) bucket).size() == 1) {
+            buckets.put(value, ((RowSet) bucket).any());
+        }
+        entries--;
+    }
+
+    // Rows holding the value, in ascending order; callers hold the column's read lock
+    public int[] find(Object value) {
+        Object bucket = buckets.get(value);
+        if (bucket == null) {
+            return new int[0];
+        }
+        return sorted(new Object[] {bucket}, size(bucket));
+    }
+
+    // Rows holding a value in [from, to], either bound null when open, in ascending row order; SORTED only
+    public int[] range(Object from, Object to) {
+        if (kind != Kind.SORTED) {
+            throw new IllegalStateException("A range needs a sorted index");
+        }
+        NavigableMap<Object, Object> sorted = (NavigableMap<Object, Object>) buckets;
+        if (from != null && to != null && compare(from, to) > 0) {
+            return new int[0];
+        }
+        NavigableMap<Object, Object> selected = from == null && to == null ? sorted
+            : from == null ? sorted.headMap(to, true)
+            : to == null ? sorted.tailMap(from, true)
+            : sorted.subMap(from, true, to, true);
+        Object[] matching = selected.values().toArray();
+        int count = 0;
+        for (Object bucket : matching) {
+            count += size(bucket);
+        }
+        return sorted(matching, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static int size(Object bucket) {
+        return bucket instanceof Integer ? 1 : ((RowSet) bucket).size();
+    }
+
+    private static int[] sorted(Object[] matching, int count) {
+        int[] rows = new int[count];
+        int at = 0;
+        for (Object bucket : matching) {
+            if (bucket instanceof Integer) {
+                rows[at++] = (Integer) bucket;
+            } else {
+                at = ((RowSet) bucket).copyTo(rows, at);
+            }
+        }
+        Arrays.sort(rows);
+        return rows;
+    }
+}
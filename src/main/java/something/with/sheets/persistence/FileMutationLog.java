@@ -0,0 +1,331 @@
+package something.with.sheets.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only mutation log with group commit. Records are framed as [length][crc32][json] so a torn
+ * tail left by a crash is detected and cut off on replay. A single flusher thread writes everything
+ * queued since the last flush and forces it to disk with one fsync; it waits up to maxDelay after the
+ * first queued record so concurrent writers can share that fsync. Taking a snapshot rotates the log into
+ * numbered segments (path.1, path.2, ...) that are deleted once the snapshot is installed.
+ */
+public class FileMutationLog implements MutationLog, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FileMutationLog.class);
+    private static final int HEADER_BYTES = 8;
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final long maxDelayNanos;
+    private final int maxBatch;
+    private FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    private final Thread flusher;
+
+    public FileMutationLog(Path path, ObjectMapper objectMapper, long maxDelayMillis, int maxBatch) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxBatch = maxBatch;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = openActive();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open mutation log " + path, e);
+        }
+        this.flusher = new Thread(this::flushLoop, "mutation-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public long append(SheetMutation mutation) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(mutation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Mutation log is closed");
+            }
+            pending.add(record);
+            queued.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("Mutation log write failed", failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replays rotated segments oldest first, then the active log; only the active log can have a torn tail
+    @Override
+    public void replay(Consumer<SheetMutation> consumer) {
+        lock.lock();
+        try {
+            int replayed = 0;
+            for (Path segment : rotatedSegments()) {
+                try (FileChannel rotated = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    long[] result = replaySegment(rotated, consumer);
+                    replayed += (int) result[1];
+                }
+            }
+            long size = channel.size();
+            long[] result = replaySegment(channel, consumer);
+            long position = result[0];
+            replayed += (int) result[1];
+            if (position < size) {
+                log.warn("Truncating {} bytes of incomplete records at the end of {}", size - position, path);
+                channel.truncate(position);
+            }
+            channel.position(position);
+            log.info("Replayed {} mutations from {}", replayed, path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay mutation log " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the end of the last intact record and the number of records replayed
+    private long[] replaySegment(FileChannel segment, Consumer<SheetMutation> consumer) throws IOException {
+        long position = 0;
+        long size = segment.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long replayed = 0;
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(segment, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(segment, payload, position + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            consumer.accept(objectMapper.readValue(payload.array(), SheetMutation.class));
+            position += HEADER_BYTES + length;
+            replayed++;
+        }
+        return new long[] {position, replayed};
+    }
+
+    // Seals the active log as the next numbered segment and starts an empty one. Everything appended before
+    // the rotation is in a rotated segment, so a snapshot taken afterwards covers all of them
+    @Override
+    public void rotate() {
+        lock.lock();
+        try {
+            while (!pending.isEmpty() || durableSequence < appendedSequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("Mutation log write failed", failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+            if (channel.size() == 0) {
+                return;
+            }
+            List<Path> rotated = rotatedSegments();
+            int next = rotated.isEmpty() ? 1 : segmentNumber(rotated.get(rotated.size() - 1)) + 1;
+            channel.close();
+            Files.move(path, segmentPath(next), StandardCopyOption.ATOMIC_MOVE);
+            channel = openActive();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot rotate mutation log " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deletes the segments sealed by earlier rotations once a snapshot covering them is durable
+    @Override
+    public void discardRotated() {
+        lock.lock();
+        try {
+            for (Path segment : rotatedSegments()) {
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete rotated mutation log segments of " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Path> rotatedSegments() throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        String prefix = path.getFileName() + ".";
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path entry : entries) {
+                if (entry.getFileName().toString().substring(prefix.length()).matches("\\d+")) {
+                    segments.add(entry);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(this::segmentNumber));
+        return segments;
+    }
+
+    private int segmentNumber(Path segment) {
+        return Integer.parseInt(segment.getFileName().toString().substring(path.getFileName().toString().length() + 1));
+    }
+
+    private Path segmentPath(int number) {
+        return path.resolveSibling(path.getFileName() + "." + number);
+    }
+
+    private FileChannel openActive() throws IOException {
+        FileChannel active = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active.position(active.size());
+        return active;
+    }
+
+    private static void readFully(FileChannel segment, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (segment.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of mutation log");
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchSequence;
+            FileChannel target;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    queued.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (!closed && pending.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        queued.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchSequence = appendedSequence;
+                target = channel;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= target.write(buffers);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                log.error("Mutation log write failed", e);
+                error = e;
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = batchSequence;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to close mutation log {}", path, e);
+        }
+    }
+}
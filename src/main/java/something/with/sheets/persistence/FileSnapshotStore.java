@@ -0,0 +1,230 @@
+package something.with.sheets.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import something.with.sheets.formula.FormulaCompiler;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.model.SheetVersion;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/*
+ * Columnar snapshot of every sheet in one file. Sheet blocks (see SheetCodec) are written back to back,
+ * followed by a directory of (id, offset, length) entries and a fixed-size footer pointing at it. Opening
+ * a snapshot reads only the footer and the directory; a sheet's block is memory-mapped and decoded the
+ * first time the sheet is loaded, so restart time depends on the number of sheets rather than their size.
+ * A new snapshot is written to a temporary file and renamed over the old one, so a crash mid-write leaves
+ * the previous snapshot intact.
+ */
+public class FileSnapshotStore implements SnapshotStore, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FileSnapshotStore.class);
+    private static final int MAGIC = 0x53485331;
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final FormulaCompiler formulaCompiler = new FormulaCompiler();
+    // Guards the channel; a ReentrantLock rather than a monitor so a virtual thread waiting on it is unmounted
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    // Replaced as a whole when a new snapshot is installed, never modified in place
+    private volatile Map<String, long[]> directory = Map.of();
+
+    public FileSnapshotStore(Path path) {
+        this.path = path;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.deleteIfExists(temporaryPath());
+            if (Files.exists(path)) {
+                open();
+                log.info("Opened snapshot {} with {} sheets", path, directory.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open snapshot " + path, e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public Set<String> sheetIds() {
+        return Collections.unmodifiableSet(directory.keySet());
+    }
+
+    @Override
+    public Sheet load(String sheetId) {
+        MappedByteBuffer block;
+        lock.lock();
+        try {
+            long[] entry = directory.get(sheetId);
+            if (entry == null) {
+                return null;
+            }
+            block = channel.map(FileChannel.MapMode.READ_ONLY, entry[0], entry[1]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read sheet " + sheetId + " from snapshot " + path, e);
+        } finally {
+            lock.unlock();
+        }
+        return SheetCodec.read(sheetId, block, formulaCompiler);
+    }
+
+    @Override
+    public void write(Collection<String> sheetIds, Function<String, Sheet> loadedSheets) {
+        Path temporary = temporaryPath();
+        Map<String, long[]> written = new HashMap<>();
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16));
+            for (String sheetId : sheetIds) {
+                long start = out.position();
+                Sheet sheet = loadedSheets.apply(sheetId);
+                if (sheet != null) {
+                    // Pinned rather than locked, so writes to the sheet carry on while its block is written out
+                    try (SheetVersion pinned = sheet.pinWithFormulas()) {
+                        SheetCodec.write(sheet, pinned, stream);
+                        stream.flush();
+                    }
+                } else if (!copyBlock(sheetId, out)) {
+                    continue;
+                }
+                written.put(sheetId, new long[] {start, out.position() - start});
+            }
+            long directoryOffset = out.position();
+            stream.writeInt(written.size());
+            for (Map.Entry<String, long[]> entry : written.entrySet()) {
+                byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                stream.writeInt(id.length);
+                stream.write(id);
+                stream.writeLong(entry.getValue()[0]);
+                stream.writeLong(entry.getValue()[1]);
+            }
+            stream.flush();
+            int directoryLength = (int) (out.position() - directoryOffset);
+            stream.writeLong(directoryOffset);
+            stream.writeInt(directoryLength);
+            stream.writeInt(MAGIC);
+            stream.flush();
+            out.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + temporary, e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+            lock.lock();
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+                open();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot install snapshot " + path, e);
+        }
+        log.info("Wrote snapshot {} with {} sheets", path, written.size());
+    }
+
+    // Carries a block that was never decoded over from the current snapshot byte for byte
+    private boolean copyBlock(String sheetId, FileChannel out) throws IOException {
+        lock.lock();
+        try {
+            long[] entry = directory.get(sheetId);
+            if (entry == null) {
+                return false;
+            }
+            long copied = 0;
+            while (copied < entry[1]) {
+                copied += channel.transferTo(entry[0] + copied, entry[1] - copied, out);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < FOOTER_BYTES) {
+            throw new IOException("Snapshot " + path + " is too short");
+        }
+        ByteBuffer footer = read(size - FOOTER_BYTES, FOOTER_BYTES);
+        long directoryOffset = footer.getLong();
+        int directoryLength = footer.getInt();
+        if (footer.getInt() != MAGIC) {
+            throw new IOException("Snapshot " + path + " has an invalid footer");
+        }
+        ByteBuffer entries = read(directoryOffset, directoryLength);
+        int count = entries.getInt();
+        Map<String, long[]> loaded = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte[] id = new byte[entries.getInt()];
+            entries.get(id);
+            loaded.put(new String(id, StandardCharsets.UTF_8), new long[] {entries.getLong(), entries.getLong()});
+        }
+        directory = loaded;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot " + path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    // Makes the rename itself durable before the caller drops the log it replaces
+    private void syncDirectory() {
+        Path parent = path.toAbsolutePath().getParent();
+        try (FileChannel dir = FileChannel.open(parent, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot sync directory {}", parent, e);
+        }
+    }
+
+    private Path temporaryPath() {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close snapshot {}", path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
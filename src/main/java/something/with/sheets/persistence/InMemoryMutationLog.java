@@ -0,0 +1,27 @@
+package something.with.sheets.persistence;
+
+import java.util.function.Consumer;
+
+// Used when persistence is disabled: nothing is recorded and nothing is replayed
+public class InMemoryMutationLog implements MutationLog {
+    @Override
+    public long append(SheetMutation mutation) {
+        return 0;
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+    }
+
+    @Override
+    public void replay(Consumer<SheetMutation> consumer) {
+    }
+
+    @Override
+    public void rotate() {
+    }
+
+    @Override
+    public void discardRotated() {
+    }
+}
@@ -0,0 +1,269 @@
+package something.with.sheets.persistence;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import something.with.sheets.formula.FormulaCompiler;
+import something.with.sheets.model.CellFormula;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.ColumnType;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.model.storage.ColumnStorage;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/*
+ * Relational store of record. Cells are rows of (sheet, column, row, value, formula), where value is the
+ * resolved value and formula the formula text if the cell has one. A save writes only the cells changed
+ * since the previous save, as JDBC batches of upserts and deletes in one transaction. Loading a sheet reads
+ * its columns and formulas; a column's values are read the first time the column is accessed, whether or not
+ * formulas connect it to other columns.
+ */
+public class JdbcSheetStore implements SheetStore {
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS sheet (id VARCHAR(64) NOT NULL PRIMARY KEY, version BIGINT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS sheet_column (sheet_id VARCHAR(64) NOT NULL, name VARCHAR(255) NOT NULL, "
+            + "type VARCHAR(16) NOT NULL, row_count INT NOT NULL, PRIMARY KEY (sheet_id, name))",
+        "CREATE TABLE IF NOT EXISTS sheet_cell (sheet_id VARCHAR(64) NOT NULL, column_name VARCHAR(255) NOT NULL, "
+            + "row_index INT NOT NULL, cell_value TEXT, formula TEXT, PRIMARY KEY (sheet_id, column_name, row_index))"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String upsertCellSql;
+    private final FormulaCompiler formulaCompiler = new FormulaCompiler();
+    // Sheets that have a row in the sheet table; any other sheet is written in full on its first save
+    private final Set<String> persisted = ConcurrentHashMap.newKeySet();
+    // Saves of one sheet are serialized so deltas reach the database in the order they were drained. These are
+    // held across JDBC calls, so they are ReentrantLocks: a virtual thread blocked on a monitor pins its carrier
+    private final Map<String, ReentrantLock> saveLocks = new ConcurrentHashMap<>();
+
+    public JdbcSheetStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+        this.upsertCellSql = upsertCellSql(jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    private static String upsertCellSql(String databaseProduct) {
+        if (databaseProduct.equals("H2")) {
+            return "MERGE INTO sheet_cell (sheet_id, column_name, row_index, cell_value, formula) "
+                + "KEY (sheet_id, column_name, row_index) VALUES (?, ?, ?, ?, ?)";
+        }
+        if (databaseProduct.equals("MySQL") || databaseProduct.equals("MariaDB")) {
+            return "INSERT INTO sheet_cell (sheet_id, column_name, row_index, cell_value, formula) VALUES (?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE cell_value = VALUES(cell_value), formula = VALUES(formula)";
+        }
+        throw new IllegalStateException("Unsupported database for the jdbc sheet store: " + databaseProduct);
+    }
+
+    @Override
+    public Sheet load(String sheetId) {
+        List<Long> versions = jdbcTemplate.query("SELECT version FROM sheet WHERE id = ?",
+            (rs, i) -> rs.getLong(1), sheetId);
+        if (versions.isEmpty()) {
+            return null;
+        }
+        List<Column> columns = jdbcTemplate.query("SELECT name, type, row_count FROM sheet_column WHERE sheet_id = ?",
+            (rs, i) -> {
+                Column column = new Column(rs.getString(1), rs.getString(2));
+                int rowCount = rs.getInt(3);
+                column.setLoader(storage -> loadValues(sheetId, column, rowCount, storage));
+                return column;
+            }, sheetId);
+        Sheet sheet = new Sheet(sheetId, columns);
+        // Attached once the result set is closed, so nothing attaching does can run a query on the same connection
+        List<Object[]> formulas = jdbcTemplate.query(
+            "SELECT column_name, row_index, formula FROM sheet_cell WHERE sheet_id = ? AND formula IS NOT NULL",
+            (rs, i) -> new Object[] {rs.getString(1), rs.getInt(2), rs.getString(3)}, sheetId);
+        for (Object[] row : formulas) {
+            CellFormula formula = CellFormula.bind(formulaCompiler.compile((String) row[2]), sheet.getColumns());
+            sheet.getColumns().get((String) row[0]).restoreFormula((Integer) row[1], formula);
+        }
+        sheet.setVersion(versions.get(0));
+        sheet.enableChangeTracking();
+        persisted.add(sheetId);
+        return sheet;
+    }
+
+    private void loadValues(String sheetId, Column column, int rowCount, ColumnStorage storage) {
+        ColumnType type = column.getColumnType();
+        jdbcTemplate.query("SELECT row_index, cell_value FROM sheet_cell "
+                + "WHERE sheet_id = ? AND column_name = ? AND cell_value IS NOT NULL",
+            rs -> {
+                storage.set(rs.getInt(1), type.parse(rs.getString(2)));
+            }, sheetId, column.getName());
+        storage.ensureSize(rowCount);
+    }
+
+    @Override
+    public void save(Sheet sheet) {
+        ReentrantLock saveLock = saveLocks.computeIfAbsent(sheet.getId(), id -> new ReentrantLock());
+        saveLock.lock();
+        try {
+            boolean created = !persisted.contains(sheet.getId());
+            // A new sheet is captured whole under its exclusive lock, since change tracking starts with it; later
+            // saves hold that lock only to drain the dirty rows, and the JDBC work runs with no lock held
+            Delta delta = created ? sheet.writeLinked(() -> Delta.capture(sheet)) : Delta.captureDirty(sheet);
+            if (!created && delta.upserts.isEmpty() && delta.deletes.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(delta));
+            } catch (RuntimeException e) {
+                if (!created) {
+                    delta.drained.forEach((column, rows) -> {
+                        long stamp = column.getLock().writeLock();
+                        try {
+                            column.markDirty(rows);
+                        } finally {
+                            column.getLock().unlockWrite(stamp);
+                        }
+                    });
+                }
+                throw e;
+            }
+            persisted.add(sheet.getId());
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private void write(Delta delta) {
+        if (delta.created) {
+            jdbcTemplate.update("INSERT INTO sheet (id, version) VALUES (?, ?)", delta.sheetId, delta.version);
+            List<Object[]> columns = new ArrayList<>();
+            for (Object[] rowCount : delta.rowCounts) {
+                columns.add(new Object[] {delta.sheetId, rowCount[2], delta.types.get((String) rowCount[2]), rowCount[0]});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO sheet_column (sheet_id, name, type, row_count) VALUES (?, ?, ?, ?)", columns);
+        } else {
+            jdbcTemplate.update("UPDATE sheet SET version = ? WHERE id = ?", delta.version, delta.sheetId);
+            jdbcTemplate.batchUpdate("UPDATE sheet_column SET row_count = ? WHERE sheet_id = ? AND name = ?", delta.rowCounts);
+        }
+        if (!delta.upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(upsertCellSql, delta.upserts);
+        }
+        if (!delta.deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM sheet_cell WHERE sheet_id = ? AND column_name = ? AND row_index = ?", delta.deletes);
+        }
+    }
+
+    // Statement parameters for one save, copied out of the sheet under its locks
+    private static class Delta {
+        final String sheetId;
+        final boolean created;
+        long version;
+        final Map<String, String> types = new LinkedHashMap<>();
+        final Map<Column, BitSet> drained = new LinkedHashMap<>();
+        final List<Object[]> rowCounts = new ArrayList<>();
+        final List<Object[]> upserts = new ArrayList<>();
+        final List<Object[]> deletes = new ArrayList<>();
+
+        Delta(String sheetId, boolean created) {
+            this.sheetId = sheetId;
+            this.created = created;
+        }
+
+        // Every column of a sheet not stored yet; callers hold the sheet's exclusive lock
+        static Delta capture(Sheet sheet) {
+            Delta delta = new Delta(sheet.getId(), true);
+            delta.version = sheet.getVersion();
+            for (Column column : sheet.getColumns().values()) {
+                delta.types.put(column.getName(), column.getType());
+                delta.rowCounts.add(new Object[] {column.size(), sheet.getId(), column.getName()});
+                delta.addCells(column.getName(), writtenRows(column), column.getStorage(), formulaText(column));
+            }
+            sheet.enableChangeTracking();
+            return delta;
+        }
+
+        // The rows written since the last save. Every column is drained under the sheet's exclusive lock, so a
+        // write that spans columns lands wholly in this delta or wholly in the next; the lock is held only to swap
+        // the dirty row sets, pin the dirty columns and copy their formula texts, and the values are read from the
+        // pinned storages once it is released. Columns without dirty rows are skipped whole, so a column still
+        // waiting for its loader stays unloaded
+        static Delta captureDirty(Sheet sheet) {
+            Delta delta = new Delta(sheet.getId(), false);
+            Map<Column, ColumnStorage> pinned = new LinkedHashMap<>();
+            Map<Column, Map<Integer, String>> formulas = new HashMap<>();
+            sheet.writeLinked(() -> {
+                delta.version = sheet.getVersion();
+                for (Column column : sheet.getColumns().values()) {
+                    BitSet rows = column.drainDirtyRows();
+                    if (rows.isEmpty()) {
+                        continue;
+                    }
+                    delta.drained.put(column, rows);
+                    delta.rowCounts.add(new Object[] {column.size(), sheet.getId(), column.getName()});
+                    pinned.put(column, column.getStorage().pin());
+                    Map<Integer, String> texts = new HashMap<>();
+                    IntFunction<String> text = formulaText(column);
+                    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                        String formula = text.apply(row);
+                        if (formula != null) {
+                            texts.put(row, formula);
+                        }
+                    }
+                    formulas.put(column, texts);
+                }
+                return null;
+            });
+            try {
+                delta.drained.forEach((column, rows) ->
+                    delta.addCells(column.getName(), rows, pinned.get(column), formulas.get(column)::get));
+            } finally {
+                pinned.values().forEach(ColumnStorage::release);
+            }
+            return delta;
+        }
+
+        private void addCells(String columnName, BitSet rows, ColumnStorage storage, IntFunction<String> formulas) {
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                Object value = storage.get(row);
+                String formula = formulas.apply(row);
+                if (value == null && formula == null) {
+                    deletes.add(new Object[] {sheetId, columnName, row});
+                } else {
+                    upserts.add(new Object[] {sheetId, columnName, row,
+                        value == null ? null : String.valueOf(value), formula});
+                }
+            }
+        }
+
+        private static IntFunction<String> formulaText(Column column) {
+            return row -> {
+                CellFormula formula = column.getFormula(row);
+                return formula == null ? null : formula.getCompiled().getText();
+            };
+        }
+
+        private static BitSet writtenRows(Column column) {
+            BitSet rows = new BitSet();
+            ColumnStorage storage = column.getStorage();
+            for (int row = 0; row < storage.size(); row++) {
+                if (!storage.isNull(row)) {
+                    rows.set(row);
+                }
+            }
+            for (Integer row : column.getFormulaRows(0, Integer.MAX_VALUE)) {
+                rows.set(row);
+            }
+            return rows;
+        }
+    }
+}
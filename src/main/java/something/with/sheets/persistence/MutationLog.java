@@ -0,0 +1,18 @@
+package something.with.sheets.persistence;
+
+import java.util.function.Consumer;
+
+public interface MutationLog {
+    // Queues the mutation and returns its sequence number; callers append while holding the lock that
+    // orders the mutation, then wait for durability after releasing it
+    long append(SheetMutation mutation);
+
+    void awaitDurable(long sequence);
+
+    void replay(Consumer<SheetMutation> consumer);
+
+    // Seals everything appended so far so it can be dropped once a snapshot covers it
+    void rotate();
+
+    void discardRotated();
+}
@@ -0,0 +1,15 @@
+package something.with.sheets.persistence;
+
+import something.with.sheets.model.Sheet;
+
+// Used when sheets live on the heap, optionally backed by the mutation log
+public class NoSheetStore implements SheetStore {
+    @Override
+    public Sheet load(String sheetId) {
+        return null;
+    }
+
+    @Override
+    public void save(Sheet sheet) {
+    }
+}
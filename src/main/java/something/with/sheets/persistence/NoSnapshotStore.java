@@ -0,0 +1,24 @@
+package something.with.sheets.persistence;
+
+import something.with.sheets.model.Sheet;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+// Used when persistence is disabled: there is never a snapshot to load
+public class NoSnapshotStore implements SnapshotStore {
+    @Override
+    public Set<String> sheetIds() {
+        return Set.of();
+    }
+
+    @Override
+    public Sheet load(String sheetId) {
+        return null;
+    }
+
+    @Override
+    public void write(Collection<String> sheetIds, Function<String, Sheet> loadedSheets) {
+    }
+}
@@ -0,0 +1,106 @@
+package something.with.sheets.persistence;
+
+import something.with.sheets.formula.CompiledFormula;
+import something.with.sheets.formula.FormulaCompiler;
+import something.with.sheets.model.CellFormula;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.model.SheetVersion;
+import something.with.sheets.model.storage.ColumnStorage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/*
+ * Binary layout of one sheet: its version, one typed block per column (see PagedColumnStorage.writeTo),
+ * then the formula section as (column, row, text) triples. Formula results are part of the column blocks,
+ * so loading only re-attaches the edges and never re-evaluates anything.
+ */
+final class SheetCodec {
+    private SheetCodec() {
+    }
+
+    // Callers hold the sheet's exclusive lock so the blocks and the version describe the same state
+    static void write(Sheet sheet, DataOutputStream out) throws IOException {
+        write(sheet, sheet.getVersion(), Column::getStorage, SheetCodec::formulaTexts, out);
+    }
+
+    // Writes a version pinned with Sheet.pinWithFormulas, so no lock is held while the bytes go out
+    static void write(Sheet sheet, SheetVersion pinned, DataOutputStream out) throws IOException {
+        write(sheet, pinned.getVersion(), pinned::storage, pinned::formulas, out);
+    }
+
+    private static void write(Sheet sheet, long version, Function<Column, ColumnStorage> storages,
+                              Function<Column, Map<Integer, String>> formulas, DataOutputStream out) throws IOException {
+        out.writeLong(version);
+        out.writeInt(sheet.getColumns().size());
+        for (Column column : sheet.getColumns().values()) {
+            writeString(out, column.getName());
+            writeString(out, column.getType());
+            storages.apply(column).writeTo(out);
+        }
+        List<Map<Integer, String>> texts = new ArrayList<>();
+        int formulaCount = 0;
+        for (Column column : sheet.getColumns().values()) {
+            texts.add(formulas.apply(column));
+            formulaCount += texts.get(texts.size() - 1).size();
+        }
+        out.writeInt(formulaCount);
+        int index = 0;
+        for (Column column : sheet.getColumns().values()) {
+            for (Map.Entry<Integer, String> formula : texts.get(index++).entrySet()) {
+                writeString(out, column.getName());
+                out.writeInt(formula.getKey());
+                writeString(out, formula.getValue());
+            }
+        }
+    }
+
+    private static Map<Integer, String> formulaTexts(Column column) {
+        Map<Integer, String> texts = new TreeMap<>();
+        for (Integer row : column.getFormulaRows(0, Integer.MAX_VALUE)) {
+            texts.put(row, column.getFormula(row).getCompiled().getText());
+        }
+        return texts;
+    }
+
+    static Sheet read(String id, ByteBuffer in, FormulaCompiler formulaCompiler) {
+        long version = in.getLong();
+        int columnCount = in.getInt();
+        List<Column> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            Column column = new Column(readString(in), readString(in));
+            column.getStorage().readFrom(in);
+            columns.add(column);
+        }
+        Sheet sheet = new Sheet(id, columns);
+        int formulaCount = in.getInt();
+        for (int i = 0; i < formulaCount; i++) {
+            Column column = sheet.getColumns().get(readString(in));
+            int row = in.getInt();
+            CompiledFormula compiled = formulaCompiler.compile(readString(in));
+            column.restoreFormula(row, CellFormula.bind(compiled, sheet.getColumns()));
+        }
+        sheet.setVersion(version);
+        return sheet;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
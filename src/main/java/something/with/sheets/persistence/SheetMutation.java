@@ -0,0 +1,77 @@
+package something.with.sheets.persistence;
+
+import something.with.sheets.dto.ColumnDto;
+import something.with.sheets.dto.SetCellValueRequest;
+
+import java.util.List;
+
+// One accepted change to the sheet store, as recorded in the mutation log
+public class SheetMutation {
+    public enum Type {
+        CREATE_SHEET,
+        SET_CELLS
+    }
+
+    private Type type;
+    private String sheetId;
+    private List<ColumnDto> columns;
+    private List<SetCellValueRequest> cells;
+    // Sheet version after the mutation; absent in records written before versions existed
+    private Long version;
+
+    public static SheetMutation createSheet(String sheetId, List<ColumnDto> columns) {
+        SheetMutation mutation = new SheetMutation();
+        mutation.type = Type.CREATE_SHEET;
+        mutation.sheetId = sheetId;
+        mutation.columns = columns;
+        return mutation;
+    }
+
+    public static SheetMutation setCells(String sheetId, List<SetCellValueRequest> cells) {
+        SheetMutation mutation = new SheetMutation();
+        mutation.type = Type.SET_CELLS;
+        mutation.sheetId = sheetId;
+        mutation.cells = cells;
+        return mutation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getSheetId() {
+        return sheetId;
+    }
+
+    public void setSheetId(String sheetId) {
+        this.sheetId = sheetId;
+    }
+
+    public List<ColumnDto> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<ColumnDto> columns) {
+        this.columns = columns;
+    }
+
+    public List<SetCellValueRequest> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<SetCellValueRequest> cells) {
+        this.cells = cells;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,87 @@
+package something.with.sheets.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import something.with.sheets.formula.FormulaCompiler;
+import something.with.sheets.model.Sheet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+
+/*
+ * Local disk tier for sheets evicted from the repository cache, one file per sheet in the snapshot block
+ * format. Spilled files only extend the heap, they are not durable state: the directory is emptied on
+ * startup and a file is deleted once its sheet is read back.
+ */
+public class SheetSpillStore {
+    private static final Logger log = LoggerFactory.getLogger(SheetSpillStore.class);
+
+    private final Path directory;
+    private final FormulaCompiler formulaCompiler = new FormulaCompiler();
+
+    public SheetSpillStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.sheet")) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare spill directory " + directory, e);
+        }
+    }
+
+    // Callers hold the sheet's exclusive lock
+    public void write(Sheet sheet) {
+        Path file = fileFor(sheet.getId());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            SheetCodec.write(sheet, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill sheet " + sheet.getId(), e);
+        }
+    }
+
+    // Returns null when the sheet is not spilled; take removes the file once the sheet is decoded
+    public Sheet read(String sheetId, boolean take) {
+        Path file = fileFor(sheetId);
+        Sheet sheet;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            sheet = SheetCodec.read(sheetId, block, formulaCompiler);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spilled sheet " + sheetId, e);
+        }
+        if (take) {
+            delete(sheetId);
+        }
+        return sheet;
+    }
+
+    public void delete(String sheetId) {
+        try {
+            Files.deleteIfExists(fileFor(sheetId));
+        } catch (IOException e) {
+            log.warn("Cannot delete spilled sheet {}", sheetId, e);
+        }
+    }
+
+    private Path fileFor(String sheetId) {
+        return directory.resolve(Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(sheetId.getBytes(StandardCharsets.UTF_8)) + ".sheet");
+    }
+}
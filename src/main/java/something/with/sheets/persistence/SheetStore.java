@@ -0,0 +1,12 @@
+package something.with.sheets.persistence;
+
+import something.with.sheets.model.Sheet;
+
+// Store of record that sheets are saved to after every accepted write
+public interface SheetStore {
+    // Returns null when the store has no such sheet
+    Sheet load(String sheetId);
+
+    // Persists whatever changed since the sheet was last saved or loaded
+    void save(Sheet sheet);
+}
@@ -0,0 +1,18 @@
+package something.with.sheets.persistence;
+
+import something.with.sheets.model.Sheet;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+public interface SnapshotStore {
+    // Sheets in the latest snapshot; they are only decoded when loaded
+    Set<String> sheetIds();
+
+    Sheet load(String sheetId);
+
+    // Writes a new snapshot of the given sheets. loadedSheets returns the in-memory sheet, or null for a
+    // sheet that was never loaded, whose block is then carried over from the previous snapshot unchanged
+    void write(Collection<String> sheetIds, Function<String, Sheet> loadedSheets);
+}
@@ -0,0 +1,249 @@
+package something.with.sheets.query;
+
+import something.with.sheets.model.Column;
+import something.with.sheets.model.ColumnType;
+import something.with.sheets.model.SheetVersion;
+import something.with.sheets.model.storage.PagedColumnStorage;
+import something.with.sheets.model.storage.ValueFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Recursive-descent parser for query filters, bound to a pinned version of a sheet's columns as it parses:
+ *   or         := and ('or' and)*
+ *   and        := unary ('and' unary)*
+ *   unary      := 'not' unary | '(' or ')' | comparison
+ *   comparison := column ('=' | '!=' | '<>' | '<' | '<=' | '>' | '>=') literal | column 'is' ['not'] 'null'
+ *   literal    := number | 'text' | "text" | true | false
+ * Keywords are case-insensitive. A column is a name, or quoted when it is not a plain identifier; on the right
+ * of a comparison quotes make a string. Numeric columns compare with numbers, string columns with strings
+ * (lexicographically) and boolean columns with true or false, by = and != only.
+ */
+public class PredicateParser {
+    private final String text;
+    private final Map<String, Column> columns;
+    private final SheetVersion version;
+    private int pos;
+
+    private PredicateParser(String text, Map<String, Column> columns, SheetVersion version) {
+        this.text = text;
+        this.columns = columns;
+        this.version = version;
+    }
+
+    // A blank filter matches every row; comparisons read the columns as pinned in version
+    public static RowPredicate parse(String text, Map<String, Column> columns, SheetVersion version) {
+        if (text == null || text.isBlank()) {
+            return new Predicates.All();
+        }
+        PredicateParser parser = new PredicateParser(text, columns, version);
+        RowPredicate predicate = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("unexpected '" + text.charAt(parser.pos) + "'");
+        }
+        return predicate;
+    }
+
+    private RowPredicate parseOr() {
+        List<RowPredicate> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (acceptKeyword("or")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Predicates.Or(operands);
+    }
+
+    private RowPredicate parseAnd() {
+        List<RowPredicate> operands = new ArrayList<>();
+        operands.add(parseUnary());
+        while (acceptKeyword("and")) {
+            operands.add(parseUnary());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Predicates.And(operands);
+    }
+
+    private RowPredicate parseUnary() {
+        if (acceptKeyword("not")) {
+            return new Predicates.Not(parseUnary());
+        }
+        if (accept("(")) {
+            RowPredicate inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private RowPredicate parseComparison() {
+        String name = parseColumnName();
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Column not found: " + name);
+        }
+        PagedColumnStorage<?> storage = (PagedColumnStorage<?>) version.storage(column);
+        if (acceptKeyword("is")) {
+            boolean not = acceptKeyword("not");
+            if (!acceptKeyword("null")) {
+                throw error("expected 'null'");
+            }
+            return new Predicates.Compare(storage, new ValueFilter(not ? ValueFilter.Op.NOT_NULL : ValueFilter.Op.IS_NULL, null));
+        }
+        ValueFilter.Op op = parseOperator();
+        Object literal = parseLiteral();
+        return new Predicates.Compare(storage, new ValueFilter(op, operand(column, op, literal)));
+    }
+
+    private static Object operand(Column column, ValueFilter.Op op, Object literal) {
+        ColumnType type = column.getColumnType();
+        boolean matches;
+        switch (type) {
+            case INT:
+            case DOUBLE:
+                matches = literal instanceof Double;
+                break;
+            case BOOLEAN:
+                if (literal instanceof Boolean && op != ValueFilter.Op.EQ && op != ValueFilter.Op.NE) {
+                    throw new IllegalArgumentException("Boolean column " + column.getName() + " only supports = and !=");
+                }
+                matches = literal instanceof Boolean;
+                break;
+            default:
+                matches = literal instanceof String;
+        }
+        if (!matches) {
+            throw new IllegalArgumentException("Cannot compare " + type.getName() + " column " + column.getName()
+                + " with " + (literal instanceof String ? "'" + literal + "'" : literal));
+        }
+        return literal;
+    }
+
+    private ValueFilter.Op parseOperator() {
+        if (accept("<=")) {
+            return ValueFilter.Op.LE;
+        }
+        if (accept(">=")) {
+            return ValueFilter.Op.GE;
+        }
+        if (accept("!=") || accept("<>")) {
+            return ValueFilter.Op.NE;
+        }
+        if (accept("=")) {
+            return ValueFilter.Op.EQ;
+        }
+        if (accept("<")) {
+            return ValueFilter.Op.LT;
+        }
+        if (accept(">")) {
+            return ValueFilter.Op.GT;
+        }
+        throw error("expected a comparison operator");
+    }
+
+    private Object parseLiteral() {
+        skipWhitespace();
+        if (pos < text.length() && (text.charAt(pos) == '"' || text.charAt(pos) == '\'')) {
+            return parseQuoted("string");
+        }
+        if (pos < text.length() && (text.charAt(pos) == '-' || text.charAt(pos) == '.' || Character.isDigit(text.charAt(pos)))) {
+            return parseNumber();
+        }
+        if (acceptKeyword("true")) {
+            return Boolean.TRUE;
+        }
+        if (acceptKeyword("false")) {
+            return Boolean.FALSE;
+        }
+        throw error(pos < text.length() ? "unexpected '" + text.charAt(pos) + "'" : "unexpected end of filter");
+    }
+
+    private Double parseNumber() {
+        int start = pos;
+        if (text.charAt(pos) == '-') {
+            pos++;
+        }
+        while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.'
+            || text.charAt(pos) == 'e' || text.charAt(pos) == 'E'
+            || (text.charAt(pos) == '-' || text.charAt(pos) == '+') && (text.charAt(pos - 1) == 'e' || text.charAt(pos - 1) == 'E'))) {
+            pos++;
+        }
+        try {
+            return Double.parseDouble(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("invalid number");
+        }
+    }
+
+    private String parseColumnName() {
+        skipWhitespace();
+        if (pos < text.length() && (text.charAt(pos) == '"' || text.charAt(pos) == '\'')) {
+            return parseQuoted("column name");
+        }
+        int start = pos;
+        while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error(pos < text.length() ? "unexpected '" + text.charAt(pos) + "'" : "unexpected end of filter");
+        }
+        return text.substring(start, pos);
+    }
+
+    // A doubled quote inside the quotes stands for one quote character
+    private String parseQuoted(String what) {
+        char quote = text.charAt(pos++);
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            int end = text.indexOf(quote, pos);
+            if (end < 0) {
+                throw error("unterminated " + what);
+            }
+            value.append(text, pos, end);
+            pos = end + 1;
+            if (pos < text.length() && text.charAt(pos) == quote) {
+                value.append(quote);
+                pos++;
+            } else {
+                return value.toString();
+            }
+        }
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        int end = pos + keyword.length();
+        if (end <= text.length() && text.regionMatches(true, pos, keyword, 0, keyword.length())
+            && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)) && text.charAt(end) != '_')) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean accept(String token) {
+        skipWhitespace();
+        if (text.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String detail) {
+        return new IllegalArgumentException("Invalid filter syntax: " + detail);
+    }
+}
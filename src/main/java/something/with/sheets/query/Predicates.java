@@ -0,0 +1,143 @@
+package something.with.sheets.query;
+
+import something.with.sheets.model.storage.PagedColumnStorage;
+import something.with.sheets.model.storage.ValueFilter;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Predicate nodes produced by PredicateParser; they combine page bitmaps word by word
+final class Predicates {
+    private static final int WORDS = PagedColumnStorage.PAGE_SIZE >>> 6;
+
+    private Predicates() {
+    }
+
+    // Reads the column as pinned for the query, so every comparison sees the same version and takes no lock
+    static class Compare implements RowPredicate {
+        private final PagedColumnStorage<?> storage;
+        private final ValueFilter filter;
+
+        Compare(PagedColumnStorage<?> storage, ValueFilter filter) {
+            this.storage = storage;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean mayMatch(int pageIndex) {
+            return storage.mayMatch(pageIndex, filter);
+        }
+
+        @Override
+        public void evaluate(int pageIndex, long[] matches) {
+            storage.filterPage(pageIndex, filter, matches);
+        }
+    }
+
+    static class And implements RowPredicate {
+        private final List<RowPredicate> operands;
+
+        And(List<RowPredicate> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean mayMatch(int pageIndex) {
+            for (RowPredicate operand : operands) {
+                if (!operand.mayMatch(pageIndex)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Stops at the first operand that leaves no rows
+        @Override
+        public void evaluate(int pageIndex, long[] matches) {
+            operands.get(0).evaluate(pageIndex, matches);
+            long[] next = new long[WORDS];
+            for (int i = 1; i < operands.size() && any(matches); i++) {
+                operands.get(i).evaluate(pageIndex, next);
+                for (int word = 0; word < WORDS; word++) {
+                    matches[word] &= next[word];
+                }
+            }
+        }
+    }
+
+    static class Or implements RowPredicate {
+        private final List<RowPredicate> operands;
+
+        Or(List<RowPredicate> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean mayMatch(int pageIndex) {
+            for (RowPredicate operand : operands) {
+                if (operand.mayMatch(pageIndex)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Operands the zone maps rule out for this page are not read
+        @Override
+        public void evaluate(int pageIndex, long[] matches) {
+            Arrays.fill(matches, 0L);
+            long[] next = new long[WORDS];
+            for (RowPredicate operand : operands) {
+                if (operand.mayMatch(pageIndex)) {
+                    operand.evaluate(pageIndex, next);
+                    for (int word = 0; word < WORDS; word++) {
+                        matches[word] |= next[word];
+                    }
+                }
+            }
+        }
+    }
+
+    // Matches every row its operand does not, null rows included
+    static class Not implements RowPredicate {
+        private final RowPredicate operand;
+
+        Not(RowPredicate operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean mayMatch(int pageIndex) {
+            return true;
+        }
+
+        @Override
+        public void evaluate(int pageIndex, long[] matches) {
+            operand.evaluate(pageIndex, matches);
+            for (int word = 0; word < WORDS; word++) {
+                matches[word] = ~matches[word];
+            }
+        }
+    }
+
+    static class All implements RowPredicate {
+        @Override
+        public boolean mayMatch(int pageIndex) {
+            return true;
+        }
+
+        @Override
+        public void evaluate(int pageIndex, long[] matches) {
+            Arrays.fill(matches, -1L);
+        }
+    }
+
+    static boolean any(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
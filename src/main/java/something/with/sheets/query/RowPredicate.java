@@ -0,0 +1,11 @@
+package something.with.sheets.query;
+
+// A filter over a sheet's rows, evaluated one storage page at a time
+public interface RowPredicate {
+    // False only when no row of the page can match, judged from the columns' zone maps without reading values
+    boolean mayMatch(int pageIndex);
+
+    // Sets bit i of matches (PAGE_SIZE / 64 words) when row i of the page matches; bits of rows past the end of
+    // the sheet are undefined and left to the caller to mask
+    void evaluate(int pageIndex, long[] matches);
+}
@@ -0,0 +1,147 @@
+package something.with.sheets.query;
+
+import something.with.sheets.model.Column;
+import something.with.sheets.model.SheetVersion;
+import something.with.sheets.model.storage.PagedColumnStorage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * A filter query bound to a sheet, scanned a storage page at a time. Pages the predicate's zone maps rule out
+ * are skipped without reading their values. The rest are evaluated into bitmaps of matching rows on a
+ * fork-join pool, WINDOW_PAGES pages at a time, and each window's matching pages are handed to the consumer in
+ * row order before the next window is scanned, so results can be written out while the scan proceeds and
+ * memory stays the same whatever the sheet's size. The filter and the projection both read one pinned version
+ * of the sheet, so every row returned satisfies the filter with the values returned for it; closing the query
+ * releases that version.
+ */
+public class SheetQuery implements AutoCloseable {
+    public static final int PAGE_SIZE = PagedColumnStorage.PAGE_SIZE;
+    private static final int WORDS = PAGE_SIZE >>> 6;
+    private static final int WINDOW_PAGES = 256;
+    // Pages one fork-join task evaluates before splitting stops paying for itself
+    private static final int TASK_PAGES = 4;
+
+    private final SheetVersion version;
+    private final RowPredicate predicate;
+    private final List<Column> projection;
+    private final int rowCount;
+    private final Integer limit;
+    private final ForkJoinPool pool;
+    private final AtomicInteger pagesScanned = new AtomicInteger();
+    private final AtomicInteger pagesSkipped = new AtomicInteger();
+
+    public SheetQuery(SheetVersion version, RowPredicate predicate, List<Column> projection, int rowCount,
+                      Integer limit, ForkJoinPool pool) {
+        this.version = version;
+        this.predicate = predicate;
+        this.projection = projection;
+        this.rowCount = rowCount;
+        this.limit = limit;
+        this.pool = pool;
+    }
+
+    // Receives each page holding a match, in page order; returns false to end the scan
+    public interface PageConsumer {
+        boolean accept(int pageIndex, long[] matches) throws IOException;
+    }
+
+    // The pinned version the filter reads; projected values are read from it too
+    public SheetVersion getVersion() {
+        return version;
+    }
+
+    public List<Column> getProjection() {
+        return projection;
+    }
+
+    // Null when every match is wanted
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public int getPagesScanned() {
+        return pagesScanned.get();
+    }
+
+    public int getPagesSkipped() {
+        return pagesSkipped.get();
+    }
+
+    public void scan(PageConsumer consumer) throws IOException {
+        int pageCount = (rowCount + PAGE_SIZE - 1) >>> PagedColumnStorage.PAGE_SHIFT;
+        long[][] window = new long[Math.min(WINDOW_PAGES, pageCount)][WORDS];
+        boolean[] matched = new boolean[window.length];
+        for (int first = 0; first < pageCount; first += WINDOW_PAGES) {
+            int last = Math.min(pageCount, first + WINDOW_PAGES);
+            PageTask task = new PageTask(first, first, last, window, matched);
+            if (last - first > TASK_PAGES) {
+                pool.invoke(task);
+            } else {
+                task.compute();
+            }
+            for (int page = first; page < last; page++) {
+                if (matched[page - first] && !consumer.accept(page, window[page - first])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void scanPage(int pageIndex, long[] matches, boolean[] matched, int slot) {
+        if (!predicate.mayMatch(pageIndex)) {
+            pagesSkipped.incrementAndGet();
+            matched[slot] = false;
+            return;
+        }
+        pagesScanned.incrementAndGet();
+        predicate.evaluate(pageIndex, matches);
+        int rows = rowCount - (pageIndex << PagedColumnStorage.PAGE_SHIFT);
+        if (rows < PAGE_SIZE) {
+            matches[rows >>> 6] &= (1L << (rows & 63)) - 1;
+            for (int word = (rows >>> 6) + 1; word < WORDS; word++) {
+                matches[word] = 0;
+            }
+        }
+        matched[slot] = Predicates.any(matches);
+    }
+
+    @Override
+    public void close() {
+        version.close();
+    }
+
+    // Halves its page range until it is small enough to evaluate directly
+    private class PageTask extends RecursiveAction {
+        private final int windowStart;
+        private final int from;
+        private final int to;
+        private final long[][] window;
+        private final boolean[] matched;
+
+        PageTask(int windowStart, int from, int to, long[][] window, boolean[] matched) {
+            this.windowStart = windowStart;
+            this.from = from;
+            this.to = to;
+            this.window = window;
+            this.matched = matched;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_PAGES) {
+                for (int page = from; page < to; page++) {
+                    scanPage(page, window[page - windowStart], matched, page - windowStart);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PageTask(windowStart, from, middle, window, matched),
+                new PageTask(windowStart, middle, to, window, matched));
+        }
+    }
+}
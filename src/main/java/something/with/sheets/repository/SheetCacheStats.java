@@ -0,0 +1,43 @@
+package something.with.sheets.repository;
+
+public class SheetCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int hotSheets;
+    private final long hotBytes;
+    private final int spilledSheets;
+
+    public SheetCacheStats(long hits, long misses, long evictions, int hotSheets, long hotBytes, int spilledSheets) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.hotSheets = hotSheets;
+        this.hotBytes = hotBytes;
+        this.spilledSheets = spilledSheets;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getHotSheets() {
+        return hotSheets;
+    }
+
+    public long getHotBytes() {
+        return hotBytes;
+    }
+
+    public int getSpilledSheets() {
+        return spilledSheets;
+    }
+}
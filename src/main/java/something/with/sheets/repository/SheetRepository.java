@@ -1,19 +1,86 @@
 package something.with.sheets.repository;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import something.with.sheets.model.Sheet;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import something.with.sheets.persistence.MutationLog;
+import something.with.sheets.persistence.SheetMutation;
+import something.with.sheets.persistence.SheetStore;
+import something.with.sheets.persistence.SnapshotStore;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 @Repository
 public class SheetRepository {
-    private final Map<String, Sheet> sheets = new ConcurrentHashMap<>();
+    private final TieredSheetCache sheets;
+    private final MutationLog mutationLog;
+    private final SnapshotStore snapshotStore;
+    private final SheetStore sheetStore;
+    // Snapshots write and fsync a whole file, so they queue on a lock instead of a monitor that would pin a
+    // virtual thread's carrier for the duration
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    @Autowired
+    public SheetRepository(TieredSheetCache sheets, MutationLog mutationLog, SnapshotStore snapshotStore, SheetStore sheetStore) {
+        this.sheets = sheets;
+        this.mutationLog = mutationLog;
+        this.snapshotStore = snapshotStore;
+        this.sheetStore = sheetStore;
+    }
 
     public void save(Sheet sheet) {
-        sheets.put(sheet.getId(), sheet);
+        sheets.put(sheet);
+        sheetStore.save(sheet);
     }
 
+    // Sheets from the snapshot or the sheet store are loaded on first access
     public Sheet findById(String id) {
-        return sheets.get(id);
+        return sheets.get(id, key -> snapshotStore.sheetIds().contains(key) ? snapshotStore.load(key) : sheetStore.load(key));
+    }
+
+    public SheetCacheStats getCacheStats() {
+        return sheets.getStats();
+    }
+
+    // Sheets in memory, spilled or in the snapshot; sheets only in the sheet store count once loaded
+    public int sheetCount() {
+        Set<String> ids = new HashSet<>(snapshotStore.sheetIds());
+        ids.addAll(sheets.ids());
+        return ids.size();
+    }
+
+    public List<Sheet> getHotSheets() {
+        return sheets.hotSheets();
+    }
+
+    public long appendMutation(SheetMutation mutation) {
+        return mutationLog.append(mutation);
+    }
+
+    public void awaitDurable(long sequence) {
+        mutationLog.awaitDurable(sequence);
+    }
+
+    public void replayMutations(Consumer<SheetMutation> consumer) {
+        mutationLog.replay(consumer);
+    }
+
+    // The log is rotated before any sheet is captured, so every mutation missing from the snapshot is in
+    // the new segment; replay skips the ones the snapshot already contains by their sheet version
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            mutationLog.rotate();
+            Set<String> ids = new LinkedHashSet<>(snapshotStore.sheetIds());
+            ids.addAll(sheets.ids());
+            snapshotStore.write(ids, sheets::peek);
+            mutationLog.discardRotated();
+        } finally {
+            snapshotLock.unlock();
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package something.with.sheets.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import something.with.sheets.model.Sheet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Gauges over the repository's contents and counters from its cache, sampled when the registry is read
+@Component
+public class SheetRepositoryMetrics implements MeterBinder {
+    private final SheetRepository repository;
+    // sheets.bytes is tagged by sheet for the largest sheets only, so the number of tag values stays bounded
+    private final int topSheets;
+    private volatile MultiGauge sheetBytes;
+
+    public SheetRepositoryMetrics(SheetRepository repository, @Value("${sheets.metrics.top-sheets:10}") int topSheets) {
+        this.repository = repository;
+        this.topSheets = topSheets;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sheets.count", repository, SheetRepository::sheetCount)
+            .description("Sheets held in memory, spilled or snapshotted")
+            .register(registry);
+        Gauge.builder("sheets.hot.count", repository, r -> r.getCacheStats().getHotSheets())
+            .description("Sheets in the in-memory tier")
+            .register(registry);
+        Gauge.builder("sheets.hot.bytes", repository, r -> r.getCacheStats().getHotBytes())
+            .description("Estimated heap size of the in-memory tier")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("sheets.cells", repository, SheetRepositoryMetrics::cellCount)
+            .description("Cells holding a value across the in-memory sheets")
+            .register(registry);
+        Gauge.builder("sheets.largest.bytes", repository, SheetRepositoryMetrics::largestSheetBytes)
+            .description("Estimated heap size of the largest in-memory sheet")
+            .baseUnit("bytes")
+            .register(registry);
+        sheetBytes = MultiGauge.builder("sheets.bytes")
+            .description("Estimated heap size of each of the largest in-memory sheets, tagged by sheet")
+            .baseUnit("bytes")
+            .register(registry);
+        refreshSheetBytes();
+        FunctionCounter.builder("sheets.cache.requests", repository, r -> r.getCacheStats().getHits())
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("sheets.cache.requests", repository, r -> r.getCacheStats().getMisses())
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("sheets.cache.evictions", repository, r -> r.getCacheStats().getEvictions())
+            .register(registry);
+    }
+
+    // Picks the sheets sheets.bytes reports; their sizes are read when the registry is, the set changes here
+    @Scheduled(initialDelayString = "${sheets.metrics.refresh-ms:10000}", fixedDelayString = "${sheets.metrics.refresh-ms:10000}")
+    public void refreshSheetBytes() {
+        MultiGauge gauge = sheetBytes;
+        if (gauge == null) {
+            return;
+        }
+        List<Sized> sized = new ArrayList<>();
+        for (Sheet sheet : repository.getHotSheets()) {
+            sized.add(new Sized(sheet, sheet.estimatedBytes()));
+        }
+        sized.sort(Comparator.comparingLong((Sized s) -> s.bytes).reversed());
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (Sized entry : sized.subList(0, Math.min(topSheets, sized.size()))) {
+            rows.add(MultiGauge.Row.of(Tags.of("sheet", entry.sheet.getId()), entry.sheet, Sheet::estimatedBytes));
+        }
+        gauge.register(rows, true);
+    }
+
+    private static double cellCount(SheetRepository repository) {
+        long cells = 0;
+        for (Sheet sheet : repository.getHotSheets()) {
+            cells += sheet.cellCount();
+        }
+        return cells;
+    }
+
+    private static double largestSheetBytes(SheetRepository repository) {
+        long largest = 0;
+        for (Sheet sheet : repository.getHotSheets()) {
+            largest = Math.max(largest, sheet.estimatedBytes());
+        }
+        return largest;
+    }
+
+    private static final class Sized {
+        final Sheet sheet;
+        final long bytes;
+
+        Sized(Sheet sheet, long bytes) {
+            this.sheet = sheet;
+            this.bytes = bytes;
+        }
+    }
+}
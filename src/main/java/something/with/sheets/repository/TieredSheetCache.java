@@ -0,0 +1,251 @@
+package something.with.sheets.repository;
+
+import something.with.sheets.model.Sheet;
+import something.with.sheets.persistence.SheetSpillStore;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/*
+ * Memory-bounded hot tier for sheets. Entries are weighed by their estimated heap size; once the total
+ * passes maxBytes the least recently used sheets are spilled to disk, or dropped when there is no spill
+ * store because a store of record can reload them, until the total is back under the low-water mark.
+ * Recency is a timestamp per entry rather than a linked list, so a hit never takes a lock or shares a counter.
+ *
+ * An evicted sheet is remembered through a weak reference. A request that still holds the instance gets the
+ * same instance back from get, and its next put returns it to the hot tier; the spilled copy is only decoded
+ * once nobody holds the old instance, so a write that raced the eviction cannot be lost to a stale reload.
+ */
+public class TieredSheetCache {
+    private static final double LOW_WATER = 0.9;
+
+    private final long maxBytes;
+    private final SheetSpillStore spillStore;
+    private final Map<String, Entry> hot = new ConcurrentHashMap<>();
+    private final Map<String, WeakReference<Sheet>> evicted = new ConcurrentHashMap<>();
+    private final Set<String> spilled = ConcurrentHashMap.newKeySet();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReentrantLock[] loadLocks = new ReentrantLock[64];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TieredSheetCache(long maxBytes, SheetSpillStore spillStore) {
+        this.maxBytes = maxBytes;
+        this.spillStore = spillStore;
+        for (int i = 0; i < loadLocks.length; i++) {
+            loadLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Falls back to loader for sheets that are neither hot nor evicted; a null result is not cached
+    public Sheet get(String id, Function<String, Sheet> loader) {
+        Entry entry = hot.get(id);
+        if (entry != null) {
+            hits.increment();
+            entry.touch();
+            return entry.sheet;
+        }
+        misses.increment();
+        // Loading reads from disk or the database, so it runs under a striped lock rather than inside
+        // computeIfAbsent, whose bin monitor would block unrelated ids and pin a virtual thread's carrier
+        ReentrantLock loadLock = loadLocks[(id.hashCode() & Integer.MAX_VALUE) % loadLocks.length];
+        loadLock.lock();
+        try {
+            entry = hot.get(id);
+            if (entry == null) {
+                Sheet sheet = reclaim(id);
+                if (sheet == null) {
+                    sheet = loader.apply(id);
+                }
+                if (sheet == null) {
+                    return null;
+                }
+                Entry loaded = new Entry(sheet);
+                entry = hot.putIfAbsent(id, loaded);
+                if (entry == null) {
+                    entry = loaded;
+                } else {
+                    loaded.remove();
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+        entry.touch();
+        evictIfNeeded(entry);
+        return entry.sheet;
+    }
+
+    // Called after every write so the entry's weight follows the sheet's growth
+    public void put(Sheet sheet) {
+        Entry entry = hot.compute(sheet.getId(), (key, current) -> {
+            if (current != null && current.sheet == sheet) {
+                return current;
+            }
+            if (current != null) {
+                current.remove();
+            }
+            evicted.remove(key);
+            if (spilled.remove(key)) {
+                spillStore.delete(key);
+            }
+            return new Entry(sheet);
+        });
+        entry.reweigh();
+        entry.touch();
+        evictIfNeeded(entry);
+    }
+
+    // The current state of a sheet without changing its tier, for snapshots; null when it is not cached
+    public Sheet peek(String id) {
+        Entry entry = hot.get(id);
+        if (entry != null) {
+            return entry.sheet;
+        }
+        WeakReference<Sheet> reference = evicted.get(id);
+        Sheet sheet = reference != null ? reference.get() : null;
+        if (sheet == null && spilled.contains(id)) {
+            sheet = spillStore.read(id, false);
+        }
+        if (sheet == null) {
+            // Reclaimed by a concurrent get while we looked
+            entry = hot.get(id);
+            sheet = entry != null ? entry.sheet : null;
+        }
+        return sheet;
+    }
+
+    public Set<String> ids() {
+        Set<String> ids = new HashSet<>(hot.keySet());
+        ids.addAll(spilled);
+        return ids;
+    }
+
+    public List<Sheet> hotSheets() {
+        List<Sheet> sheets = new ArrayList<>();
+        for (Entry entry : hot.values()) {
+            sheets.add(entry.sheet);
+        }
+        return sheets;
+    }
+
+    public SheetCacheStats getStats() {
+        return new SheetCacheStats(hits.sum(), misses.sum(), evictions.sum(), hot.size(), totalBytes.get(), spilled.size());
+    }
+
+    private Sheet reclaim(String id) {
+        WeakReference<Sheet> reference = evicted.remove(id);
+        Sheet sheet = reference != null ? reference.get() : null;
+        if (spilled.remove(id)) {
+            if (sheet == null) {
+                sheet = spillStore.read(id, true);
+            } else {
+                spillStore.delete(id);
+            }
+        }
+        return sheet;
+    }
+
+    // One thread evicts at a time; others carry on over budget rather than wait for it
+    private void evictIfNeeded(Entry keep) {
+        if (totalBytes.get() <= maxBytes || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            Entry[] candidates = hot.values().toArray(new Entry[0]);
+            long[] stamps = new long[candidates.length];
+            Integer[] order = new Integer[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                stamps[i] = candidates[i].lastAccess;
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(stamps[a], stamps[b]));
+            long target = (long) (maxBytes * LOW_WATER);
+            for (Integer index : order) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                if (candidates[index] != keep) {
+                    evict(candidates[index]);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Runs under the sheet's exclusive lock so the spilled copy is complete and no write lands mid-eviction
+    private void evict(Entry entry) {
+        Sheet sheet = entry.sheet;
+        sheet.writeLinked(() -> {
+            if (hot.get(sheet.getId()) != entry) {
+                return null;
+            }
+            if (spillStore != null) {
+                spillStore.write(sheet);
+                spilled.add(sheet.getId());
+            }
+            evicted.put(sheet.getId(), new WeakReference<>(sheet));
+            hot.remove(sheet.getId(), entry);
+            entry.remove();
+            evictions.increment();
+            return null;
+        });
+    }
+
+    private class Entry {
+        final Sheet sheet;
+        volatile long lastAccess;
+        // Guards weight and removed between the request threads that reweigh and the evicting thread
+        private final ReentrantLock lock = new ReentrantLock();
+        private long weight;
+        private boolean removed;
+
+        Entry(Sheet sheet) {
+            this.sheet = sheet;
+            reweigh();
+        }
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        void reweigh() {
+            lock.lock();
+            try {
+                if (removed) {
+                    return;
+                }
+                long current = sheet.estimatedBytes();
+                totalBytes.addAndGet(current - weight);
+                weight = current;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove() {
+            lock.lock();
+            try {
+                if (!removed) {
+                    removed = true;
+                    totalBytes.addAndGet(-weight);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package something.with.sheets.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// RFC 4180 CSV: the first record names the columns, quoted fields may hold commas, doubled quotes and line
+// breaks. Empty fields are absent rather than empty strings, and a blank line is a record with every field
+// absent, so exported row numbers survive a round trip. A record longer than maxRecordChars, such as one opened
+// by a quote that is never closed, fails the whole upload instead of being buffered
+public class CsvImportReader implements ImportRecordReader {
+    private final Reader reader;
+    private final int maxRecordChars;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private String[] header;
+    private long number;
+
+    public CsvImportReader(InputStream in) {
+        this(in, DEFAULT_MAX_RECORD_CHARS);
+    }
+
+    public CsvImportReader(InputStream in, int maxRecordChars) {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        if (header == null) {
+            List<String> names;
+            try {
+                names = readRecord(true);
+            } catch (MalformedRecordException e) {
+                throw new IllegalArgumentException("Invalid CSV header: " + e.getMessage());
+            }
+            if (names == null) {
+                return null;
+            }
+            header = new String[names.size()];
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < header.length; i++) {
+                header[i] = names.get(i) != null ? names.get(i).trim() : "";
+                if (!seen.add(header[i])) {
+                    throw new IllegalArgumentException("Duplicate column in CSV header: " + header[i]);
+                }
+            }
+        }
+        List<String> fields;
+        try {
+            fields = readRecord(false);
+        } catch (MalformedRecordException e) {
+            return new ImportRecord(number++, e.getMessage());
+        }
+        if (fields == null) {
+            return null;
+        }
+        if (fields.isEmpty()) {
+            return new ImportRecord(number++, header, new Object[header.length], true);
+        }
+        if (fields.size() != header.length) {
+            return new ImportRecord(number++, "Expected " + header.length + " fields but found " + fields.size());
+        }
+        return new ImportRecord(number++, header, fields.toArray(), true);
+    }
+
+    // Null at the end of input and empty for a blank line; an empty field is returned as null
+    private List<String> readRecord(boolean skipBlankLines) throws IOException {
+        int c = read();
+        while (skipBlankLines && (c == '\r' || c == '\n')) {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        if (c == '\r' || c == '\n') {
+            if (c == '\r' && peek() == '\n') {
+                read();
+            }
+            return new ArrayList<>();
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int length = 0;
+        while (true) {
+            if (++length > maxRecordChars) {
+                throw new IllegalArgumentException("Record " + number + " is longer than " + maxRecordChars + " characters");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedRecordException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                fields.add(field.length() > 0 || wasQuoted ? field.toString() : null);
+                field.setLength(0);
+                wasQuoted = false;
+                if (c != ',') {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    return fields;
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private static class MalformedRecordException extends IOException {
+        MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
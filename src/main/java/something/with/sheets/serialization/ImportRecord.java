@@ -0,0 +1,48 @@
+package something.with.sheets.serialization;
+
+// One record of an import upload: field names with their raw values, or the reason the record could not be read
+public class ImportRecord {
+    private final long number;
+    private final String[] names;
+    private final Object[] values;
+    private final boolean text;
+    private final String error;
+
+    // Values are strings still to be parsed when text is set (CSV), typed JSON scalars otherwise; null means absent
+    public ImportRecord(long number, String[] names, Object[] values, boolean text) {
+        this.number = number;
+        this.names = names;
+        this.values = values;
+        this.text = text;
+        this.error = null;
+    }
+
+    public ImportRecord(long number, String error) {
+        this.number = number;
+        this.names = new String[0];
+        this.values = new Object[0];
+        this.text = false;
+        this.error = error;
+    }
+
+    // Position of the record among the upload's records, starting at 0
+    public long getNumber() {
+        return number;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public Object[] getValues() {
+        return values;
+    }
+
+    public boolean isText() {
+        return text;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
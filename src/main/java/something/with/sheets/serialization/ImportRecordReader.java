@@ -0,0 +1,12 @@
+package something.with.sheets.serialization;
+
+import java.io.IOException;
+
+// Reads an import upload one record at a time, so the body is never held in memory as a whole
+public interface ImportRecordReader {
+    // Longest record, in characters, a reader buffers before it gives up on the upload
+    int DEFAULT_MAX_RECORD_CHARS = 1 << 20;
+
+    // Returns null once the input is exhausted
+    ImportRecord next() throws IOException;
+}
@@ -0,0 +1,125 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Newline-delimited JSON: one object per line mapping column names to scalar values. Each line is parsed on
+// its own, so a malformed line fails only its record; null fields are absent and blank lines are skipped. A line
+// longer than maxRecordChars fails the whole upload instead of being buffered
+public class NdjsonImportReader implements ImportRecordReader {
+    private final Reader reader;
+    private final JsonFactory jsonFactory;
+    private final int maxRecordChars;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private long number;
+
+    public NdjsonImportReader(InputStream in, JsonFactory jsonFactory) {
+        this(in, jsonFactory, DEFAULT_MAX_RECORD_CHARS);
+    }
+
+    public NdjsonImportReader(InputStream in, JsonFactory jsonFactory, int maxRecordChars) {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.jsonFactory = jsonFactory;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        String line = readLine();
+        while (line != null && line.isBlank()) {
+            line = readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        long recordNumber = number++;
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new ImportRecord(recordNumber, "Expected a JSON object");
+            }
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_OBJECT; token = parser.nextToken()) {
+                String name = parser.currentName();
+                token = parser.nextToken();
+                Object value;
+                switch (token) {
+                    case VALUE_NUMBER_INT:
+                        value = parser.getNumberValue();
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        value = parser.getDoubleValue();
+                        break;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        value = parser.getBooleanValue();
+                        break;
+                    case VALUE_STRING:
+                        value = parser.getText();
+                        break;
+                    case VALUE_NULL:
+                        continue;
+                    default:
+                        return new ImportRecord(recordNumber, "Field " + name + " is not a scalar value");
+                }
+                names.add(name);
+                values.add(value);
+            }
+            if (parser.nextToken() != null) {
+                return new ImportRecord(recordNumber, "Unexpected content after the JSON object");
+            }
+        } catch (JsonProcessingException e) {
+            return new ImportRecord(recordNumber, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        return new ImportRecord(recordNumber, names.toArray(new String[0]), values.toArray(), false);
+    }
+
+    // The next line without its line break, or null at the end of input
+    private String readLine() throws IOException {
+        StringBuilder line = null;
+        while (position < limit || fill()) {
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            if (line == null) {
+                line = new StringBuilder();
+            }
+            if (line.length() + position - start > maxRecordChars) {
+                throw new IllegalArgumentException("Record " + number + " is longer than " + maxRecordChars + " characters");
+            }
+            line.append(buffer, start, position - start);
+            if (position < limit) {
+                position++;
+                break;
+            }
+        }
+        if (line != null && line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line != null ? line.toString() : null;
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,234 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.GetSheetWindowResponse;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.ColumnValues;
+import something.with.sheets.model.storage.PagedColumnStorage;
+import something.with.sheets.model.storage.StringColumnStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Binary columnar encoding of a sheet, modelled on the Arrow IPC stream format: a schema, then record batches
+ * holding a validity bitmap and a typed value buffer per column, copied page by page out of column storage.
+ * Everything is little-endian and every buffer starts on an 8-byte boundary, so a reader can map the buffers
+ * as int32/float64 arrays without copying.
+ *
+ *   stream     magic "SHEETCOL", schema, batch*, end
+ *   schema     int32 length, UTF-8 JSON {"id", "fromRow", "rowCount", "columns": [{"name", "type"}]}, padding
+ *   batch      int32 rows, int32 0, then per column: validity, values, [dictionary delta]
+ *   end        int32 0, int32 0
+ *
+ * Batches cover consecutive rows starting at fromRow and end on storage page boundaries, so a batch holds at
+ * most PAGE_SIZE rows. Validity holds (rows + 7) / 8 bytes, bit i (least significant first) set when the
+ * batch's row i is not null. Values are int32 for int, float64 for double, a bitmap like validity for boolean
+ * and int32 dictionary ids for string columns. A string column's values are followed by the dictionary entries
+ * the batch uses for the first time in the response: int32 count, int32 byteLength, int32 offsets[count + 1] into
+ * the UTF-8 bytes that follow, then padding. Ids index the concatenation of every delta received so far, this
+ * batch's included; they are numbered per response, so a window of a column with a large dictionary carries only
+ * the entries its rows use.
+ * Responses read from a pinned sheet version are consistent across columns and copied without locks; a live
+ * column's pages are each copied under the column's read lock, consistent per column only.
+ */
+@Component
+public class SheetColumnarWriter {
+    public static final String MEDIA_TYPE = "application/vnd.sheets.columnar";
+    private static final byte[] MAGIC = "SHEETCOL".getBytes(StandardCharsets.US_ASCII);
+    private static final int PAGE_SIZE = PagedColumnStorage.PAGE_SIZE;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SheetColumnarWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(GetSheetResponse response, OutputStream out) throws IOException {
+        boolean window = response instanceof GetSheetWindowResponse;
+        int fromRow = window ? ((GetSheetWindowResponse) response).getFromRow() : 0;
+        List<ColumnValues> columns = new ArrayList<>();
+        for (GetSheetResponse.ColumnData data : response.getColumns()) {
+            columns.add(columnValues(data, fromRow));
+        }
+        int toRow = fromRow;
+        if (window) {
+            toRow = ((GetSheetWindowResponse) response).getToRow();
+        } else {
+            for (ColumnValues values : columns) {
+                toRow = Math.max(toRow, values.getToRow());
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(16 + columns.size() * (2 * PAGE_SIZE / 8 + PAGE_SIZE * Double.BYTES + 16))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        writeSchema(response, columns, fromRow, toRow, out, buffer);
+        List<Map<Integer, Integer>> responseIds = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            responseIds.add(new HashMap<>());
+        }
+        int row = fromRow;
+        while (row < toRow) {
+            int batchEnd = Math.min(toRow, (row | (PAGE_SIZE - 1)) + 1);
+            buffer.clear();
+            buffer.putInt(batchEnd - row).putInt(0);
+            for (int i = 0; i < columns.size(); i++) {
+                writeColumnPage(columns.get(i), row, batchEnd, responseIds.get(i), buffer, out);
+            }
+            out.write(buffer.array(), 0, buffer.position());
+            row = batchEnd;
+        }
+        buffer.clear();
+        buffer.putInt(0).putInt(0);
+        out.write(buffer.array(), 0, buffer.position());
+        out.flush();
+    }
+
+    // Response lists are column views; a plain list is copied into a scratch column so it takes the same path
+    private static ColumnValues columnValues(GetSheetResponse.ColumnData data, int fromRow) {
+        if (data.getValues() instanceof ColumnValues) {
+            return (ColumnValues) data.getValues();
+        }
+        Column scratch = new Column(data.getName(), data.getType());
+        List<Object> values = data.getValues();
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) != null) {
+                scratch.setCell(fromRow + i, values.get(i));
+            }
+        }
+        if (!values.isEmpty()) {
+            scratch.ensureCellExists(fromRow + values.size() - 1);
+        }
+        return scratch.values(fromRow, fromRow + values.size());
+    }
+
+    private void writeSchema(GetSheetResponse response, List<ColumnValues> columns, int fromRow, int toRow,
+                             OutputStream out, ByteBuffer buffer) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", response.getId());
+            generator.writeNumberField("fromRow", fromRow);
+            generator.writeNumberField("rowCount", toRow - fromRow);
+            generator.writeArrayFieldStart("columns");
+            for (ColumnValues values : columns) {
+                generator.writeStartObject();
+                generator.writeStringField("name", values.getColumn().getName());
+                generator.writeStringField("type", values.getColumn().getType());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        out.write(MAGIC);
+        buffer.clear();
+        buffer.putInt(json.size());
+        out.write(buffer.array(), 0, buffer.position());
+        json.writeTo(out);
+        out.write(new byte[padding(Integer.BYTES + json.size())]);
+    }
+
+    // responseIds maps a string column's storage ids to the ids already sent in this response
+    private static void writeColumnPage(ColumnValues values, int fromRow, int toRow, Map<Integer, Integer> responseIds,
+                                        ByteBuffer buffer, OutputStream out) throws IOException {
+        Column column = values.getColumn();
+        PagedColumnStorage<?> storage = (PagedColumnStorage<?>) values.getStorage();
+        List<String> added = null;
+        long stamp = values.isPinned() ? 0 : column.getLock().readLock();
+        try {
+            storage.writeValidity(fromRow, toRow, buffer);
+            pad(buffer);
+            if (storage instanceof StringColumnStorage) {
+                added = writeResponseIds((StringColumnStorage) storage, fromRow, toRow, responseIds, buffer);
+            } else {
+                storage.writeColumnarValues(fromRow, toRow, buffer);
+            }
+            pad(buffer);
+        } finally {
+            if (stamp != 0) {
+                column.getLock().unlockRead(stamp);
+            }
+        }
+        if (added != null) {
+            writeDictionaryDelta(added, buffer, out);
+        }
+    }
+
+    // Writes the rows' ids renumbered for the response, numbering ids on first use, and returns the values first
+    // used here in id order. Null rows get id 0, which the validity bitmap masks
+    private static List<String> writeResponseIds(StringColumnStorage strings, int fromRow, int toRow,
+                                                 Map<Integer, Integer> responseIds, ByteBuffer buffer) {
+        List<String> added = new ArrayList<>();
+        for (int row = fromRow; row < toRow; row++) {
+            int id = strings.getId(row);
+            if (id < 0) {
+                buffer.putInt(0);
+                continue;
+            }
+            Integer responseId = responseIds.get(id);
+            if (responseId == null) {
+                responseId = responseIds.size();
+                responseIds.put(id, responseId);
+                added.add(strings.lookupId(id));
+            }
+            buffer.putInt(responseId);
+        }
+        return added;
+    }
+
+    // Flushes the batch so far and streams the delta, which can be larger than the batch buffer
+    private static void writeDictionaryDelta(List<String> added, ByteBuffer buffer, OutputStream out) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(added.size());
+        int byteLength = 0;
+        for (String value : added) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            byteLength += bytes.length;
+        }
+        out.write(buffer.array(), 0, buffer.position());
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES + (added.size() + 1) * Integer.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(added.size()).putInt(byteLength);
+        int offset = 0;
+        header.putInt(offset);
+        for (byte[] bytes : encoded) {
+            offset += bytes.length;
+            header.putInt(offset);
+        }
+        out.write(header.array(), 0, header.position());
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+        out.write(new byte[padding(header.position() + byteLength)]);
+        buffer.clear();
+    }
+
+    // The buffer is reused across batches, so padding is written rather than skipped
+    private static void pad(ByteBuffer buffer) {
+        while ((buffer.position() & 7) != 0) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static int padding(int length) {
+        return align(length) - length;
+    }
+}
@@ -0,0 +1,153 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.ColumnValues;
+import something.with.sheets.model.storage.ColumnStorage;
+import something.with.sheets.model.storage.PagedColumnStorage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * Row-oriented exports (CSV and NDJSON) in the formats POST /sheets/{id}/import reads back. Rows are produced one
+ * storage page at a time: each column's values for the page are copied under the column's read lock into a
+ * buffer of PAGE_SIZE values, the rows are written, and the buffers are reused for the next page, so memory
+ * stays the same whatever the sheet's size. Values are the stored, resolved ones, so formula cells export their
+ * results.
+ */
+@Component
+public class SheetExportWriter {
+    private static final int PAGE_SIZE = PagedColumnStorage.PAGE_SIZE;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SheetExportWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // A header line of column names, then one line per row; null cells are empty fields and an empty string is ""
+    public void writeCsv(GetSheetResponse response, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        List<GetSheetResponse.ColumnData> columns = response.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(writer, columns.get(i).getName());
+        }
+        writer.write('\n');
+        Object[][] page = new Object[columns.size()][PAGE_SIZE];
+        int rowCount = rowCount(columns);
+        for (int pageStart = 0; pageStart < rowCount; pageStart += PAGE_SIZE) {
+            int rows = readPage(columns, pageStart, Math.min(rowCount, pageStart + PAGE_SIZE), page);
+            for (int row = 0; row < rows; row++) {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    Object value = page[i][row];
+                    if (value instanceof String) {
+                        writeCsvField(writer, (String) value);
+                    } else if (value != null) {
+                        writer.write(value.toString());
+                    }
+                }
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    // One object per row holding its non-null cells; rows without values are written as {} to keep row numbers
+    public void writeNdjson(GetSheetResponse response, OutputStream out) throws IOException {
+        List<GetSheetResponse.ColumnData> columns = response.getColumns();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            Object[][] page = new Object[columns.size()][PAGE_SIZE];
+            int rowCount = rowCount(columns);
+            for (int pageStart = 0; pageStart < rowCount; pageStart += PAGE_SIZE) {
+                int rows = readPage(columns, pageStart, Math.min(rowCount, pageStart + PAGE_SIZE), page);
+                for (int row = 0; row < rows; row++) {
+                    generator.writeStartObject();
+                    for (int i = 0; i < columns.size(); i++) {
+                        if (page[i][row] != null) {
+                            generator.writeFieldName(columns.get(i).getName());
+                            SheetJsonWriter.writeValue(generator, page[i][row]);
+                        }
+                    }
+                    generator.writeEndObject();
+                }
+            }
+            if (rowCount > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static int rowCount(List<GetSheetResponse.ColumnData> columns) {
+        int rowCount = 0;
+        for (GetSheetResponse.ColumnData column : columns) {
+            rowCount = Math.max(rowCount, column.getValues() instanceof ColumnValues
+                ? ((ColumnValues) column.getValues()).getToRow()
+                : column.getValues().size());
+        }
+        return rowCount;
+    }
+
+    // Fills page[i] with column i's values for rows [fromRow, toRow), which lie within one storage page
+    private static int readPage(List<GetSheetResponse.ColumnData> columns, int fromRow, int toRow, Object[][] page) {
+        for (int i = 0; i < columns.size(); i++) {
+            List<Object> values = columns.get(i).getValues();
+            if (!(values instanceof ColumnValues)) {
+                for (int row = fromRow; row < toRow; row++) {
+                    page[i][row - fromRow] = row < values.size() ? values.get(row) : null;
+                }
+                continue;
+            }
+            ColumnValues columnValues = (ColumnValues) values;
+            Column column = columnValues.getColumn();
+            ColumnStorage storage = columnValues.getStorage();
+            // A pinned version never changes; a live column is read under its lock
+            long stamp = columnValues.isPinned() ? 0 : column.getLock().readLock();
+            try {
+                for (int row = fromRow; row < toRow; row++) {
+                    page[i][row - fromRow] = storage.get(row);
+                }
+            } finally {
+                if (stamp != 0) {
+                    column.getLock().unlockRead(stamp);
+                }
+            }
+        }
+        return toRow - fromRow;
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
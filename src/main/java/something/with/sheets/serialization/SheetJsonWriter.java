@@ -0,0 +1,152 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import something.with.sheets.dto.CellChange;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.GetSheetWindowResponse;
+import something.with.sheets.dto.SheetChanges;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.ColumnValues;
+import something.with.sheets.model.storage.ColumnStorage;
+import something.with.sheets.model.storage.PagedColumnStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Writes a sheet as JSON straight to the response stream; values backed by column storage are read
+// one row at a time, so memory use does not grow with the sheet. Values from a pinned sheet version are read
+// without locks. CBOR output has the same structure
+@Component
+public class SheetJsonWriter {
+    private final ObjectMapper objectMapper;
+    private final CBORFactory cborFactory;
+
+    @Autowired
+    public SheetJsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.cborFactory = new CBORFactory(objectMapper);
+    }
+
+    public void write(GetSheetResponse response, OutputStream out) throws IOException {
+        write(response, out, objectMapper.getFactory());
+    }
+
+    public void writeCbor(GetSheetResponse response, OutputStream out) throws IOException {
+        write(response, out, cborFactory);
+    }
+
+    private void write(GetSheetResponse response, OutputStream out, JsonFactory factory) throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeStringField("id", response.getId());
+            if (response instanceof GetSheetWindowResponse) {
+                GetSheetWindowResponse window = (GetSheetWindowResponse) response;
+                generator.writeNumberField("fromRow", window.getFromRow());
+                generator.writeNumberField("toRow", window.getToRow());
+                generator.writeNumberField("rowCount", window.getRowCount());
+                generator.writeStringField("nextCursor", window.getNextCursor());
+            }
+            writeColumns(generator, response);
+            generator.writeEndObject();
+        }
+    }
+
+    // Response of GET /sheets/{id}/changes: the changed cells, or with full set the whole sheet
+    public void writeChanges(String sheetId, SheetChanges changes, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeStringField("id", sheetId);
+            generator.writeNumberField("version", changes.getVersion());
+            generator.writeBooleanField("full", false);
+            generator.writeArrayFieldStart("cells");
+            for (CellChange change : changes.getCells()) {
+                generator.writeStartObject();
+                generator.writeStringField("columnName", change.getColumnName());
+                generator.writeNumberField("rowIndex", change.getRowIndex());
+                generator.writeFieldName("value");
+                writeValue(generator, change.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    public void writeFullChanges(long version, GetSheetResponse response, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeStringField("id", response.getId());
+            generator.writeNumberField("version", version);
+            generator.writeBooleanField("full", true);
+            writeColumns(generator, response);
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeColumns(JsonGenerator generator, GetSheetResponse response) throws IOException {
+        generator.writeArrayFieldStart("columns");
+        for (GetSheetResponse.ColumnData column : response.getColumns()) {
+            generator.writeStartObject();
+            generator.writeStringField("name", column.getName());
+            generator.writeStringField("type", column.getType());
+            generator.writeArrayFieldStart("values");
+            writeValues(generator, column.getValues());
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeValues(JsonGenerator generator, List<Object> values) throws IOException {
+        if (!(values instanceof ColumnValues)) {
+            for (Object value : values) {
+                writeValue(generator, value);
+            }
+            return;
+        }
+        ColumnValues columnValues = (ColumnValues) values;
+        Column column = columnValues.getColumn();
+        ColumnStorage storage = columnValues.getStorage();
+        int size = columnValues.getToRow();
+        int row = columnValues.getFromRow();
+        while (row < size) {
+            int pageEnd = Math.min(size, (row | (PagedColumnStorage.PAGE_SIZE - 1)) + 1);
+            if (storage instanceof PagedColumnStorage
+                    && !((PagedColumnStorage<?>) storage).isPageAllocated(row >>> PagedColumnStorage.PAGE_SHIFT)) {
+                for (; row < pageEnd; row++) {
+                    generator.writeNull();
+                }
+                continue;
+            }
+            for (; row < pageEnd; row++) {
+                writeValue(generator, columnValues.isPinned() ? storage.get(row) : column.getCell(row));
+            }
+        }
+    }
+
+    static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+}
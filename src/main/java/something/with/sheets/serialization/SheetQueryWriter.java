@@ -0,0 +1,93 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.SheetVersion;
+import something.with.sheets.model.storage.ColumnStorage;
+import something.with.sheets.query.SheetQuery;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/*
+ * Streams a query's result as it is scanned:
+ *   {"columns": [...], "rows": [{"row": 7, "values": [...]}, ...],
+ *    "matchedRows": 1, "limitReached": false, "pagesScanned": 3, "pagesSkipped": 12}
+ * with values in the order of columns. The projected values of a page's matching rows are read from the
+ * version the filter was evaluated against, so writes made during the scan are not seen by either.
+ */
+@Component
+public class SheetQueryWriter {
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SheetQueryWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(SheetQuery query, OutputStream out) throws IOException {
+        List<Column> projection = query.getProjection();
+        long limit = query.getLimit() != null ? query.getLimit() : Long.MAX_VALUE;
+        Object[][] values = new Object[projection.size()][SheetQuery.PAGE_SIZE];
+        int[] rows = new int[SheetQuery.PAGE_SIZE];
+        long[] matched = new long[1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("columns");
+            for (Column column : projection) {
+                generator.writeString(column.getName());
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("rows");
+            query.scan((pageIndex, matches) -> {
+                int count = matchingRows(pageIndex, matches, rows, (int) Math.min(SheetQuery.PAGE_SIZE, limit - matched[0]));
+                readValues(query.getVersion(), projection, rows, count, values);
+                for (int i = 0; i < count; i++) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("row", rows[i]);
+                    generator.writeArrayFieldStart("values");
+                    for (int column = 0; column < projection.size(); column++) {
+                        SheetJsonWriter.writeValue(generator, values[column][i]);
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                matched[0] += count;
+                return matched[0] < limit;
+            });
+            generator.writeEndArray();
+            generator.writeNumberField("matchedRows", matched[0]);
+            generator.writeBooleanField("limitReached", matched[0] >= limit);
+            generator.writeNumberField("pagesScanned", query.getPagesScanned());
+            generator.writeNumberField("pagesSkipped", query.getPagesSkipped());
+            generator.writeEndObject();
+        }
+    }
+
+    // Row indexes of the page's set bits, at most max of them
+    private static int matchingRows(int pageIndex, long[] matches, int[] rows, int max) {
+        int base = pageIndex * SheetQuery.PAGE_SIZE;
+        int count = 0;
+        for (int word = 0; word < matches.length && count < max; word++) {
+            for (long bits = matches[word]; bits != 0 && count < max; bits &= bits - 1) {
+                rows[count++] = base + (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return count;
+    }
+
+    private static void readValues(SheetVersion version, List<Column> projection, int[] rows, int count, Object[][] values) {
+        for (int i = 0; i < projection.size(); i++) {
+            ColumnStorage storage = version.storage(projection.get(i));
+            for (int row = 0; row < count; row++) {
+                values[i][row] = storage.get(rows[row]);
+            }
+        }
+    }
+}
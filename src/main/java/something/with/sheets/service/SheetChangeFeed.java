@@ -0,0 +1,280 @@
+package something.with.sheets.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import something.with.sheets.dto.CellChange;
+import something.with.sheets.dto.SheetChanges;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/*
+ * Fans cell changes out to Server-Sent Event subscribers. Writers publish each mutation's changed cells while
+ * they hold the sheet's locks, so publish never does I/O: it merges the cells into every subscriber's pending
+ * map, keyed by cell, so a burst of writes to the same cells collapses to their latest values. A subscriber's
+ * pending cells are sent by a sender thread flushInterval after the first of them arrived, one send in flight
+ * per subscriber. A send blocks while a slow client's socket is full, so the senders are a fixed pool of
+ * senderThreads, or one virtual thread per send when virtual threads are enabled; stalled clients then delay the
+ * others' sends instead of each holding a platform thread of its own. A subscriber that falls more than
+ * maxPending distinct cells behind has its pending cells dropped and is sent a resync event instead, which tells
+ * it to re-read the sheet, as is a subscriber offered a mutation too large to list; a slow client therefore
+ * costs bounded memory and never blocks a writer. Idle subscribers get a heartbeat comment, which is also how a
+ * client that disconnected without closing the stream is found and dropped.
+ *
+ * The feed is stopped before the web server's graceful shutdown, since open event streams would otherwise
+ * hold it until its timeout.
+ */
+@Component
+public class SheetChangeFeed implements SmartLifecycle {
+    private final long flushIntervalMillis;
+    private final int maxPending;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private volatile boolean running;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemon("sheet-events-timer"));
+    private final Executor senders;
+
+    @Autowired
+    public SheetChangeFeed(@Value("${sheets.events.flush-interval-ms:50}") long flushIntervalMillis,
+                           @Value("${sheets.events.max-pending:10000}") int maxPending,
+                           @Value("${sheets.events.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${sheets.events.heartbeat-ms:15000}") long heartbeatMillis,
+                           @Value("${sheets.events.sender-threads:8}") int senderThreads,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPending = maxPending;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.senders = virtualThreads ? new VirtualThreadTaskExecutor("sheet-events-sender-")
+            : Executors.newFixedThreadPool(senderThreads, daemon("sheet-events-sender"));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // The ready event carries the version the subscription starts from; later events have higher versions
+    public SseEmitter subscribe(String sheetId, LongSupplier currentVersion) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(sheetId, emitter);
+        // Added inside compute so it cannot race the removal of the last subscriber's empty set
+        subscribers.compute(sheetId, (id, watching) -> {
+            Set<Subscriber> set = watching != null ? watching : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        // Read once the subscriber is registered: a write that published before then already holds a version no
+        // higher than this one, and every later write reaches the subscriber
+        long version = currentVersion.getAsLong();
+        try {
+            emitter.send(SseEmitter.event().name("ready").data(new SheetChanges(version, List.of()), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            subscriber.close();
+            return emitter;
+        }
+        subscriber.ready(version);
+        return emitter;
+    }
+
+    // Null changes stand for a mutation too large to list; its subscribers are sent a resync
+    public void publish(String sheetId, long version, List<CellChange> changes) {
+        Set<Subscriber> watching = subscribers.get(sheetId);
+        if (watching == null) {
+            return;
+        }
+        for (Subscriber subscriber : watching) {
+            subscriber.offer(version, changes);
+        }
+    }
+
+    @Override
+    public void start() {
+        timer.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        timer.shutdownNow();
+        if (senders instanceof ExecutorService) {
+            ((ExecutorService) senders).shutdownNow();
+        }
+        for (Set<Subscriber> watching : subscribers.values()) {
+            for (Subscriber subscriber : watching) {
+                subscriber.close();
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void heartbeat() {
+        for (Set<Subscriber> watching : subscribers.values()) {
+            for (Subscriber subscriber : watching) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    private class Subscriber {
+        final String sheetId;
+        final SseEmitter emitter;
+        // Held only to merge or swap the pending cells, never across a send
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<String, CellChange> pending = new LinkedHashMap<>();
+        private long version;
+        private boolean resync;
+        // Set until the ready event is sent, so no flush can overtake it
+        private boolean scheduled = true;
+        private boolean closed;
+
+        Subscriber(String sheetId, SseEmitter emitter) {
+            this.sheetId = sheetId;
+            this.emitter = emitter;
+        }
+
+        void offer(long changeVersion, List<CellChange> changes) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                version = Math.max(version, changeVersion);
+                if (!resync) {
+                    if (changes != null) {
+                        for (CellChange change : changes) {
+                            pending.put(change.getColumnName() + ':' + change.getRowIndex(), change);
+                        }
+                    }
+                    if (changes == null || pending.size() > maxPending) {
+                        pending = new LinkedHashMap<>();
+                        resync = true;
+                    }
+                }
+                if (!scheduled) {
+                    scheduled = true;
+                    timer.schedule(() -> senders.execute(this::flush), flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Changes offered while the ready event was being sent go out with the next flush
+        void ready(long readyVersion) {
+            lock.lock();
+            try {
+                version = Math.max(version, readyVersion);
+                if (closed || (pending.isEmpty() && !resync)) {
+                    scheduled = false;
+                } else {
+                    timer.schedule(() -> senders.execute(this::flush), flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void heartbeat() {
+            lock.lock();
+            try {
+                if (!closed && !scheduled) {
+                    scheduled = true;
+                    senders.execute(this::flush);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush() {
+            List<CellChange> cells;
+            long sentVersion;
+            boolean sendResync;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                cells = new ArrayList<>(pending.values());
+                pending = new LinkedHashMap<>();
+                sentVersion = version;
+                sendResync = resync;
+                resync = false;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (cells.isEmpty() && !sendResync) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    SheetChanges data = new SheetChanges(sentVersion, sendResync ? List.of() : cells);
+                    emitter.send(SseEmitter.event()
+                        .id(Long.toString(sentVersion))
+                        .name(sendResync ? "resync" : "cells")
+                        .data(data, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the emitter's completion callback may not run for a dead connection
+                close();
+                emitter.completeWithError(e);
+                return;
+            }
+            lock.lock();
+            try {
+                if (closed || (pending.isEmpty() && !resync)) {
+                    scheduled = false;
+                } else {
+                    timer.schedule(() -> senders.execute(this::flush), flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                pending = new LinkedHashMap<>();
+            } finally {
+                lock.unlock();
+            }
+            subscribers.computeIfPresent(sheetId, (id, watching) -> {
+                watching.remove(this);
+                return watching.isEmpty() ? null : watching;
+            });
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package something.with.sheets.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import something.with.sheets.dto.ImportSheetResponse;
+import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.serialization.ImportRecord;
+import something.with.sheets.serialization.ImportRecordReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/*
+ * Bulk import: records are read from the upload one at a time and applied in batches of batchRows, each batch
+ * one mutation with a single version, log entry and durability wait. Record i is written to row startRow + i.
+ *
+ * Fields are converted column by column, straight into the column's type, and a batch large enough to pay for
+ * it converts its columns in parallel on the common fork-join pool. A record with any field that fails to
+ * convert or validate is skipped as a whole and reported; the rest of its batch is still applied. Batches are
+ * applied as they fill, so an import that fails part way keeps the batches before it.
+ */
+@Component
+public class SheetImporter {
+    private static final int PARALLEL_FIELDS = 8192;
+
+    private final SheetService sheetService;
+    private final SheetMetrics metrics;
+    private final int batchRows;
+    private final int maxErrors;
+
+    @Autowired
+    public SheetImporter(SheetService sheetService, SheetMetrics metrics,
+                         @Value("${sheets.import.batch-rows:10000}") int batchRows,
+                         @Value("${sheets.import.max-errors:100}") int maxErrors) {
+        this.sheetService = sheetService;
+        this.metrics = metrics;
+        this.batchRows = batchRows;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportSheetResponse importRows(String sheetId, ImportRecordReader reader, int startRow) throws IOException {
+        if (startRow < 0) {
+            throw new IllegalArgumentException("Start row must be non-negative");
+        }
+        try {
+            return metrics.time("import", () -> {
+                try {
+                    return doImport(sheetService.findSheet(sheetId), reader, startRow);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ImportSheetResponse doImport(Sheet sheet, ImportRecordReader reader, int startRow) throws IOException {
+        Progress progress = new Progress();
+        List<ImportRecord> batch = new ArrayList<>(batchRows);
+        for (ImportRecord record = reader.next(); record != null; record = reader.next()) {
+            batch.add(record);
+            if (batch.size() == batchRows) {
+                applyBatch(sheet, batch, startRow, progress);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            applyBatch(sheet, batch, startRow, progress);
+        }
+        return new ImportSheetResponse(progress.imported, progress.failed, progress.batches, sheet.getVersion(),
+            progress.errors);
+    }
+
+    private void applyBatch(Sheet sheet, List<ImportRecord> batch, int startRow, Progress progress) {
+        // Column slots in first-seen order; CSV records share one header, so this is usually the header
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        int fields = 0;
+        for (ImportRecord record : batch) {
+            for (String name : record.getNames()) {
+                slots.putIfAbsent(name, slots.size());
+            }
+            fields += record.getNames().length;
+        }
+        List<String> names = new ArrayList<>(slots.keySet());
+        SheetService.CellWrite[][] writes = new SheetService.CellWrite[names.size()][batch.size()];
+        SetCellValueRequest[][] requests = new SetCellValueRequest[names.size()][batch.size()];
+        String[][] errors = new String[names.size()][batch.size()];
+        IntStream columns = IntStream.range(0, names.size());
+        if (fields >= PARALLEL_FIELDS) {
+            columns = columns.parallel();
+        }
+        columns.forEach(slot -> convertColumn(sheet, names.get(slot), slot, batch, startRow, writes[slot], requests[slot], errors[slot]));
+
+        List<SheetService.CellWrite> accepted = new ArrayList<>(fields);
+        List<SetCellValueRequest> acceptedRequests = new ArrayList<>(fields);
+        List<Integer> acceptedRecords = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ImportRecord record = batch.get(i);
+            String error = record.getError() != null ? record.getError() : rowIndexError(record, startRow);
+            for (int slot = 0; slot < names.size() && error == null; slot++) {
+                error = errors[slot][i];
+            }
+            if (error != null) {
+                progress.fail(record, startRow, error);
+                continue;
+            }
+            for (int slot = 0; slot < names.size(); slot++) {
+                if (writes[slot][i] != null) {
+                    accepted.add(writes[slot][i]);
+                    acceptedRequests.add(requests[slot][i]);
+                }
+            }
+            acceptedRecords.add(i);
+        }
+        progress.batches++;
+        if (accepted.isEmpty()) {
+            progress.imported += acceptedRecords.size();
+            return;
+        }
+        try {
+            sheetService.applyPrepared(sheet, accepted, acceptedRequests);
+            progress.imported += acceptedRecords.size();
+        } catch (IllegalArgumentException e) {
+            // Checks that span rows, such as formula cycles, fail the batch's remaining records together
+            for (int i : acceptedRecords) {
+                progress.fail(batch.get(i), startRow, e.getMessage());
+            }
+        }
+    }
+
+    // The logged request carries the converted value, so replaying the log does not parse the upload again
+    private void convertColumn(Sheet sheet, String name, int slot, List<ImportRecord> batch, int startRow,
+                               SheetService.CellWrite[] writes, SetCellValueRequest[] requests, String[] errors) {
+        Column column = sheet.getColumns().get(name);
+        for (int i = 0; i < batch.size(); i++) {
+            ImportRecord record = batch.get(i);
+            Object raw = field(record, name, slot);
+            long rowIndex = startRow + record.getNumber();
+            if (raw == null || rowIndex > Integer.MAX_VALUE) {
+                continue;
+            }
+            if (column == null) {
+                errors[i] = "Column not found: " + name;
+                continue;
+            }
+            try {
+                Object value = record.isText() && !SheetService.isFormulaValue(raw)
+                    ? column.getColumnType().parseField((String) raw)
+                    : raw;
+                SetCellValueRequest request = new SetCellValueRequest();
+                request.setColumnName(name);
+                request.setRowIndex((int) rowIndex);
+                request.setValue(value);
+                writes[i] = sheetService.prepareWrite(sheet, request);
+                requests[i] = request;
+            } catch (IllegalArgumentException e) {
+                errors[i] = name + ": " + e.getMessage();
+            }
+        }
+    }
+
+    // Records that follow the batch's column order, like every CSV record, are matched without a search
+    private static Object field(ImportRecord record, String name, int slot) {
+        String[] names = record.getNames();
+        if (slot < names.length && names[slot].equals(name)) {
+            return record.getValues()[slot];
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return record.getValues()[i];
+            }
+        }
+        return null;
+    }
+
+    private static String rowIndexError(ImportRecord record, int startRow) {
+        return startRow + record.getNumber() > Integer.MAX_VALUE ? "Row index out of range" : null;
+    }
+
+    private class Progress {
+        long imported;
+        long failed;
+        int batches;
+        final List<ImportSheetResponse.RowError> errors = new ArrayList<>();
+
+        void fail(ImportRecord record, int startRow, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportSheetResponse.RowError(record.getNumber(), startRow + record.getNumber(), message));
+            }
+        }
+    }
+}
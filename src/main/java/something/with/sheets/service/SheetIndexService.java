@@ -0,0 +1,230 @@
+package something.with.sheets.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import something.with.sheets.dto.FindRowsResponse;
+import something.with.sheets.dto.IndexStatus;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.ColumnType;
+import something.with.sheets.model.storage.PagedColumnStorage;
+import something.with.sheets.model.storage.ValueFilter;
+import something.with.sheets.model.storage.ValueIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Secondary value indexes on columns. Creating an index registers it with the column's storage, which from
+ * then on keeps it in step with every write, and hands the column's existing values to a background builder
+ * that reads them a page at a time under the column's read lock, so writers are never held up by more than
+ * one page. Finds use a ready index and scan the column otherwise.
+ *
+ * Indexes live with the sheet's columns in memory. Their definitions are also kept here, so a sheet reloaded
+ * after being evicted from the cache gets its indexes rebuilt on the next find; they are not persisted, and
+ * after a restart indexes must be created again.
+ */
+@Component
+public class SheetIndexService {
+    private static final int WORDS = PagedColumnStorage.PAGE_SIZE >>> 6;
+
+    private final SheetService sheetService;
+    private final SheetMetrics metrics;
+    private final Map<String, Set<ValueIndex.Kind>> definitions = new ConcurrentHashMap<>();
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sheet-index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public SheetIndexService(SheetService sheetService, SheetMetrics metrics) {
+        this.sheetService = sheetService;
+        this.metrics = metrics;
+    }
+
+    // Returns at once; the index answers finds when its state is ready. Creating an existing index is a no-op
+    public IndexStatus createIndex(String sheetId, String columnName, String type) {
+        ValueIndex.Kind kind = parseKind(type);
+        Column column = findColumn(sheetId, columnName);
+        definitions.computeIfAbsent(key(sheetId, columnName), k -> ConcurrentHashMap.newKeySet()).add(kind);
+        return status(column, ensureIndex(column, kind));
+    }
+
+    public List<IndexStatus> getIndexes(String sheetId, String columnName) {
+        Column column = findColumn(sheetId, columnName);
+        PagedColumnStorage<?> storage = (PagedColumnStorage<?>) column.getStorage();
+        List<IndexStatus> statuses = new ArrayList<>();
+        for (ValueIndex.Kind kind : ValueIndex.Kind.values()) {
+            long stamp = column.getLock().readLock();
+            ValueIndex index;
+            try {
+                index = storage.getIndex(kind);
+            } finally {
+                column.getLock().unlockRead(stamp);
+            }
+            if (index != null) {
+                statuses.add(status(column, index));
+            }
+        }
+        return statuses;
+    }
+
+    // Rows equal to value, or within [from, to] when value is absent; at least one of the three is required
+    public FindRowsResponse find(String sheetId, String columnName, String value, String from, String to) {
+        return metrics.time("find", () -> {
+            Column column = findColumn(sheetId, columnName);
+            if (value == null && from == null && to == null) {
+                throw new IllegalArgumentException("Expected value, from or to");
+            }
+            ColumnType type = column.getColumnType();
+            Object equal = value != null ? type.parseField(value) : null;
+            Object low = from != null ? type.parseField(from) : null;
+            Object high = to != null ? type.parseField(to) : null;
+            if (equal == null && type == ColumnType.BOOLEAN) {
+                throw new IllegalArgumentException("Boolean columns only support value");
+            }
+            Set<ValueIndex.Kind> defined = definitions.get(key(sheetId, columnName));
+            if (defined != null) {
+                for (ValueIndex.Kind kind : defined) {
+                    ensureIndex(column, kind);
+                }
+            }
+            PagedColumnStorage<?> storage = (PagedColumnStorage<?>) column.getStorage();
+            long stamp = column.getLock().readLock();
+            try {
+                ValueIndex index = storage.getIndex(ValueIndex.Kind.SORTED);
+                if (equal != null) {
+                    ValueIndex hash = storage.getIndex(ValueIndex.Kind.HASH);
+                    index = hash != null && hash.isReady() ? hash : index;
+                }
+                if (index != null && index.isReady()) {
+                    int[] rows = equal != null ? index.find(equal) : index.range(low, high);
+                    return new FindRowsResponse(columnName, index.getKind().name().toLowerCase(Locale.ROOT), rows);
+                }
+            } finally {
+                column.getLock().unlockRead(stamp);
+            }
+            List<ValueFilter> filters = new ArrayList<>();
+            if (equal != null) {
+                filters.add(new ValueFilter(ValueFilter.Op.EQ, operand(equal)));
+            } else {
+                if (low != null) {
+                    filters.add(new ValueFilter(ValueFilter.Op.GE, operand(low)));
+                }
+                if (high != null) {
+                    filters.add(new ValueFilter(ValueFilter.Op.LE, operand(high)));
+                }
+            }
+            return new FindRowsResponse(columnName, null, scan(column, filters));
+        });
+    }
+
+    private Column findColumn(String sheetId, String columnName) {
+        Column column = sheetService.findSheet(sheetId).getColumns().get(columnName);
+        if (column == null) {
+            throw new IllegalArgumentException("Column not found");
+        }
+        return column;
+    }
+
+    private static ValueIndex.Kind parseKind(String type) {
+        if ("hash".equals(type)) {
+            return ValueIndex.Kind.HASH;
+        }
+        if ("sorted".equals(type)) {
+            return ValueIndex.Kind.SORTED;
+        }
+        throw new IllegalArgumentException("Unsupported index type, expected hash or sorted");
+    }
+
+    private static String key(String sheetId, String columnName) {
+        return sheetId + '\u0000' + columnName;
+    }
+
+    private static IndexStatus status(Column column, ValueIndex index) {
+        return new IndexStatus(column.getName(), index.getKind().name().toLowerCase(Locale.ROOT),
+            index.isReady() ? "ready" : "building", index.size());
+    }
+
+    // Registers the index under the write lock, so every later write maintains the pages it covers, then
+    // queues the build of the pages written before
+    private ValueIndex ensureIndex(Column column, ValueIndex.Kind kind) {
+        PagedColumnStorage<?> storage = (PagedColumnStorage<?>) column.getStorage();
+        ValueIndex index;
+        long stamp = column.getLock().writeLock();
+        try {
+            index = storage.getIndex(kind);
+            if (index != null) {
+                return index;
+            }
+            index = new ValueIndex(kind);
+            storage.addIndex(index);
+        } finally {
+            column.getLock().unlockWrite(stamp);
+        }
+        ValueIndex building = index;
+        builder.execute(() -> build(column, storage, building));
+        return index;
+    }
+
+    private static void build(Column column, PagedColumnStorage<?> storage, ValueIndex index) {
+        boolean complete = false;
+        for (int page = 0; !complete; page++) {
+            long stamp = column.getLock().readLock();
+            try {
+                complete = storage.indexPage(index, page);
+            } finally {
+                column.getLock().unlockRead(stamp);
+            }
+        }
+    }
+
+    // The filters' operands follow ValueFilter: numbers as doubles
+    private static Object operand(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : value;
+    }
+
+    private static int[] scan(Column column, List<ValueFilter> filters) {
+        PagedColumnStorage<?> storage = (PagedColumnStorage<?>) column.getStorage();
+        long[] matches = new long[WORDS];
+        long[] next = new long[WORDS];
+        int[] rows = new int[16];
+        int count = 0;
+        for (int page = 0; ; page++) {
+            long stamp = column.getLock().readLock();
+            try {
+                if (page >= storage.pageCount()) {
+                    break;
+                }
+                if (!storage.mayMatch(page, filters.get(0))) {
+                    continue;
+                }
+                storage.filterPage(page, filters.get(0), matches);
+                if (filters.size() > 1) {
+                    storage.filterPage(page, filters.get(1), next);
+                    for (int word = 0; word < WORDS; word++) {
+                        matches[word] &= next[word];
+                    }
+                }
+            } finally {
+                column.getLock().unlockRead(stamp);
+            }
+            for (int word = 0; word < WORDS; word++) {
+                for (long bits = matches[word]; bits != 0; bits &= bits - 1) {
+                    if (count == rows.length) {
+                        rows = Arrays.copyOf(rows, count * 2);
+                    }
+                    rows[count++] = page * PagedColumnStorage.PAGE_SIZE + (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+}
@@ -0,0 +1,86 @@
+package something.with.sheets.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * Service-level meters: a latency timer per sheet operation, failures by reason and the depth of the
+ * formula chains a write recomputes. Reads return materialized values, so the lookup chain cost is paid
+ * on the write path and is measured there.
+ */
+@Component
+public class SheetMetrics {
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> failures = new ConcurrentHashMap<>();
+    private final DistributionSummary chainDepth;
+
+    public SheetMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.chainDepth = DistributionSummary.builder("sheets.lookup.chain.depth")
+            .description("Longest chain of dependent formulas recomputed by a write")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    // A registry without children drops every measurement
+    public static SheetMetrics noop() {
+        return new SheetMetrics(new CompositeMeterRegistry());
+    }
+
+    public <T> T time(String operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return call.get();
+        } catch (IllegalArgumentException e) {
+            failure(e).increment();
+            throw e;
+        } finally {
+            sample.stop(timers.computeIfAbsent(operation, name -> Timer.builder("sheets.operations")
+                .description("Latency of sheet service operations")
+                .tag("operation", name)
+                .publishPercentileHistogram()
+                .register(registry)));
+        }
+    }
+
+    public void time(String operation, Runnable call) {
+        time(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public void recordChainDepth(int depth) {
+        chainDepth.record(depth);
+    }
+
+    private Counter failure(IllegalArgumentException e) {
+        return failures.computeIfAbsent(reason(e.getMessage()), reason -> Counter.builder("sheets.failures")
+            .description("Rejected sheet operations")
+            .tag("reason", reason)
+            .register(registry));
+    }
+
+    // Same message conventions the controller uses to pick a status code
+    static String reason(String message) {
+        if (message == null) {
+            return "validation";
+        }
+        if (message.contains("not found")) {
+            return "not_found";
+        }
+        if (message.contains("Cycle")) {
+            return "cycle";
+        }
+        return "validation";
+    }
+}
@@ -2,132 +2,575 @@ package something.with.sheets.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
 import something.with.sheets.dto.CreateSheetRequest;
 import something.with.sheets.dto.SetCellValueRequest;
 import something.with.sheets.model.Column;
 import something.with.sheets.model.Sheet;
+import something.with.sheets.model.SheetVersion;
+import something.with.sheets.model.storage.ColumnStorage;
+import something.with.sheets.persistence.SheetMutation;
 import something.with.sheets.repository.SheetRepository;
 import java.util.UUID;
 import something.with.sheets.model.Cell;
+import something.with.sheets.model.CellFormula;
+import something.with.sheets.model.CellRange;
+import something.with.sheets.model.Propagation;
+import something.with.sheets.dto.CellChange;
+import something.with.sheets.dto.SheetChanges;
+import something.with.sheets.dto.ColumnStatsResponse;
+import something.with.sheets.dto.QueryRequest;
+import something.with.sheets.query.PredicateParser;
+import something.with.sheets.query.RowPredicate;
+import something.with.sheets.query.SheetQuery;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import something.with.sheets.formula.CompiledFormula;
+import something.with.sheets.formula.FormulaCompiler;
+import something.with.sheets.formula.Reference;
 import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.GetSheetWindowResponse;
+import something.with.sheets.dto.SheetWindowRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class SheetService {
     private final SheetRepository sheetRepository;
+    private final FormulaCompiler formulaCompiler = new FormulaCompiler();
+    private final SheetMetrics metrics;
+    // Null when the service runs without a web layer, e.g. in tests and benchmarks
+    private final SheetChangeFeed changeFeed;
 
-    @Autowired
     public SheetService(SheetRepository sheetRepository) {
+        this(sheetRepository, null, null);
+    }
+
+    @Autowired
+    public SheetService(SheetRepository sheetRepository, SheetMetrics metrics, SheetChangeFeed changeFeed) {
         this.sheetRepository = sheetRepository;
+        this.metrics = metrics != null ? metrics : SheetMetrics.noop();
+        this.changeFeed = changeFeed;
     }
 
-    public String createSheet(CreateSheetRequest request) {
-        String id = UUID.randomUUID().toString();
-        Sheet sheet = Sheet.fromRequest(id, request);
+    // Rebuilds the in-memory sheets from the mutation log before the service takes requests
+    @PostConstruct
+    public void recover() {
+        Map<String, Long> snapshotVersions = new HashMap<>();
+        sheetRepository.replayMutations(mutation -> replay(mutation, snapshotVersions));
+    }
+
+    // Mutations are applied in log order. Those at or below the version the sheet's snapshot recorded are
+    // already in it; a running maximum would also drop a mutation logged after a higher version
+    private void replay(SheetMutation mutation, Map<String, Long> snapshotVersions) {
+        if (mutation.getType() == SheetMutation.Type.CREATE_SHEET) {
+            if (sheetRepository.findById(mutation.getSheetId()) == null) {
+                CreateSheetRequest request = new CreateSheetRequest();
+                request.setColumns(mutation.getColumns());
+                sheetRepository.save(Sheet.fromRequest(mutation.getSheetId(), request));
+            }
+            return;
+        }
+        Sheet sheet = sheetRepository.findById(mutation.getSheetId());
+        if (sheet == null) {
+            throw new IllegalStateException("Mutation log references unknown sheet " + mutation.getSheetId());
+        }
+        long snapshotVersion = snapshotVersions.computeIfAbsent(sheet.getId(), id -> sheet.getVersion());
+        if (mutation.getVersion() != null && mutation.getVersion() <= snapshotVersion) {
+            return;
+        }
+        applyBatch(sheet, mutation.getCells(), false);
+        if (mutation.getVersion() != null && mutation.getVersion() > sheet.getVersion()) {
+            sheet.setVersion(mutation.getVersion());
+        }
         sheetRepository.save(sheet);
-        return id;
+    }
+
+    public String createSheet(CreateSheetRequest request) {
+        return metrics.time("create", () -> {
+            String id = UUID.randomUUID().toString();
+            Sheet sheet = Sheet.fromRequest(id, request);
+            sheetRepository.save(sheet);
+            sheetRepository.awaitDurable(sheetRepository.appendMutation(SheetMutation.createSheet(id, request.getColumns())));
+            return id;
+        });
     }
 
     public void setCellValue(String sheetId, SetCellValueRequest request) {
+        metrics.time("set_cell", () -> doSetCellValue(sheetId, request));
+    }
+
+    private void doSetCellValue(String sheetId, SetCellValueRequest request) {
         Sheet sheet = sheetRepository.findById(sheetId);
         if (sheet == null) {
             throw new IllegalArgumentException("Sheet not found");
         }
+        CellWrite write = prepareWrite(sheet, request);
+        Supplier<Long> apply = () -> {
+            List<Cell> changed = new ArrayList<>();
+            metrics.recordChainDepth(applyWrites(List.of(write), changed));
+            return record(sheet, List.of(request), changed);
+        };
+        long sequence = write.isFormula()
+            ? sheet.writeLinked(apply)
+            : sheet.writeCell(write.column, write.rowIndex, apply);
+        sheetRepository.save(sheet);
+        sheetRepository.awaitDurable(sequence);
+    }
+
+    public void setCellValues(String sheetId, List<SetCellValueRequest> requests) {
+        metrics.time("set_cells", () -> doSetCellValues(sheetId, requests));
+    }
+
+    private void doSetCellValues(String sheetId, List<SetCellValueRequest> requests) {
+        Sheet sheet = sheetRepository.findById(sheetId);
+        if (sheet == null) {
+            throw new IllegalArgumentException("Sheet not found");
+        }
+        long sequence = applyBatch(sheet, requests, true);
+        sheetRepository.save(sheet);
+        sheetRepository.awaitDurable(sequence);
+    }
+
+    private long applyBatch(Sheet sheet, List<SetCellValueRequest> requests, boolean record) {
+        // Later entries for the same cell replace earlier ones, so only the final write per cell is applied
+        Map<Cell, CellWrite> writes = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                CellWrite write = prepareWrite(sheet, requests.get(i));
+                writes.remove(write.cell());
+                writes.put(write.cell(), write);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cell at index " + i + ": " + e.getMessage());
+            }
+        }
+        if (writes.isEmpty()) {
+            return 0;
+        }
+        return sheet.writeLinked(() -> {
+            List<Cell> changed = record ? changeList(sheet, writes.size()) : null;
+            int depth = applyWrites(new ArrayList<>(writes.values()), changed);
+            if (!record) {
+                return 0L;
+            }
+            metrics.recordChainDepth(depth);
+            return record(sheet, requests, changed);
+        });
+    }
+
+    // Applies writes already validated by prepareWrite, e.g. one batch of an import, as a single mutation
+    void applyPrepared(Sheet sheet, List<CellWrite> writes, List<SetCellValueRequest> requests) {
+        long sequence = sheet.writeLinked(() -> {
+            List<Cell> changed = changeList(sheet, writes.size());
+            metrics.recordChainDepth(applyWrites(writes, changed));
+            return record(sheet, requests, changed);
+        });
+        sheetRepository.save(sheet);
+        sheetRepository.awaitDurable(sequence);
+    }
+
+    Sheet findSheet(String sheetId) {
+        Sheet sheet = sheetRepository.findById(sheetId);
+        if (sheet == null) {
+            throw new IllegalArgumentException("Sheet not found");
+        }
+        return sheet;
+    }
+
+    // Called while the mutation's locks are held. Writes to different columns hold different locks, so the
+    // version is taken and the mutation appended under the sheet's sequencer, which keeps log order and
+    // version order the same
+    private long record(Sheet sheet, List<SetCellValueRequest> requests, List<Cell> changed) {
+        SheetMutation mutation = SheetMutation.setCells(sheet.getId(), requests);
+        return sheet.sequenced(() -> {
+            long version = sheet.nextVersion();
+            mutation.setVersion(version);
+            publish(sheet, version, changed);
+            return sheetRepository.appendMutation(mutation);
+        });
+    }
+
+    // Collects a mutation's changed cells only when the change log can hold them; a larger mutation would evict
+    // the whole log at once, so it is published without its cells (null) and clients fall back to a full read
+    private static List<Cell> changeList(Sheet sheet, int writes) {
+        return writes <= sheet.getChangeLog().getMaxCells() ? new ArrayList<>() : null;
+    }
+
+    // Called under the mutation's locks, so the values read are this version's
+    private void publish(Sheet sheet, long version, List<Cell> changed) {
+        if (changed == null) {
+            sheet.getChangeLog().skip(version);
+            if (changeFeed != null) {
+                changeFeed.publish(sheet.getId(), version, null);
+            }
+            return;
+        }
+        List<CellChange> changes = new ArrayList<>();
+        for (Cell cell : new LinkedHashSet<>(changed)) {
+            Column column = cell.getColumn();
+            changes.add(new CellChange(column.getName(), cell.getRowIndex(), column.getStorage().get(cell.getRowIndex())));
+        }
+        sheet.getChangeLog().append(version, changes);
+        if (changeFeed != null) {
+            changeFeed.publish(sheet.getId(), version, changes);
+        }
+    }
+
+    public long getSheetVersion(String sheetId) {
+        Sheet sheet = sheetRepository.findById(sheetId);
+        if (sheet == null) {
+            throw new IllegalArgumentException("Sheet not found");
+        }
+        return sheet.getVersion();
+    }
+
+    // Cells changed after version since, or null when the sheet's change log no longer reaches back that far
+    // (or since is newer than the sheet) and the client needs a full read
+    public SheetChanges getChanges(String sheetId, long since) {
+        return metrics.time("changes", () -> {
+            Sheet sheet = sheetRepository.findById(sheetId);
+            if (sheet == null) {
+                throw new IllegalArgumentException("Sheet not found");
+            }
+            if (since < 0 || since > sheet.getVersion()) {
+                return null;
+            }
+            return sheet.getChangeLog().since(since);
+        });
+    }
+
+    // Answered from the column's running summaries, so the cost does not depend on the number of rows
+    public ColumnStatsResponse getColumnStats(String sheetId, String columnName) {
+        return metrics.time("stats", () -> {
+            Column column = findSheet(sheetId).getColumns().get(columnName);
+            if (column == null) {
+                throw new IllegalArgumentException("Column not found");
+            }
+            return new ColumnStatsResponse(column.getName(), column.getType(), column.summary());
+        });
+    }
+
+    // Binds the filter and projection up front, so a bad query is rejected before any results are streamed
+    public SheetQuery prepareQuery(String sheetId, QueryRequest request) {
+        Sheet sheet = findSheet(sheetId);
+        if (request.getLimit() != null && request.getLimit() <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<Column> projection = new ArrayList<>();
+        if (request.getSelect() == null) {
+            projection.addAll(sheet.getColumns().values());
+        } else {
+            for (String name : request.getSelect()) {
+                Column column = sheet.getColumns().get(name);
+                if (column == null) {
+                    throw new IllegalArgumentException("Column not found: " + name);
+                }
+                projection.add(column);
+            }
+        }
+        // Filter and projection read this one version; the query releases it when closed
+        SheetVersion version = sheet.pin();
+        try {
+            RowPredicate predicate = PredicateParser.parse(request.getWhere(), sheet.getColumns(), version);
+            int rowCount = 0;
+            for (Column column : sheet.getColumns().values()) {
+                rowCount = Math.max(rowCount, version.size(column));
+            }
+            return new SheetQuery(version, predicate, projection, rowCount, request.getLimit(), ForkJoinPool.commonPool());
+        } catch (RuntimeException e) {
+            version.close();
+            throw e;
+        }
+    }
+
+    public SseEmitter subscribe(String sheetId) {
+        Sheet sheet = sheetRepository.findById(sheetId);
+        if (sheet == null || changeFeed == null) {
+            throw new IllegalArgumentException("Sheet not found");
+        }
+        return changeFeed.subscribe(sheetId, sheet::getVersion);
+    }
+
+    // A plain value is a formula only in the legacy lookup(...) form, so any other string, "=abc" included, is
+    // stored as it is. Other expressions are sent in the request's formula field
+    static boolean isFormulaValue(Object value) {
+        return value instanceof String && ((String) value).startsWith("lookup(");
+    }
+
+    // Validates a request without touching the sheet, so a batch can be rejected before anything is applied
+    CellWrite prepareWrite(Sheet sheet, SetCellValueRequest request) {
         Column column = sheet.getColumns().get(request.getColumnName());
         if (column == null) {
             throw new IllegalArgumentException("Column not found");
         }
+        if (request.getRowIndex() < 0) {
+            throw new IllegalArgumentException("Row index must be non-negative");
+        }
+        if (request.getRowIndex() > ColumnStorage.MAX_ROW_INDEX) {
+            throw new IllegalArgumentException("Row index must be at most " + ColumnStorage.MAX_ROW_INDEX);
+        }
         Object value = request.getValue();
-        String type = column.getType();
-        if (isLookupValue(value)) {
-            handleLookupValue(sheet, column, request, value, type);
-        } else {
-            handleNormalValue(column, request, value, type);
+        if (request.getFormula() != null && value != null) {
+            throw new IllegalArgumentException("Set either value or formula, not both");
         }
-        sheetRepository.save(sheet);
+        if (request.getFormula() == null && !isFormulaValue(value)) {
+            return new CellWrite(column, request.getRowIndex(), column.getColumnType().coerce(value), null);
+        }
+        String text = request.getFormula() != null ? request.getFormula() : (String) value;
+        CompiledFormula compiled = formulaCompiler.compile(text.startsWith("=") ? text.substring(1) : text);
+        List<Reference> references = compiled.getReferences();
+        Column[] refColumns = new Column[references.size()];
+        for (int i = 0; i < refColumns.length; i++) {
+            Column refColumn = sheet.getColumns().get(references.get(i).getColumnName());
+            if (refColumn == null) throw new IllegalArgumentException("Referenced column not found");
+            if (compiled.isPlainLookup() && !column.getType().equals(refColumn.getType())) {
+                throw new IllegalArgumentException("Type mismatch for lookup: " + column.getType() + " vs " + refColumn.getType());
+            }
+            if (!compiled.isPlainLookup() && !refColumn.getColumnType().isNumeric()) {
+                throw new IllegalArgumentException("Type mismatch for formula: column " + refColumn.getName() + " is not numeric");
+            }
+            refColumns[i] = refColumn;
+        }
+        if (!compiled.isPlainLookup() && !column.getColumnType().isNumeric()) {
+            throw new IllegalArgumentException("Type mismatch for formula: numeric result vs " + column.getType());
+        }
+        return new CellWrite(column, request.getRowIndex(), null, new CellFormula(compiled, refColumns));
     }
 
-    private boolean isLookupValue(Object value) {
-        return value instanceof String && ((String) value).startsWith("lookup(");
+    // Must run under the sheet's exclusive lock: checks cycles against the edges as they will be after the
+    // writes, then detaches every written cell first so no intermediate state can contain a cycle.
+    // A lone value write may instead run under its column's lock, as it has no edges to check or detach.
+    // Returns the deepest formula chain the writes recomputed; written and recomputed cells are added to
+    // changed unless it is null
+    private int applyWrites(List<CellWrite> writes, List<Cell> changed) {
+        if (writes.size() == 1 && !writes.get(0).isFormula()) {
+            return apply(writes.get(0), changed);
+        }
+        checkCycles(writes);
+        for (CellWrite write : writes) {
+            write.cell().clearLookup();
+        }
+        int depth = 0;
+        for (CellWrite write : writes) {
+            if (!write.isFormula()) {
+                depth = Math.max(depth, apply(write, changed));
+            }
+        }
+        for (CellWrite write : writes) {
+            if (write.isFormula()) {
+                depth = Math.max(depth, apply(write, changed));
+            }
+        }
+        return depth;
     }
 
-    private void handleLookupValue(Sheet sheet, Column column, SetCellValueRequest request, Object value, String type) {
-        LookupReference ref = parseLookupReference((String) value);
-        Column refColumn = sheet.getColumns().get(ref.refCol);
-        if (refColumn == null) throw new IllegalArgumentException("Referenced column not found");
-        Cell refCell = refColumn.getOrCreateCell(ref.refRow);
-        if (!type.equals(refColumn.getType())) {
-            throw new IllegalArgumentException("Type mismatch for lookup: " + type + " vs " + refColumn.getType());
-        }
-        Cell targetCell = column.getOrCreateCell(request.getRowIndex());
-        if (refCell == targetCell || refCell.hasCycle(targetCell)) {
-            throw new IllegalArgumentException("Cycle detected in lookup");
+    private int apply(CellWrite write, List<Cell> changed) {
+        Propagation propagation = write.apply();
+        if (changed != null) {
+            changed.add(write.cell());
+            changed.addAll(propagation.getRecomputed());
         }
-        targetCell.setLookup(refCell);
+        return propagation.getDepth();
     }
 
-    private void handleNormalValue(Column column, SetCellValueRequest request, Object value, String type) {
-        Cell cell = column.getOrCreateCell(request.getRowIndex());
-        cell.clearLookup();
-        if (!isValueOfType(value, type)) {
-            throw new IllegalArgumentException("Value does not match column type: " + type);
+    // Depth-first search over the formula graph with the batch's writes overlaid on the existing edges
+    private void checkCycles(List<CellWrite> writes) {
+        Map<Cell, CellFormula> staged = new HashMap<>();
+        for (CellWrite write : writes) {
+            staged.put(write.cell(), write.formula);
+        }
+        Set<Cell> done = new HashSet<>();
+        for (CellWrite write : writes) {
+            if (!write.isFormula() || done.contains(write.cell())) {
+                continue;
+            }
+            Set<Cell> onPath = new HashSet<>();
+            Deque<Cell> path = new ArrayDeque<>();
+            Deque<Iterator<Cell>> pending = new ArrayDeque<>();
+            onPath.add(write.cell());
+            path.push(write.cell());
+            pending.push(references(write.cell(), staged).iterator());
+            while (!path.isEmpty()) {
+                Iterator<Cell> next = pending.peek();
+                if (!next.hasNext()) {
+                    Cell finished = path.pop();
+                    pending.pop();
+                    onPath.remove(finished);
+                    done.add(finished);
+                    continue;
+                }
+                Cell cell = next.next();
+                if (onPath.contains(cell)) {
+                    throw new IllegalArgumentException("Cycle detected in lookup");
+                }
+                if (done.contains(cell)) {
+                    continue;
+                }
+                onPath.add(cell);
+                path.push(cell);
+                pending.push(references(cell, staged).iterator());
+            }
         }
-        cell.setValue(value);
     }
 
-    private LookupReference parseLookupReference(String lookupStr) {
-        // Parse lookup("A",10) or lookup(A,10)
-        String inner = lookupStr.substring(7, lookupStr.length() - 1).trim();
-        String[] parts = inner.split(",");
-        if (parts.length != 2) throw new IllegalArgumentException("Invalid lookup syntax");
-        String refCol = parts[0].replaceAll("[\"']", "").trim();
-        int refRow;
-        try {
-            refRow = Integer.parseInt(parts[1].trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid row index in lookup");
+    // Formula cells a cell reads, as they will be once the staged writes are applied
+    private List<Cell> references(Cell cell, Map<Cell, CellFormula> staged) {
+        CellFormula formula = staged.containsKey(cell) ? staged.get(cell) : cell.getColumn().getFormula(cell.getRowIndex());
+        if (formula == null) {
+            return List.of();
+        }
+        List<Cell> cells = new ArrayList<>();
+        for (CellRange reference : formula.getReferences()) {
+            Column refColumn = reference.getColumn();
+            if (reference.getFromRow() == reference.getToRow()) {
+                cells.add(new Cell(refColumn, reference.getFromRow()));
+                continue;
+            }
+            for (Integer row : refColumn.getFormulaRows(reference.getFromRow(), reference.getToRow())) {
+                cells.add(new Cell(refColumn, row));
+            }
+            for (Map.Entry<Cell, CellFormula> entry : staged.entrySet()) {
+                if (entry.getValue() != null && reference.contains(entry.getKey())) {
+                    cells.add(entry.getKey());
+                }
+            }
         }
-        return new LookupReference(refCol, refRow);
+        return cells;
     }
 
-    private static class LookupReference {
-        String refCol;
-        int refRow;
-        LookupReference(String refCol, int refRow) {
-            this.refCol = refCol;
-            this.refRow = refRow;
+    static class CellWrite {
+        final Column column;
+        final int rowIndex;
+        final Object value;
+        final CellFormula formula;
+
+        CellWrite(Column column, int rowIndex, Object value, CellFormula formula) {
+            this.column = column;
+            this.rowIndex = rowIndex;
+            this.value = value;
+            this.formula = formula;
+        }
+
+        boolean isFormula() {
+            return formula != null;
+        }
+
+        Cell cell() {
+            return new Cell(column, rowIndex);
+        }
+
+        Propagation apply() {
+            return isFormula() ? column.setCellFormula(rowIndex, formula) : column.setCell(rowIndex, value);
         }
     }
 
     public GetSheetResponse getSheetById(String sheetId) {
+        return metrics.time("get", () -> doGetSheetById(sheetId));
+    }
+
+    private GetSheetResponse doGetSheetById(String sheetId) {
+        Sheet sheet = sheetRepository.findById(sheetId);
+        if (sheet == null) {
+            throw new IllegalArgumentException("Sheet not found");
+        }
+        // Pinned so the response holds one version of every column however long it takes to write
+        SheetVersion pinned = sheet.pin();
+        try {
+            List<GetSheetResponse.ColumnData> columns = sheet.getColumns().values().stream()
+                .map(col -> new GetSheetResponse.ColumnData(
+                    col.getName(),
+                    col.getType(),
+                    pinned.values(col)
+                ))
+                .collect(Collectors.toList());
+            return new GetSheetResponse(sheet.getId(), columns, pinned);
+        } catch (RuntimeException e) {
+            pinned.close();
+            throw e;
+        }
+    }
+
+    public GetSheetWindowResponse getSheetWindow(String sheetId, SheetWindowRequest window) {
+        return metrics.time("get_window", () -> doGetSheetWindow(sheetId, window));
+    }
+
+    private GetSheetWindowResponse doGetSheetWindow(String sheetId, SheetWindowRequest window) {
         Sheet sheet = sheetRepository.findById(sheetId);
         if (sheet == null) {
             throw new IllegalArgumentException("Sheet not found");
         }
-        List<GetSheetResponse.ColumnData> columns = sheet.getColumns().values().stream()
-            .map(col -> new GetSheetResponse.ColumnData(
-                col.getName(),
-                col.getType(),
-                col.getCells().stream().map(cell -> cell != null ? cell.getValue() : null).collect(Collectors.toList())
-            ))
-            .collect(Collectors.toList());
-        return new GetSheetResponse(sheet.getId(), columns);
-    }
-
-    private boolean isValueOfType(Object value, String type) {
-        if (value == null) return false;
-        switch (type) {
-            case "int":
-                return value instanceof Integer || (value instanceof Number && ((Number) value).intValue() == ((Number) value).doubleValue());
-            case "boolean":
-                return value instanceof Boolean;
-            case "string":
-                return value instanceof String;
-            case "double":
-                return value instanceof Double || value instanceof Float || value instanceof Integer || value instanceof Long;
-            default:
-                return false;
-        }
-    }
-} 
\ No newline at end of file
+        List<Column> selected = new ArrayList<>();
+        if (window.getColumns() == null) {
+            selected.addAll(sheet.getColumns().values());
+        } else {
+            for (String name : window.getColumns()) {
+                Column column = sheet.getColumns().get(name.trim());
+                if (column == null) {
+                    throw new IllegalArgumentException("Column not found: " + name);
+                }
+                selected.add(column);
+            }
+        }
+        int fromRow = window.getCursor() != null ? decodeCursor(window.getCursor())
+            : window.getFromRow() != null ? window.getFromRow() : 0;
+        SheetVersion pinned = sheet.pin();
+        try {
+            int rowCount = 0;
+            for (Column column : selected) {
+                rowCount = Math.max(rowCount, pinned.size(column));
+            }
+            int toRow = window.getToRow() != null ? window.getToRow() : rowCount;
+            if (window.getLimit() != null) {
+                if (window.getLimit() <= 0) {
+                    throw new IllegalArgumentException("Limit must be positive");
+                }
+                toRow = (int) Math.min(toRow, (long) fromRow + window.getLimit());
+            }
+            if (fromRow < 0 || toRow < fromRow) {
+                throw new IllegalArgumentException("Invalid row range");
+            }
+            int endRow = Math.min(toRow, rowCount);
+            int windowFrom = Math.min(fromRow, endRow);
+            List<GetSheetResponse.ColumnData> columns = selected.stream()
+                .map(col -> new GetSheetResponse.ColumnData(col.getName(), col.getType(), pinned.values(col, windowFrom, endRow)))
+                .collect(Collectors.toList());
+            int lastRow = window.getToRow() != null ? Math.min(window.getToRow(), rowCount) : rowCount;
+            boolean paginated = window.getLimit() != null || window.getCursor() != null;
+            String nextCursor = paginated && endRow < lastRow ? encodeCursor(endRow) : null;
+            return new GetSheetWindowResponse(sheet.getId(), columns, windowFrom, endRow, rowCount, nextCursor, pinned);
+        } catch (RuntimeException e) {
+            pinned.close();
+            throw e;
+        }
+    }
+
+    // Cursors are opaque to clients; they carry the first row of the next page
+    private static String encodeCursor(int row) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("row:" + row).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith("row:")) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Integer.parseInt(decoded.substring(4));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package something.with.sheets.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import something.with.sheets.repository.SheetRepository;
+
+// Periodically snapshots all sheets so the mutation log, and with it restart time, stays short
+@Component
+@ConditionalOnProperty(name = "sheets.persistence.mode", havingValue = "wal")
+public class SnapshotScheduler {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+    private final SheetRepository sheetRepository;
+
+    @Autowired
+    public SnapshotScheduler(SheetRepository sheetRepository) {
+        this.sheetRepository = sheetRepository;
+    }
+
+    @Scheduled(initialDelayString = "${sheets.snapshot.interval-ms:300000}", fixedDelayString = "${sheets.snapshot.interval-ms:300000}")
+    public void snapshot() {
+        try {
+            sheetRepository.snapshot();
+        } catch (RuntimeException e) {
+            // The rotated log segments are kept, so nothing is lost; the next run tries again
+            log.error("Snapshot failed", e);
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import something.with.sheets.dto.ColumnDto;
@@ -13,9 +16,21 @@ import something.with.sheets.dto.CreateSheetRequest;
 import something.with.sheets.dto.CreateSheetResponse;
 import something.with.sheets.dto.GetSheetResponse;
 import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.dto.SetCellValuesRequest;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"sheets.events.flush-interval-ms=500", "sheets.import.max-record-chars=1000"})
 class SheetControllerIntegrationTest {
     @LocalServerPort
     private int port;
@@ -109,4 +124,302 @@ class SheetControllerIntegrationTest {
         assertThat(colAData.getValues().get(0)).isEqualTo(42);
         assertThat(colBData.getValues().get(0)).isEqualTo(42);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void events_StreamChangedCellsWithRecomputedLookups() throws Exception {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        var colB = new ColumnDto();
+        colB.setName("B");
+        colB.setType("int");
+        request.setColumns(java.util.Arrays.asList(colA, colB));
+        String sheetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        SetCellValueRequest setB = new SetCellValueRequest();
+        setB.setRowIndex(0);
+        setB.setColumnName("B");
+        setB.setValue("lookup(A,0)");
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", setB, Void.class);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<java.util.stream.Stream<String>> events = client.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/" + sheetId + "/events")).build(),
+            HttpResponse.BodyHandlers.ofLines());
+        assertThat(events.statusCode()).isEqualTo(200);
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> events.body().forEach(lines::add));
+        reader.setDaemon(true);
+        reader.start();
+        assertThat(nextData(lines)).contains("\"version\":1");
+
+        // Two writes to the same cell inside one flush interval arrive as one change with the latest value
+        SetCellValueRequest setA = new SetCellValueRequest();
+        setA.setRowIndex(0);
+        setA.setColumnName("A");
+        setA.setValue(1);
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", setA, Void.class);
+        setA.setValue(7);
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", setA, Void.class);
+        String data = nextData(lines);
+        assertThat(data).contains("\"version\":3");
+        assertThat(data).contains("{\"columnName\":\"A\",\"rowIndex\":0,\"value\":7}");
+        assertThat(data).contains("{\"columnName\":\"B\",\"rowIndex\":0,\"value\":7}");
+        assertThat(data).doesNotContain("\"value\":1}");
+        events.body().close();
+
+        assertThat(restTemplate.getForEntity(baseUrl + "/missing/events", String.class).getStatusCode())
+            .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void getSheetById_RevalidatesByVersionAndChangesReturnOnlyNewCells() {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        var colB = new ColumnDto();
+        colB.setName("B");
+        colB.setType("int");
+        request.setColumns(java.util.Arrays.asList(colA, colB));
+        String sheetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        SetCellValueRequest cell = new SetCellValueRequest();
+        cell.setRowIndex(0);
+        cell.setColumnName("B");
+        cell.setValue("lookup(A,0)");
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+
+        ResponseEntity<String> first = restTemplate.getForEntity(baseUrl + "/" + sheetId, String.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isEqualTo("\"1\"");
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(etag);
+        ResponseEntity<String> unchanged = restTemplate.exchange(baseUrl + "/" + sheetId, HttpMethod.GET,
+            new HttpEntity<>(conditional), String.class);
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+
+        cell.setColumnName("A");
+        cell.setValue(5);
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+        ResponseEntity<String> changed = restTemplate.exchange(baseUrl + "/" + sheetId, HttpMethod.GET,
+            new HttpEntity<>(conditional), String.class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isEqualTo("\"2\"");
+
+        String changes = restTemplate.getForObject(baseUrl + "/" + sheetId + "/changes?since=1", String.class);
+        assertThat(changes).isEqualTo("{\"id\":\"" + sheetId + "\",\"version\":2,\"full\":false,\"cells\":["
+            + "{\"columnName\":\"A\",\"rowIndex\":0,\"value\":5},{\"columnName\":\"B\",\"rowIndex\":0,\"value\":5}]}");
+        // A version the sheet has not reached (e.g. from before a restart) cannot be caught up from, so this is a full read
+        String full = restTemplate.getForObject(baseUrl + "/" + sheetId + "/changes?since=7", String.class);
+        assertThat(full).startsWith("{\"id\":\"" + sheetId + "\",\"version\":2,\"full\":true,\"columns\":[");
+    }
+
+    private static String nextData(BlockingQueue<String> lines) throws InterruptedException {
+        while (true) {
+            String line = lines.poll(10, TimeUnit.SECONDS);
+            assertThat(line).as("next server-sent event").isNotNull();
+            if (line.startsWith("data:")) {
+                return line.substring(5);
+            }
+        }
+    }
+
+    @Test
+    void importRows_AppliesCsvAndNdjsonAndReportsRowErrors() {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        var colB = new ColumnDto();
+        colB.setName("B");
+        colB.setType("string");
+        request.setColumns(java.util.Arrays.asList(colA, colB));
+        String sheetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+
+        HttpHeaders csv = new HttpHeaders();
+        csv.setContentType(org.springframework.http.MediaType.parseMediaType("text/csv"));
+        ResponseEntity<String> imported = restTemplate.postForEntity(baseUrl + "/" + sheetId + "/import",
+            new HttpEntity<>("A,B\n1,x\nnope,y\n3,\"lookup(B,0)\"\n", csv), String.class);
+        assertThat(imported.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(imported.getBody()).contains("\"importedRows\":2", "\"failedRows\":1", "\"rowIndex\":1");
+
+        HttpHeaders ndjson = new HttpHeaders();
+        ndjson.setContentType(org.springframework.http.MediaType.parseMediaType("application/x-ndjson"));
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/import?startRow=3",
+            new HttpEntity<>("{\"A\":4}\n", ndjson), String.class);
+        GetSheetResponse sheet = restTemplate.getForObject(baseUrl + "/" + sheetId, GetSheetResponse.class);
+        assertThat(sheet.getColumns().get(0).getValues()).containsExactly(1, null, 3, 4);
+        assertThat(sheet.getColumns().get(1).getValues()).containsExactly("x", null, "x");
+
+        ResponseEntity<String> missing = restTemplate.postForEntity(baseUrl + "/missing/import?format=csv",
+            new HttpEntity<>("A\n1\n", csv), String.class);
+        assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        ResponseEntity<String> unterminated = restTemplate.postForEntity(baseUrl + "/" + sheetId + "/import",
+            new HttpEntity<>("A,B\n5,\"" + "x".repeat(2000), csv), String.class);
+        assertThat(unterminated.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(unterminated.getBody()).isEqualTo("Record 0 is longer than 1000 characters");
+    }
+
+    @Test
+    void exportSheet_RoundTripsThroughImport() {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        var colB = new ColumnDto();
+        colB.setName("B");
+        colB.setType("int");
+        request.setColumns(java.util.Arrays.asList(colA, colB));
+        String sourceId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        String targetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        SetCellValueRequest cell = new SetCellValueRequest();
+        cell.setColumnName("A");
+        cell.setRowIndex(2);
+        cell.setValue(9);
+        restTemplate.postForEntity(baseUrl + "/" + sourceId + "/cell", cell, Void.class);
+        cell.setColumnName("B");
+        cell.setRowIndex(0);
+        cell.setValue("lookup(A,2)");
+        restTemplate.postForEntity(baseUrl + "/" + sourceId + "/cell", cell, Void.class);
+
+        for (String format : new String[] {"csv", "ndjson"}) {
+            ResponseEntity<String> exported = restTemplate.getForEntity(baseUrl + "/" + sourceId + "/export?format=" + format, String.class);
+            assertThat(exported.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(exported.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).contains(sourceId + "." + format);
+            restTemplate.postForEntity(baseUrl + "/" + targetId + "/import?format=" + format,
+                new HttpEntity<>(exported.getBody()), String.class);
+            GetSheetResponse target = restTemplate.getForObject(baseUrl + "/" + targetId, GetSheetResponse.class);
+            assertThat(target.getColumns().get(0).getValues()).containsExactly(null, null, 9);
+            assertThat(target.getColumns().get(1).getValues()).containsExactly(9);
+        }
+        assertThat(restTemplate.getForEntity(baseUrl + "/" + sourceId + "/export?format=columnar", byte[].class).getBody())
+            .startsWith("SHEETCOL".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        assertThat(restTemplate.getForEntity(baseUrl + "/" + sourceId + "/export?format=xml", String.class).getStatusCode())
+            .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void columnStats_ReflectWritesAndRecomputedLookups() {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        var colB = new ColumnDto();
+        colB.setName("B");
+        colB.setType("string");
+        request.setColumns(java.util.Arrays.asList(colA, colB));
+        String sheetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        SetCellValueRequest cell = new SetCellValueRequest();
+        cell.setColumnName("A");
+        cell.setRowIndex(0);
+        cell.setValue(4);
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+        cell.setRowIndex(3);
+        cell.setValue("lookup(A,0)");
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+        cell.setRowIndex(0);
+        cell.setValue(-2);
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+        cell.setColumnName("B");
+        cell.setValue("x");
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+
+        Map<?, ?> ints = restTemplate.getForObject(baseUrl + "/" + sheetId + "/columns/A/stats", Map.class);
+        assertThat(ints.get("count")).isEqualTo(4);
+        assertThat(ints.get("nonNullCount")).isEqualTo(2);
+        assertThat(ints.get("sum")).isEqualTo(-4);
+        assertThat(ints.get("min")).isEqualTo(-2);
+        assertThat(ints.get("max")).isEqualTo(-2);
+        assertThat(ints.get("avg")).isEqualTo(-2.0);
+        assertThat(ints.containsKey("distinctCount")).isFalse();
+        Map<?, ?> strings = restTemplate.getForObject(baseUrl + "/" + sheetId + "/columns/B/stats", Map.class);
+        assertThat(strings.get("distinctCount")).isEqualTo(1);
+        assertThat(strings.containsKey("sum")).isFalse();
+        assertThat(restTemplate.getForEntity(baseUrl + "/" + sheetId + "/columns/C/stats", String.class).getStatusCode())
+            .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void query_StreamsMatchingRowsWithProjectedValues() {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        var colB = new ColumnDto();
+        colB.setName("B");
+        colB.setType("boolean");
+        request.setColumns(java.util.Arrays.asList(colA, colB));
+        String sheetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        var cells = new java.util.ArrayList<SetCellValueRequest>();
+        for (int row = 0; row < 6; row++) {
+            SetCellValueRequest a = new SetCellValueRequest();
+            a.setColumnName("A");
+            a.setRowIndex(row);
+            a.setValue(row * 100);
+            SetCellValueRequest b = new SetCellValueRequest();
+            b.setColumnName("B");
+            b.setRowIndex(row);
+            b.setValue(row % 2 == 1);
+            cells.add(a);
+            cells.add(b);
+        }
+        var batch = new SetCellValuesRequest();
+        batch.setCells(cells);
+        restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cells", batch, Void.class);
+
+        Map<?, ?> result = restTemplate.postForObject(baseUrl + "/" + sheetId + "/query",
+            Map.of("where", "A > 100 and B = true", "select", List.of("A")), Map.class);
+        assertThat(result.get("columns")).isEqualTo(List.of("A"));
+        assertThat(result.get("rows")).isEqualTo(List.of(
+            Map.of("row", 3, "values", List.of(300)),
+            Map.of("row", 5, "values", List.of(500))));
+        assertThat(result.get("matchedRows")).isEqualTo(2);
+        assertThat(result.get("limitReached")).isEqualTo(false);
+
+        Map<?, ?> limited = restTemplate.postForObject(baseUrl + "/" + sheetId + "/query",
+            Map.of("where", "not (A = 0)", "limit", 2), Map.class);
+        assertThat(limited.get("rows")).isEqualTo(List.of(
+            Map.of("row", 1, "values", java.util.Arrays.asList(100, true)),
+            Map.of("row", 2, "values", java.util.Arrays.asList(200, false))));
+        assertThat(limited.get("limitReached")).isEqualTo(true);
+
+        assertThat(restTemplate.postForEntity(baseUrl + "/" + sheetId + "/query", Map.of("where", "A >"), String.class)
+            .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.postForEntity(baseUrl + "/missing/query", Map.of("where", "A > 1"), String.class)
+            .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void indexes_AnswerFindsOnceBuilt() throws Exception {
+        var request = new CreateSheetRequest();
+        var colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        request.setColumns(List.of(colA));
+        String sheetId = restTemplate.postForEntity(baseUrl, request, CreateSheetResponse.class).getBody().getId();
+        SetCellValueRequest cell = new SetCellValueRequest();
+        cell.setColumnName("A");
+        for (int row = 0; row < 4; row++) {
+            cell.setRowIndex(row);
+            cell.setValue(row % 2 == 0 ? 7 : 9);
+            restTemplate.postForEntity(baseUrl + "/" + sheetId + "/cell", cell, Void.class);
+        }
+
+        String indexes = baseUrl + "/" + sheetId + "/columns/A/indexes";
+        assertThat(restTemplate.postForEntity(indexes, Map.of("type", "sorted"), Map.class).getStatusCode().is2xxSuccessful()).isTrue();
+        for (int attempt = 0; attempt < 100 && !restTemplate.getForObject(indexes, String.class).contains("ready"); attempt++) {
+            Thread.sleep(20);
+        }
+        Map<?, ?> found = restTemplate.getForObject(baseUrl + "/" + sheetId + "/columns/A/find?value=7", Map.class);
+        assertThat(found.get("index")).isEqualTo("sorted");
+        assertThat(found.get("rows")).isEqualTo(List.of(0, 2));
+        Map<?, ?> range = restTemplate.getForObject(baseUrl + "/" + sheetId + "/columns/A/find?from=8", Map.class);
+        assertThat(range.get("rows")).isEqualTo(List.of(1, 3));
+        assertThat(restTemplate.postForEntity(indexes, Map.of("type", "btree"), String.class).getStatusCode())
+            .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity(baseUrl + "/" + sheetId + "/columns/Z/find?value=1", String.class).getStatusCode())
+            .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
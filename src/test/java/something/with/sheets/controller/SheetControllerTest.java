@@ -11,7 +11,11 @@ import something.with.sheets.dto.ColumnDto;
 import something.with.sheets.dto.CreateSheetRequest;
 import something.with.sheets.service.SheetService;
 import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.dto.SetCellValuesRequest;
 import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.GetSheetWindowResponse;
+import something.with.sheets.dto.SheetWindowRequest;
+import something.with.sheets.serialization.SheetColumnarWriter;
 
 import java.util.Arrays;
 
@@ -134,4 +138,77 @@ class SheetControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("Some other error")));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void setCellValues_Success() throws Exception {
+        SetCellValueRequest cell = new SetCellValueRequest();
+        cell.setRowIndex(0);
+        cell.setColumnName("A");
+        cell.setValue(true);
+        SetCellValuesRequest req = new SetCellValuesRequest();
+        req.setCells(Arrays.asList(cell, cell));
+        org.mockito.Mockito.doNothing().when(sheetService).setCellValues(org.mockito.Mockito.anyString(), org.mockito.Mockito.anyList());
+        mockMvc.perform(post("/sheets/sheet-1/cells")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void setCellValues_InvalidEntry() throws Exception {
+        SetCellValuesRequest req = new SetCellValuesRequest();
+        req.setCells(Arrays.asList(new SetCellValueRequest()));
+        org.mockito.Mockito.doThrow(new IllegalArgumentException("Invalid cell at index 0: Cycle detected in lookup"))
+                .when(sheetService).setCellValues(org.mockito.Mockito.anyString(), org.mockito.Mockito.anyList());
+        mockMvc.perform(post("/sheets/sheet-1/cells")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Cycle detected")));
+    }
+
+    @Test
+    void getSheetById_WithWindowParams_ReturnsWindow() throws Exception {
+        String sheetId = "sheet-123";
+        GetSheetResponse.ColumnData colC = new GetSheetResponse.ColumnData("C", "int", Arrays.asList(7, 8));
+        GetSheetWindowResponse response = new GetSheetWindowResponse(sheetId, Arrays.asList(colC), 10, 12, 50, "next");
+        when(sheetService.getSheetWindow(org.mockito.Mockito.eq(sheetId), org.mockito.Mockito.argThat((SheetWindowRequest w) ->
+                w.getFromRow() == 10 && w.getToRow() == 12 && w.getColumns().equals(Arrays.asList("A", "C")))))
+                .thenReturn(response);
+
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/sheets/" + sheetId)
+                .param("fromRow", "10")
+                .param("toRow", "12")
+                .param("columns", "A,C"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromRow").value(10))
+                .andExpect(jsonPath("$.rowCount").value(50))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.columns[0].values[1]").value(8));
+    }
+
+    @Test
+    void getSheetById_NegotiatesBinaryEncodings() throws Exception {
+        String sheetId = "sheet-123";
+        GetSheetResponse.ColumnData colA = new GetSheetResponse.ColumnData("A", "int", Arrays.asList(1, 2));
+        when(sheetService.getSheetById(sheetId)).thenReturn(new GetSheetResponse(sheetId, Arrays.asList(colA)));
+        when(sheetService.getSheetVersion(sheetId)).thenReturn(4L);
+
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/sheets/" + sheetId)
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "\"4-cbor\""))
+                .andExpect(header().string("Vary", org.hamcrest.Matchers.containsString("Accept")));
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/sheets/" + sheetId)
+                .accept(SheetColumnarWriter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SheetColumnarWriter.MEDIA_TYPE))
+                .andExpect(header().string("ETag", "\"4-columnar\""));
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/sheets/" + sheetId)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.columns[0].values[1]").value(2));
+    }
+}
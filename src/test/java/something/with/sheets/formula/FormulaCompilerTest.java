@@ -0,0 +1,113 @@
+package something.with.sheets.formula;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormulaCompilerTest {
+    private final FormulaCompiler compiler = new FormulaCompiler();
+
+    private static ValueReader cells(Map<String, Object> values, CompiledFormula formula) {
+        return (slot, row) -> values.get(formula.getReferences().get(slot).getColumnName() + row);
+    }
+
+    @Test
+    void compile_EvaluatesArithmeticWithPrecedence() {
+        CompiledFormula formula = compiler.compile("lookup(A,0) + 2 * lookup(\"B\",1) - -1");
+        assertEquals(2, formula.getReferences().size());
+        assertFalse(formula.isPlainLookup());
+        assertEquals(12.0, formula.evaluate(cells(Map.of("A0", 5, "B1", 3), formula)));
+    }
+
+    @Test
+    void compile_EvaluatesAggregatesOverRanges() {
+        Map<String, Object> values = Map.of("A0", 1, "A1", 2.5, "A3", 4);
+        assertEquals(7.5, evaluate("sum(A, 0, 3)", values));
+        assertEquals(1.0, evaluate("min(A, 0, 3)", values));
+        assertEquals(4.0, evaluate("max(A, 0, 3)", values));
+        assertEquals(2.5, evaluate("avg(A, 0, 3)", values));
+        assertNull(evaluate("avg(A, 5, 9)", values));
+    }
+
+    @Test
+    void compile_PlainLookupKeepsReferencedValue() {
+        CompiledFormula formula = compiler.compile("lookup('A',10)");
+        assertTrue(formula.isPlainLookup());
+        assertEquals(10, formula.getReferences().get(0).getFromRow());
+        assertEquals("x", formula.evaluate(cells(Map.of("A10", "x"), formula)));
+    }
+
+    @Test
+    void compile_NullOperandsAndDivisionByZeroYieldNull() {
+        assertNull(evaluate("lookup(A,0) + 1", Map.of()));
+        assertNull(evaluate("lookup(A,0) / 0", Map.of("A0", 3)));
+    }
+
+    @Test
+    void compile_AggregatesStopAtTheColumnsLastRow() {
+        CompiledFormula formula = compiler.compile("sum(A, 2147482000, 2147483646)");
+        int[] reads = new int[1];
+        ValueReader reader = new ValueReader() {
+            @Override
+            public Object read(int slot, int rowIndex) {
+                reads[0]++;
+                return 1;
+            }
+
+            @Override
+            public int rowCount(int slot) {
+                return 2147482010;
+            }
+        };
+        assertEquals(10.0, formula.evaluate(reader));
+        assertEquals(10, reads[0]);
+        assertEquals(0.0, evaluate("sum(A, 0, 1048575)", Map.of()));
+    }
+
+    @Test
+    void lookup_TextParsesBackToTheSameColumnName() {
+        for (String name : new String[] {"A", "a,b", "say \"hi\"", "it's", "\"", "x)"}) {
+            CompiledFormula lookup = CompiledFormula.lookup(name, 7);
+            CompiledFormula parsed = compiler.compile(lookup.getText());
+            assertTrue(parsed.isPlainLookup(), name);
+            assertEquals(name, parsed.getReferences().get(0).getColumnName());
+            assertEquals(7, parsed.getReferences().get(0).getFromRow());
+        }
+        assertEquals("it's", compiler.compile("lookup('it''s',0)").getReferences().get(0).getColumnName());
+    }
+
+    @Test
+    void compile_ReusesCompiledFormulaForSameText() {
+        assertSame(compiler.compile("sum(A,0,9)"), compiler.compile("sum(A,0,9)"));
+    }
+
+    @Test
+    void compile_RejectsInvalidSyntax() {
+        for (String text : new String[] {"lookup(A)", "lookup(A,-1)", "sum(A,5,1)", "foo(A,1)", "1 + 2", "lookup(A,0) +",
+                "sum(A,0,2147483647)", "lookup(A,2147483647)", "sum(A,0,2000000000)", "avg(A,5,1048581)"}) {
+            Exception ex = assertThrows(IllegalArgumentException.class, () -> compiler.compile(text), text);
+            assertTrue(ex.getMessage().startsWith("Invalid formula syntax"), text);
+        }
+    }
+
+    @Test
+    void compile_RejectsTextTooLongOrNestedTooDeeply() {
+        String tooLong = "-".repeat(100_000) + "lookup(A,0)";
+        String deepUnary = "-".repeat(FormulaParser.MAX_DEPTH) + "lookup(A,0)";
+        String deepParens = "(".repeat(FormulaParser.MAX_DEPTH) + "lookup(A,0)" + ")".repeat(FormulaParser.MAX_DEPTH);
+        String longChain = "lookup(A,0)" + " + 1".repeat(FormulaParser.MAX_LENGTH / 4);
+        for (String text : new String[] {tooLong, deepUnary, deepParens, longChain}) {
+            Exception ex = assertThrows(IllegalArgumentException.class, () -> compiler.compile(text));
+            assertTrue(ex.getMessage().startsWith("Invalid formula syntax"));
+        }
+        String deepest = "(".repeat(FormulaParser.MAX_DEPTH - 2) + "-lookup(A,0)" + ")".repeat(FormulaParser.MAX_DEPTH - 2);
+        assertEquals(-2.0, evaluate(deepest + " * 2", Map.of("A0", 1)));
+    }
+
+    private Object evaluate(String text, Map<String, Object> values) {
+        CompiledFormula formula = compiler.compile(text);
+        return formula.evaluate(cells(values, formula));
+    }
+}
@@ -0,0 +1,81 @@
+package something.with.sheets.load;
+
+/*
+ * Log-linear histogram in the style of HdrHistogram: values below 128 get exact buckets, and every power of
+ * two above that is split into 64 linear sub-buckets, so any recorded value is reported within 1.6% using a
+ * fixed 30 KB array. Not thread-safe; each client thread records into its own histogram and they are merged
+ * for the report.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    private final long[] counts = new long[SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF];
+    private long count;
+    private long max;
+    private double sum;
+
+    void record(long value) {
+        long clamped = Math.max(0, value);
+        counts[index(clamped)]++;
+        count++;
+        sum += clamped;
+        max = Math.max(max, clamped);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    // Highest value in the bucket holding the given percentile, capped at the recorded maximum
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalent(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int mantissa = (int) (value >>> exponent);
+        return SUB_BUCKETS + (exponent - 1) * HALF + (mantissa - HALF);
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / HALF + 1;
+        long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+}
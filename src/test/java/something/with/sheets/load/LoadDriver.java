@@ -0,0 +1,182 @@
+package something.with.sheets.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Localhost load generator for the cell write and sheet read endpoints, tuned through system properties
+ * (see README). Each client thread drives a read/write mix against pre-filled sheets and records latencies
+ * into its own histogram.
+ *
+ * With load.rate unset the clients are closed-loop and issue the next request as soon as one returns. With a
+ * rate, each thread follows a fixed schedule and latency is measured from the intended start time, so a stall
+ * is charged to every request it delayed instead of hiding behind it (coordinated omission).
+ */
+class LoadDriver {
+    static final int SHEETS = Integer.getInteger("load.sheets", 4);
+    static final int ROWS = Integer.getInteger("load.rows", 10_000);
+    static final double WRITE_RATIO = Double.parseDouble(System.getProperty("load.writeRatio", "0.2"));
+    static final double LOOKUP_DENSITY = Double.parseDouble(System.getProperty("load.lookupDensity", "0.1"));
+    static final int READ_LIMIT = Integer.getInteger("load.readLimit", 0);
+    static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+    static final int DURATION_SECONDS = Integer.getInteger("load.durationSeconds", 20);
+    static final double RATE = Double.parseDouble(System.getProperty("load.rate", "0"));
+
+    private final int threads;
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    LoadDriver(int threads) {
+        this.threads = threads;
+    }
+
+    static class Result {
+        final LatencyHistogram writes = new LatencyHistogram();
+        final LatencyHistogram reads = new LatencyHistogram();
+        long errors;
+    }
+
+    Result run(String baseUrl) throws Exception {
+        List<String> sheetIds = new ArrayList<>();
+        for (int i = 0; i < SHEETS; i++) {
+            sheetIds.add(createSheet(baseUrl));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        List<Future<LatencyHistogram[]>> clients = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            clients.add(executor.submit(() -> runClient(baseUrl, sheetIds, start, measureFrom, end, errors)));
+        }
+        Result result = new Result();
+        for (Future<LatencyHistogram[]> future : clients) {
+            LatencyHistogram[] histograms = future.get();
+            result.writes.add(histograms[0]);
+            result.reads.add(histograms[1]);
+        }
+        executor.shutdown();
+        result.errors = errors.get();
+        return result;
+    }
+
+    String describe() {
+        return String.format(Locale.ROOT, "threads=%d sheets=%d rows=%d writeRatio=%.2f lookupDensity=%.2f readLimit=%d rate=%s",
+            threads, SHEETS, ROWS, WRITE_RATIO, LOOKUP_DENSITY, READ_LIMIT, RATE > 0 ? RATE + "/s" : "closed-loop");
+    }
+
+    private LatencyHistogram[] runClient(String baseUrl, List<String> sheetIds, long start, long measureFrom, long end,
+                                         AtomicLong errors) {
+        LatencyHistogram writes = new LatencyHistogram();
+        LatencyHistogram reads = new LatencyHistogram();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long interval = RATE > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / RATE) : 0;
+        long intended = start + (interval > 0 ? random.nextLong(interval) : 0);
+        while (true) {
+            if (interval > 0) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end) {
+                return new LatencyHistogram[] {writes, reads};
+            }
+            String sheetId = sheetIds.get(random.nextInt(sheetIds.size()));
+            boolean write = random.nextDouble() < WRITE_RATIO;
+            HttpRequest request = write ? writeRequest(baseUrl, sheetId, random) : readRequest(baseUrl, sheetId, random);
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            long latency = System.nanoTime() - intended;
+            if (intended >= measureFrom) {
+                (write ? writes : reads).record(latency);
+            }
+            intended += interval;
+        }
+    }
+
+    // Writes go to column A; column B holds lookups into A, so a share of writes also recomputes a lookup
+    private HttpRequest writeRequest(String baseUrl, String sheetId, ThreadLocalRandom random) {
+        String body = cellJson("A", random.nextInt(ROWS), Integer.toString(random.nextInt(1_000_000)));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/" + sheetId + "/cell"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    private HttpRequest readRequest(String baseUrl, String sheetId, ThreadLocalRandom random) {
+        String query = READ_LIMIT > 0 ? "?fromRow=" + random.nextInt(ROWS) + "&limit=" + READ_LIMIT : "";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/" + sheetId + query)).GET().build();
+    }
+
+    private String createSheet(String baseUrl) throws Exception {
+        String body = "{\"columns\":[{\"name\":\"A\",\"type\":\"int\"},{\"name\":\"B\",\"type\":\"int\"}]}";
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create(baseUrl))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(created.statusCode()).isEqualTo(200);
+        String sheetId = created.body().replaceAll(".*\"id\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+
+        // Fill A with values and B with a mix of values and lookups into A, in batches
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int from = 0; from < ROWS; from += 1000) {
+            StringBuilder cells = new StringBuilder("{\"cells\":[");
+            for (int row = from; row < Math.min(ROWS, from + 1000); row++) {
+                if (row > from) {
+                    cells.append(',');
+                }
+                cells.append(cellJson("A", row, Integer.toString(row))).append(',');
+                cells.append(random.nextDouble() < LOOKUP_DENSITY
+                    ? cellJson("B", row, "\"lookup(A," + row + ")\"")
+                    : cellJson("B", row, Integer.toString(-row)));
+            }
+            cells.append("]}");
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + sheetId + "/cells"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cells.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+        return sheetId;
+    }
+
+    private static String cellJson(String column, int row, String valueJson) {
+        return "{\"columnName\":\"" + column + "\",\"rowIndex\":" + row + ",\"value\":" + valueJson + "}";
+    }
+
+    static void report(String name, LatencyHistogram histogram) {
+        double seconds = DURATION_SECONDS;
+        System.out.printf(Locale.ROOT, "%-24s count=%d throughput=%.1f/s mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p999=%.3fms max=%.3fms%n",
+            name, histogram.getCount(), histogram.getCount() / seconds, histogram.getMean() / 1e6,
+            histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.percentile(99) / 1e6,
+            histogram.percentile(99.9) / 1e6, histogram.getMax() / 1e6);
+    }
+}
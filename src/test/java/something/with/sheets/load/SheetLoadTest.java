@@ -0,0 +1,30 @@
+package something.with.sheets.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Load run against the application as configured; excluded from the default build, run with `mvn -Pload test`
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SheetLoadTest {
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void cellWritesAndSheetReads() throws Exception {
+        LoadDriver driver = new LoadDriver(Integer.getInteger("load.threads", 16));
+        LoadDriver.Result result = driver.run("http://localhost:" + port + "/sheets");
+
+        System.out.printf(Locale.ROOT, "%n%s%n", driver.describe());
+        LoadDriver.report("POST /sheets/{id}/cell", result.writes);
+        LoadDriver.report("GET /sheets/{id}", result.reads);
+        System.out.printf(Locale.ROOT, "errors=%d%n", result.errors);
+        assertThat(result.errors).isZero();
+    }
+}
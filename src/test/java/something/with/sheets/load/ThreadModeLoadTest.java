@@ -0,0 +1,72 @@
+package something.with.sheets.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import something.with.sheets.AnchorExerciseApplication;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Runs the same load against the application twice, once on Tomcat's platform-thread pool and once with
+ * virtual threads, and prints the two results side by side. By default the sheets are persisted to a
+ * write-ahead log, so every write blocks on a group-commit fsync and the platform pool (200 threads) saturates
+ * once there are more concurrent clients than workers. The virtual-thread run needs Java 21 and is skipped
+ * on older runtimes.
+ */
+@Tag("load")
+class ThreadModeLoadTest {
+    private static final int THREADS = Integer.getInteger("load.threads", 400);
+    private static final String PERSISTENCE = System.getProperty("load.persistence", "wal");
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        LoadDriver driver = new LoadDriver(THREADS);
+        Map<String, LoadDriver.Result> results = new LinkedHashMap<>();
+        results.put("platform", run(driver, false));
+        if (Runtime.version().feature() >= 21) {
+            results.put("virtual", run(driver, true));
+        }
+
+        System.out.printf(Locale.ROOT, "%n%s persistence=%s%n", driver.describe(), PERSISTENCE);
+        for (Map.Entry<String, LoadDriver.Result> entry : results.entrySet()) {
+            System.out.printf(Locale.ROOT, "[%s threads]%n", entry.getKey());
+            LoadDriver.report("POST /sheets/{id}/cell", entry.getValue().writes);
+            LoadDriver.report("GET /sheets/{id}", entry.getValue().reads);
+            System.out.printf(Locale.ROOT, "errors=%d%n", entry.getValue().errors);
+        }
+        if (!results.containsKey("virtual")) {
+            System.out.printf(Locale.ROOT, "[virtual threads] skipped: needs Java 21, running on %s%n", Runtime.version());
+        }
+        for (LoadDriver.Result result : results.values()) {
+            assertThat(result.errors).isZero();
+        }
+    }
+
+    private LoadDriver.Result run(LoadDriver driver, boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AnchorExerciseApplication.class)
+            .properties(
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "sheets.persistence.mode=" + PERSISTENCE,
+                "sheets.wal.path=" + dataDir.resolve(mode + ".wal"),
+                "sheets.snapshot.path=" + dataDir.resolve(mode + ".snapshot"),
+                "sheets.cache.spill-path=" + dataDir.resolve(mode + "-spill"))
+            .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            return driver.run("http://localhost:" + port + "/sheets");
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package something.with.sheets.model;
+
+import org.junit.jupiter.api.Test;
+import something.with.sheets.model.storage.ColumnSummary;
+import something.with.sheets.model.storage.IntColumnStorage;
+import something.with.sheets.model.storage.PagedColumnStorage;
+import something.with.sheets.model.storage.StringColumnStorage;
+import something.with.sheets.model.storage.ValueFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnTest {
+    @Test
+    void intColumn_StoresPrimitivesAndTracksNulls() {
+        Column column = new Column("A", "int");
+        column.setCell(0, 7);
+        column.setCell(2, 9.0);
+        assertEquals(3, column.size());
+        assertEquals(7, column.getCell(0));
+        assertNull(column.getCell(1));
+        assertEquals(9, column.getCell(2));
+        IntColumnStorage storage = (IntColumnStorage) column.getStorage();
+        assertTrue(storage.isNull(1));
+        assertEquals(9, storage.getInt(2));
+    }
+
+    @Test
+    void doubleColumn_NormalizesNumbers() {
+        Column column = new Column("A", "double");
+        column.setCell(0, 3);
+        column.setCell(1, 2.5f);
+        assertEquals(3.0, column.getCell(0));
+        assertEquals(2.5, column.getCell(1));
+    }
+
+    @Test
+    void booleanColumn_DistinguishesFalseFromNull() {
+        Column column = new Column("A", "boolean");
+        column.setCell(1, false);
+        assertNull(column.getCell(0));
+        assertEquals(false, column.getCell(1));
+    }
+
+    @Test
+    void stringColumn_DictionaryEncodesRepeatedValues() {
+        Column column = new Column("A", "string");
+        column.setCell(0, "x");
+        column.setCell(1, "y");
+        column.setCell(2, "x");
+        StringColumnStorage storage = (StringColumnStorage) column.getStorage();
+        assertEquals(2, storage.getDictionarySize());
+        assertEquals(storage.getId(0), storage.getId(2));
+        assertEquals("x", column.getCell(2));
+    }
+
+    @Test
+    void stringColumn_ReusesIdsOfOverwrittenValues() {
+        Column column = new Column("A", "string");
+        column.setCell(1, "kept");
+        for (int i = 0; i < 10_000; i++) {
+            column.setCell(0, "v" + i);
+        }
+        StringColumnStorage storage = (StringColumnStorage) column.getStorage();
+        assertEquals(2, storage.getDictionarySize());
+        assertEquals("v9999", column.getCell(0));
+        assertEquals("kept", column.getCell(1));
+        assertEquals(2L, column.summary().getDistinctCount());
+
+        SheetVersion pinned = new Sheet("s", java.util.List.of(column)).pin();
+        column.setCell(0, "while-pinned");
+        assertEquals(3, storage.getDictionarySize());
+        assertEquals("v9999", pinned.values(column).get(0));
+        pinned.close();
+        column.setCell(0, "after-release");
+        assertEquals(3, storage.getDictionarySize());
+        assertEquals("after-release", column.getCell(0));
+    }
+
+    @Test
+    void setCell_ThrowsOnTypeMismatch() {
+        Column column = new Column("A", "int");
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> column.setCell(0, 1.5));
+        assertTrue(ex.getMessage().contains("Value does not match column type: int"));
+    }
+
+    @Test
+    void constructor_ThrowsOnUnsupportedType() {
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> new Column("A", "date"));
+        assertTrue(ex.getMessage().contains("Unsupported column type"));
+    }
+
+    @Test
+    void sparseWrite_AllocatesOnlyTheTouchedPage() {
+        Column column = new Column("A", "int");
+        column.setCell(50_000_000, 1);
+        IntColumnStorage storage = (IntColumnStorage) column.getStorage();
+        assertEquals(50_000_001, column.size());
+        int lastPage = 50_000_000 >>> PagedColumnStorage.PAGE_SHIFT;
+        assertTrue(storage.isPageAllocated(lastPage));
+        assertFalse(storage.isPageAllocated(0));
+        assertFalse(storage.isPageAllocated(lastPage - 1));
+        assertNull(column.getCell(123));
+        assertEquals(1, column.getCell(50_000_000));
+        assertEquals(50_000_001, column.values().size());
+    }
+
+    @Test
+    void setCell_RejectsRowsPastTheLastIndex() {
+        Column column = new Column("A", "int");
+        assertThrows(IllegalArgumentException.class, () -> column.setCell(Integer.MAX_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> column.ensureCellExists(Integer.MAX_VALUE));
+        assertEquals(0, column.size());
+        assertEquals(0, column.valueCount());
+
+        column.setCell(Integer.MAX_VALUE - 1, 1);
+        assertEquals(Integer.MAX_VALUE, column.size());
+        assertEquals(1, column.getCell(Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    void setCell_NullClearsValue() {
+        Column column = new Column("A", "string");
+        column.setCell(0, "x");
+        column.getStorage().set(0, null);
+        assertNull(column.getCell(0));
+        assertEquals(1, column.size());
+    }
+
+    @Test
+    void lookupChain_ResolvesIterativelyAndUpdatesOnlyDependents() {
+        Column column = new Column("A", "int");
+        Column other = new Column("B", "int");
+        int depth = 100_000;
+        column.setCell(0, 1);
+        other.setCell(0, 5);
+        for (int row = 1; row < depth; row++) {
+            column.setCellLookup(row, column.getOrCreateCell(row - 1));
+        }
+        assertEquals(1, column.getCell(depth - 1));
+        assertFalse(column.getOrCreateCell(0).hasCycle(column.getOrCreateCell(depth - 1)));
+        assertTrue(column.getOrCreateCell(depth - 1).hasCycle(column.getOrCreateCell(0)));
+
+        column.setCell(0, 2);
+        assertEquals(2, column.getCell(depth - 1));
+        assertEquals(5, other.getCell(0));
+    }
+
+    @Test
+    void clearingLookup_RemovesReverseEdge() {
+        Column column = new Column("A", "int");
+        column.setCell(0, 1);
+        column.setCellLookup(1, column.getOrCreateCell(0));
+        assertEquals(1, column.getDependents(0).size());
+        column.setCell(1, 7);
+        assertTrue(column.getDependents(0).isEmpty());
+        assertFalse(column.getOrCreateCell(1).isLookup());
+        column.setCell(0, 3);
+        assertEquals(7, column.getCell(1));
+    }
+
+    @Test
+    void rangeFormulas_OnlyRowsInsideTheirRangesHaveDependents() {
+        Column source = new Column("A", "int");
+        Column sums = new Column("B", "int");
+        java.util.Map<String, Column> columns = java.util.Map.of("A", source, "B", sums);
+        something.with.sheets.formula.FormulaCompiler compiler = new something.with.sheets.formula.FormulaCompiler();
+        sums.setCellFormula(0, CellFormula.bind(compiler.compile("sum(A,0,9)"), columns));
+        sums.setCellFormula(1, CellFormula.bind(compiler.compile("sum(A,5,10000)"), columns));
+        sums.setCellFormula(2, CellFormula.bind(compiler.compile("sum(A,9000,9001) + sum(A,9000,9001)"), columns));
+
+        assertEquals(1, source.getDependents(0).size());
+        assertEquals(2, source.getDependents(7).size());
+        assertEquals(2, source.getDependents(9000).size());
+        assertTrue(source.getDependents(20_000).isEmpty());
+        assertFalse(source.hasEdges(10_001));
+
+        source.setCell(9000, 4);
+        assertEquals(4, sums.getCell(1));
+        assertEquals(8, sums.getCell(2));
+
+        sums.setCell(1, 0);
+        sums.setCell(2, 0);
+        assertTrue(source.getDependents(9000).isEmpty());
+        assertEquals(1, source.getDependents(7).size());
+        source.setCell(7, 3);
+        assertEquals(3, sums.getCell(0));
+        assertEquals(0, sums.getCell(1));
+    }
+
+    @Test
+    void rangeFormulas_AggregateWholePagesFromTheirSummaries() {
+        Column source = new Column("A", "int");
+        Column results = new Column("B", "double");
+        java.util.Map<String, Column> columns = java.util.Map.of("A", source, "B", results);
+        something.with.sheets.formula.FormulaCompiler compiler = new something.with.sheets.formula.FormulaCompiler();
+        int pageSize = PagedColumnStorage.PAGE_SIZE;
+        for (int row = 0; row < 3 * pageSize + 100; row++) {
+            source.setCell(row, row % 7);
+        }
+        source.setCell(pageSize + 5, 50);
+        String range = "(A,10," + (3 * pageSize + 12) + ")";
+        results.setCellFormula(0, CellFormula.bind(compiler.compile("sum" + range), columns));
+        results.setCellFormula(1, CellFormula.bind(compiler.compile("max" + range), columns));
+        results.setCellFormula(2, CellFormula.bind(compiler.compile("avg" + range), columns));
+        assertRangeAggregates(source, results, 10, 3 * pageSize + 12);
+        assertEquals(50.0, results.getCell(1));
+
+        source.setCell(pageSize + 5, 1);
+        source.getStorage().set(2 * pageSize + 6, null);
+        source.setCell(3 * pageSize + 12, 40);
+        assertRangeAggregates(source, results, 10, 3 * pageSize + 12);
+        assertEquals(40.0, results.getCell(1));
+    }
+
+    // Checks the sum, max and avg formulas in results against a row-by-row scan of the source
+    private static void assertRangeAggregates(Column source, Column results, int fromRow, int toRow) {
+        long sum = 0;
+        int max = Integer.MIN_VALUE;
+        int count = 0;
+        for (int row = fromRow; row <= toRow; row++) {
+            Object value = source.getCell(row);
+            if (value != null) {
+                sum += (Integer) value;
+                max = Math.max(max, (Integer) value);
+                count++;
+            }
+        }
+        assertEquals((double) sum, results.getCell(0));
+        assertEquals((double) max, results.getCell(1));
+        assertEquals((double) sum / count, (Double) results.getCell(2), 1e-9);
+    }
+
+    @Test
+    void summary_TracksOverwritesRemovalsAndRecomputedLookups() {
+        Column source = new Column("A", "int");
+        Column target = new Column("B", "int");
+        source.setCell(0, 5);
+        target.setCell(0, 1);
+        target.setCell(9000, 10);
+        target.setCellLookup(1, new Cell(source, 0));
+
+        ColumnSummary summary = target.summary();
+        assertEquals(9001, summary.getRowCount());
+        assertEquals(3, summary.getValueCount());
+        assertEquals(16L, summary.getSum());
+        assertEquals(1, summary.getMin());
+        assertEquals(10, summary.getMax());
+
+        source.setCell(0, -4);
+        target.getStorage().set(9000, null);
+        summary = target.summary();
+        assertEquals(2, summary.getValueCount());
+        assertEquals(-3L, summary.getSum());
+        assertEquals(-4, summary.getMin());
+        assertEquals(1, summary.getMax());
+        assertEquals(-1.5, summary.getAverage());
+    }
+
+    @Test
+    void summary_CoversSparseWritesAtTheLastRow() {
+        Column column = new Column("A", "int");
+        int lastRow = Integer.MAX_VALUE - 1;
+        column.setCell(lastRow, 9);
+        column.setCell(0, -2);
+        ColumnSummary summary = column.summary();
+        assertEquals(2, summary.getValueCount());
+        assertEquals(7L, summary.getSum());
+        assertEquals(-2, summary.getMin());
+        assertEquals(9, summary.getMax());
+        IntColumnStorage storage = (IntColumnStorage) column.getStorage();
+        int lastPage = lastRow >>> PagedColumnStorage.PAGE_SHIFT;
+        assertTrue(storage.mayMatch(lastPage, new ValueFilter(ValueFilter.Op.GT, 5.0)));
+        assertFalse(storage.mayMatch(lastPage, new ValueFilter(ValueFilter.Op.GT, 9.0)));
+
+        column.getStorage().set(lastRow, null);
+        assertEquals(-2, column.summary().getMax());
+        assertEquals(-2L, column.summary().getSum());
+    }
+
+    @Test
+    void summary_RecomputesDoublePagesAndCountsDistinctStrings() throws Exception {
+        Column doubles = new Column("A", "double");
+        doubles.setCell(0, 1e20);
+        doubles.setCell(1, 1.0);
+        doubles.setCell(0, 2.0);
+        assertEquals(3.0, doubles.summary().getSum());
+        assertEquals(2.0, doubles.summary().getMax());
+        assertNull(new Column("E", "double").summary().getMin());
+
+        Column strings = new Column("B", "string");
+        strings.setCell(0, "x");
+        strings.setCell(1, "y");
+        strings.setCell(2, "x");
+        strings.setCell(1, "x");
+        assertEquals(1L, strings.summary().getDistinctCount());
+
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        strings.getStorage().writeTo(new java.io.DataOutputStream(bytes));
+        Column loaded = new Column("B", "string");
+        loaded.getStorage().readFrom(java.nio.ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(1L, loaded.summary().getDistinctCount());
+        assertEquals(3, loaded.summary().getValueCount());
+    }
+
+    @Test
+    void pin_KeepsItsVersionWhileWritesCopySharedPages() {
+        Column ints = new Column("A", "int");
+        Column strings = new Column("B", "string");
+        for (int row = 0; row < 5000; row++) {
+            ints.setCell(row, row);
+            strings.setCell(row, "s" + (row % 3));
+        }
+        Sheet sheet = new Sheet("s", java.util.List.of(ints, strings));
+        SheetVersion pinned = sheet.pin();
+        ints.setCell(1, -1);
+        ints.getStorage().set(4500, null);
+        ints.setCell(9000, 7);
+        for (int id = 0; id < 3000; id++) {
+            strings.setCell(id, "new" + id);
+        }
+
+        ColumnValues oldInts = pinned.values(ints);
+        ColumnValues oldStrings = pinned.values(strings, 4000, 4100);
+        assertEquals(5000, oldInts.size());
+        assertEquals(1, oldInts.get(1));
+        assertEquals(4500, oldInts.get(4500));
+        assertEquals(12_497_500L, oldInts.getStorage().summary().getSum());
+        assertEquals(12_493_005L, ints.summary().getSum());
+        assertEquals("s" + (4000 % 3), oldStrings.get(0));
+        assertEquals(3, ((StringColumnStorage) pinned.values(strings).getStorage()).getDictionarySize());
+        assertEquals("s0", pinned.values(strings).get(0));
+        assertEquals(-1, ints.getCell(1));
+        assertNull(ints.getCell(4500));
+        assertEquals(9001, ints.size());
+        assertEquals("new0", strings.getCell(0));
+        assertThrows(UnsupportedOperationException.class, () -> oldInts.getStorage().set(0, 5));
+
+        pinned.close();
+        ints.setCell(2, -2);
+        assertEquals(-2, ints.getCell(2));
+        assertEquals(0, pinned.values(ints).size());
+    }
+}
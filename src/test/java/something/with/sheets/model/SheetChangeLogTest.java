@@ -0,0 +1,53 @@
+package something.with.sheets.model;
+
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.CellChange;
+import something.with.sheets.dto.SheetChanges;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetChangeLogTest {
+    private static CellChange change(String column, int row, Object value) {
+        return new CellChange(column, row, value);
+    }
+
+    @Test
+    void since_CoalescesCellsChangedAfterTheGivenVersion() {
+        SheetChangeLog log = new SheetChangeLog(100, 0);
+        log.append(1, List.of(change("A", 0, 1), change("B", 0, 1)));
+        log.append(2, List.of(change("A", 0, 2)));
+
+        SheetChanges changes = log.since(0);
+        assertEquals(2, changes.getVersion());
+        assertEquals(2, changes.getCells().size());
+        assertEquals("B", changes.getCells().get(0).getColumnName());
+        assertEquals(2, changes.getCells().get(1).getValue());
+
+        log.append(3, List.of(change("A", 2, 3)));
+        log.append(4, List.of(change("A", 1, 4)));
+        changes = log.since(2);
+        assertEquals(4, changes.getVersion());
+        assertEquals(2, changes.getCells().size());
+        assertEquals(4, log.since(4).getVersion());
+        assertTrue(log.since(4).getCells().isEmpty());
+    }
+
+    @Test
+    void since_ReturnsNullOnceTheRequestedVersionWasDropped() {
+        SheetChangeLog log = new SheetChangeLog(2, 10);
+        assertNull(log.since(9));
+        log.append(11, List.of(change("A", 0, 1)));
+        log.append(12, List.of(change("A", 1, 1)));
+        assertEquals(12, log.since(10).getVersion());
+
+        log.append(13, List.of(change("A", 2, 1)));
+        assertNull(log.since(10));
+        assertEquals(13, log.since(11).getVersion());
+
+        log.reset(20);
+        assertNull(log.since(13));
+        assertEquals(20, log.since(20).getVersion());
+    }
+}
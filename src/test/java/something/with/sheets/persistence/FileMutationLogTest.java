@@ -0,0 +1,106 @@
+package something.with.sheets.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import something.with.sheets.dto.ColumnDto;
+import something.with.sheets.dto.SetCellValueRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileMutationLogTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static SheetMutation cell(String sheetId, int row, Object value) {
+        SetCellValueRequest request = new SetCellValueRequest();
+        request.setRowIndex(row);
+        request.setColumnName("A");
+        request.setValue(value);
+        return SheetMutation.setCells(sheetId, List.of(request));
+    }
+
+    @Test
+    void append_IsDurableAndReplaysInOrder() throws Exception {
+        Path path = tempDir.resolve("sheets.wal");
+        int threads = 8;
+        int perThread = 200;
+        try (FileMutationLog log = new FileMutationLog(path, objectMapper, 1, 64)) {
+            ColumnDto column = new ColumnDto();
+            column.setName("A");
+            column.setType("int");
+            log.awaitDurable(log.append(SheetMutation.createSheet("s", List.of(column))));
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        log.awaitDurable(log.append(cell("s", thread, i)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+
+        List<SheetMutation> replayed = new ArrayList<>();
+        try (FileMutationLog log = new FileMutationLog(path, objectMapper, 1, 64)) {
+            log.replay(replayed::add);
+        }
+        assertEquals(1 + threads * perThread, replayed.size());
+        assertEquals(SheetMutation.Type.CREATE_SHEET, replayed.get(0).getType());
+        int[] lastValue = new int[threads];
+        java.util.Arrays.fill(lastValue, -1);
+        for (SheetMutation mutation : replayed.subList(1, replayed.size())) {
+            SetCellValueRequest request = mutation.getCells().get(0);
+            int value = (Integer) request.getValue();
+            assertEquals(lastValue[request.getRowIndex()] + 1, value);
+            lastValue[request.getRowIndex()] = value;
+        }
+    }
+
+    @Test
+    void replay_TruncatesTornTail() throws Exception {
+        Path path = tempDir.resolve("sheets.wal");
+        try (FileMutationLog log = new FileMutationLog(path, objectMapper, 0, 16)) {
+            log.awaitDurable(log.append(cell("s", 0, "first")));
+            log.awaitDurable(log.append(cell("s", 1, "second")));
+        }
+        long intact = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 50, 1, 2}));
+        }
+
+        List<SheetMutation> replayed = new ArrayList<>();
+        try (FileMutationLog log = new FileMutationLog(path, objectMapper, 0, 16)) {
+            log.replay(replayed::add);
+            assertEquals(intact, Files.size(path));
+            log.awaitDurable(log.append(cell("s", 2, "third")));
+        }
+        assertEquals(2, replayed.size());
+        assertEquals("second", replayed.get(1).getCells().get(0).getValue());
+
+        replayed.clear();
+        try (FileMutationLog log = new FileMutationLog(path, objectMapper, 0, 16)) {
+            log.replay(replayed::add);
+        }
+        assertEquals(3, replayed.size());
+        assertEquals("third", replayed.get(2).getCells().get(0).getValue());
+    }
+}
@@ -0,0 +1,136 @@
+package something.with.sheets.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import something.with.sheets.dto.ColumnDto;
+import something.with.sheets.dto.CreateSheetRequest;
+import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.repository.SheetRepository;
+import something.with.sheets.repository.TieredSheetCache;
+import something.with.sheets.service.SheetService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSnapshotStoreTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static ColumnDto column(String name, String type) {
+        ColumnDto dto = new ColumnDto();
+        dto.setName(name);
+        dto.setType(type);
+        return dto;
+    }
+
+    private static SetCellValueRequest cell(String column, int row, Object value) {
+        SetCellValueRequest request = new SetCellValueRequest();
+        request.setColumnName(column);
+        request.setRowIndex(row);
+        request.setValue(value);
+        return request;
+    }
+
+    @Test
+    void write_RoundTripsTypedColumnsAndFormulas() {
+        Sheet sheet = new Sheet("s", List.of(new Column("A", "int"), new Column("B", "double"),
+            new Column("C", "boolean"), new Column("D", "string")));
+        Map<String, Column> columns = sheet.getColumns();
+        columns.get("A").setCell(0, 7);
+        columns.get("A").setCell(10_000, -3);
+        columns.get("B").setCell(2, 1.5);
+        columns.get("C").setCell(4100, true);
+        columns.get("C").setCell(4101, false);
+        columns.get("D").setCell(1, "x");
+        columns.get("D").setCell(5000, "y");
+        columns.get("D").setCell(5001, "x");
+        columns.get("D").setCell(5002, "w");
+        columns.get("D").getStorage().set(5002, null);
+        columns.get("D").setCellLookup(3, columns.get("D").getOrCreateCell(1));
+        sheet.setVersion(42);
+
+        Path path = tempDir.resolve("sheets.snapshot");
+        try (FileSnapshotStore store = new FileSnapshotStore(path)) {
+            store.write(List.of("s"), Map.of("s", sheet)::get);
+        }
+
+        try (FileSnapshotStore store = new FileSnapshotStore(path)) {
+            assertEquals(Set.of("s"), store.sheetIds());
+            Sheet loaded = store.load("s");
+            assertEquals(42, loaded.getVersion());
+            assertEquals(7, loaded.getCellValue(0, "A"));
+            assertNull(loaded.getCellValue(1, "A"));
+            assertEquals(-3, loaded.getCellValue(10_000, "A"));
+            assertEquals(10_001, loaded.getColumns().get("A").size());
+            assertEquals(1.5, loaded.getCellValue(2, "B"));
+            assertEquals(true, loaded.getCellValue(4100, "C"));
+            assertEquals(false, loaded.getCellValue(4101, "C"));
+            assertEquals("y", loaded.getCellValue(5000, "D"));
+            assertEquals("x", loaded.getCellValue(5001, "D"));
+            assertNull(loaded.getCellValue(5002, "D"));
+            assertEquals("x", loaded.getCellValue(3, "D"));
+            assertTrue(loaded.getCell(3, "D").isLookup());
+
+            loaded.getColumns().get("D").setCell(1, "z");
+            assertEquals("z", loaded.getCellValue(3, "D"));
+        }
+    }
+
+    @Test
+    void recover_LoadsSnapshotAndReplaysOnlyNewerMutations() {
+        Path walPath = tempDir.resolve("sheets.wal");
+        Path snapshotPath = tempDir.resolve("sheets.snapshot");
+        CreateSheetRequest create = new CreateSheetRequest();
+        create.setColumns(List.of(column("A", "int"), column("B", "int")));
+        String first;
+        String second;
+        try (FileMutationLog log = new FileMutationLog(walPath, objectMapper, 0, 16);
+             FileSnapshotStore store = new FileSnapshotStore(snapshotPath)) {
+            SheetRepository repository = new SheetRepository(new TieredSheetCache(Long.MAX_VALUE, null), log, store, new NoSheetStore());
+            SheetService service = new SheetService(repository);
+            service.recover();
+            first = service.createSheet(create);
+            second = service.createSheet(create);
+            service.setCellValue(first, cell("A", 0, 1));
+            SetCellValueRequest formula = cell("B", 0, null);
+            formula.setFormula("=lookup(A,0)*10");
+            service.setCellValue(first, formula);
+            service.setCellValue(second, cell("A", 0, 5));
+            repository.snapshot();
+            service.setCellValue(first, cell("A", 0, 2));
+        }
+        assertFalse(Files.exists(tempDir.resolve("sheets.wal.1")));
+
+        try (FileMutationLog log = new FileMutationLog(walPath, objectMapper, 0, 16);
+             FileSnapshotStore store = new FileSnapshotStore(snapshotPath)) {
+            SheetRepository repository = new SheetRepository(new TieredSheetCache(Long.MAX_VALUE, null), log, store, new NoSheetStore());
+            SheetService service = new SheetService(repository);
+            service.recover();
+            Sheet sheet = repository.findById(first);
+            assertEquals(2, sheet.getCellValue(0, "A"));
+            assertEquals(20, sheet.getCellValue(0, "B"));
+            assertEquals(3, sheet.getVersion());
+
+            // The second sheet was never decoded, so its block is copied into the next snapshot as is
+            repository.snapshot();
+        }
+
+        try (FileMutationLog log = new FileMutationLog(walPath, objectMapper, 0, 16);
+             FileSnapshotStore store = new FileSnapshotStore(snapshotPath)) {
+            SheetRepository repository = new SheetRepository(new TieredSheetCache(Long.MAX_VALUE, null), log, store, new NoSheetStore());
+            new SheetService(repository).recover();
+            assertEquals(5, repository.findById(second).getCellValue(0, "A"));
+            assertEquals(20, repository.findById(first).getCellValue(0, "B"));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package something.with.sheets.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcSheetStoreTest {
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+        .setType(EmbeddedDatabaseType.H2)
+        .generateUniqueName(true)
+        .build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    private static Sheet newSheet() {
+        return new Sheet("s", List.of(new Column("A", "int"), new Column("B", "double"), new Column("C", "string")));
+    }
+
+    private int cellRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sheet_cell", Integer.class);
+    }
+
+    @Test
+    void save_WritesOnlyChangedCells() {
+        JdbcSheetStore store = new JdbcSheetStore(database);
+        Sheet sheet = newSheet();
+        store.save(sheet);
+        assertEquals(0, cellRows());
+
+        sheet.setCellValue(0, "A", 4);
+        sheet.setCellValue(9000, "C", "far");
+        store.save(sheet);
+        assertEquals(2, cellRows());
+
+        // Rewriting the stored value behind the store's back shows the next save does not touch clean cells
+        jdbcTemplate.update("UPDATE sheet_cell SET cell_value = 'stale' WHERE column_name = 'C'");
+        sheet.setCellValue(0, "A", 5);
+        store.save(sheet);
+        assertEquals("5", jdbcTemplate.queryForObject("SELECT cell_value FROM sheet_cell WHERE column_name = 'A'", String.class));
+        assertEquals("stale", jdbcTemplate.queryForObject("SELECT cell_value FROM sheet_cell WHERE column_name = 'C'", String.class));
+    }
+
+    @Test
+    void save_AfterLoadDrainsOnlyWrittenColumns() {
+        JdbcSheetStore store = new JdbcSheetStore(database);
+        Sheet sheet = newSheet();
+        sheet.setCellValue(3, "B", 1.5);
+        sheet.setCellValue(2, "C", "x");
+        store.save(sheet);
+
+        Sheet loaded = new JdbcSheetStore(database).load("s");
+        jdbcTemplate.update("UPDATE sheet_column SET row_count = 42 WHERE name = 'C'");
+        loaded.setCellValue(6, "A", 1);
+        store.save(loaded);
+        assertFalse(loaded.getColumns().get("B").isLoaded());
+        assertFalse(loaded.getColumns().get("C").isLoaded());
+        assertEquals(7, jdbcTemplate.queryForObject("SELECT row_count FROM sheet_column WHERE name = 'A'", Integer.class));
+        assertEquals(42, jdbcTemplate.queryForObject("SELECT row_count FROM sheet_column WHERE name = 'C'", Integer.class));
+        assertEquals(3, cellRows());
+    }
+
+    @Test
+    void load_RestoresValuesFormulasAndRowCounts() {
+        JdbcSheetStore store = new JdbcSheetStore(database);
+        Sheet sheet = newSheet();
+        sheet.setCellValue(0, "A", 3);
+        sheet.setCellValue(1, "B", 2.5);
+        sheet.setCellValue(4, "C", "text");
+        sheet.getColumns().get("C").getOrCreateCell(5000);
+        sheet.setVersion(7);
+        store.save(sheet);
+        sheet.getCell(2, "A").setLookup(sheet.getCell(0, "A"));
+        sheet.getCell(0, "B").setLookup(sheet.getCell(9, "B"));
+        store.save(sheet);
+
+        JdbcSheetStore restarted = new JdbcSheetStore(database);
+        Sheet loaded = restarted.load("s");
+        assertFalse(loaded.getColumns().get("A").isLoaded());
+        assertEquals(7, loaded.getVersion());
+        assertEquals(3, loaded.getCellValue(2, "A"));
+        assertTrue(loaded.getCell(2, "A").isLookup());
+        assertEquals(2.5, loaded.getCellValue(1, "B"));
+        assertEquals("text", loaded.getCellValue(4, "C"));
+        assertEquals(5001, loaded.getColumns().get("C").size());
+        assertEquals(10, loaded.getColumns().get("B").size());
+
+        loaded.getColumns().get("A").setCell(0, 11);
+        assertEquals(11, loaded.getCellValue(2, "A"));
+        restarted.save(loaded);
+        assertEquals(11, new JdbcSheetStore(database).load("s").getCellValue(2, "A"));
+        assertNull(new JdbcSheetStore(database).load("missing"));
+    }
+}
@@ -0,0 +1,149 @@
+package something.with.sheets.query;
+
+import org.junit.jupiter.api.Test;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.model.SheetVersion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetQueryTest {
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+
+    SheetQueryTest() {
+        columns.put("A", new Column("A", "int"));
+        columns.put("B", new Column("B", "double"));
+        columns.put("C", new Column("C", "boolean"));
+        columns.put("My Col", new Column("My Col", "string"));
+    }
+
+    private List<Integer> rows(String where, int rowCount) throws Exception {
+        try (SheetQuery query = query(where, rowCount)) {
+            return rows(query);
+        }
+    }
+
+    private static List<Integer> rows(SheetQuery query) throws Exception {
+        List<Integer> rows = new ArrayList<>();
+        query.scan((pageIndex, matches) -> {
+            for (int word = 0; word < matches.length; word++) {
+                for (long bits = matches[word]; bits != 0; bits &= bits - 1) {
+                    rows.add(pageIndex * SheetQuery.PAGE_SIZE + (word << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+            return true;
+        });
+        return rows;
+    }
+
+    private SheetQuery query(String where, int rowCount) {
+        SheetVersion version = new Sheet("s", new ArrayList<>(columns.values())).pin();
+        return new SheetQuery(version, PredicateParser.parse(where, columns, version), List.of(columns.get("A")),
+            rowCount, null, ForkJoinPool.commonPool());
+    }
+
+    private void parse(String where) {
+        try (SheetVersion version = new Sheet("s", new ArrayList<>(columns.values())).pin()) {
+            PredicateParser.parse(where, columns, version);
+        }
+    }
+
+    @Test
+    void scan_CombinesTypedComparisons() throws Exception {
+        Column a = columns.get("A");
+        Column b = columns.get("B");
+        Column c = columns.get("C");
+        Column s = columns.get("My Col");
+        for (int row = 0; row < 10; row++) {
+            a.setCell(row, row * 50);
+            c.setCell(row, row % 2 == 0);
+        }
+        b.setCell(3, 2.5);
+        b.setCell(4, -1.0);
+        s.setCell(1, "apple");
+        s.setCell(2, "pear");
+        s.setCell(5, "it's");
+
+        assertEquals(List.of(4, 6, 8), rows("A > 100 and C = true", 10));
+        assertEquals(List.of(2, 3, 4), rows("A >= 100 AND A <= 200", 10));
+        assertEquals(List.of(0, 1, 3, 5), rows("A < 2.5e1 or not (C = true) and A != 350 and A != 450 and A != 350.5 and A < 400", 10));
+        assertEquals(List.of(3), rows("B > 0", 10));
+        assertEquals(List.of(3, 4), rows("B >= -1", 10));
+        assertEquals(List.of(1, 2, 5), rows("\"My Col\" is not null", 10));
+        assertEquals(List.of(0, 3, 4, 6, 7, 8, 9), rows("'My Col' is null", 10));
+        assertEquals(List.of(2), rows("\"My Col\" > 'it''s'", 10));
+        assertEquals(List.of(5), rows("\"My Col\" = 'it''s'", 10));
+        assertEquals(List.of(1, 2), rows("\"My Col\" != \"it's\"", 10));
+        assertEquals(List.of(), rows("\"My Col\" = 'plum'", 10));
+        assertEquals(10, rows("", 10).size());
+    }
+
+    @Test
+    void scan_SkipsPagesOutsideZoneMaps() throws Exception {
+        Column a = columns.get("A");
+        int rowCount = 40 * SheetQuery.PAGE_SIZE;
+        for (int row = 0; row < rowCount; row++) {
+            a.setCell(row, row);
+        }
+        // Page 39 now spans -1 to its old maximum, so its zone map cannot rule it out
+        a.setCell(39 * SheetQuery.PAGE_SIZE + 5, -1);
+
+        try (SheetQuery query = query("A >= 100000 and A < 110000", rowCount)) {
+            List<Integer> rows = new ArrayList<>();
+            query.scan((pageIndex, matches) -> {
+                rows.add(pageIndex);
+                return true;
+            });
+            assertEquals(List.of(24, 25, 26), rows);
+            assertEquals(4, query.getPagesScanned());
+            assertEquals(36, query.getPagesSkipped());
+        }
+
+        List<Integer> matches = rows("A < 0", rowCount);
+        assertEquals(List.of(39 * SheetQuery.PAGE_SIZE + 5), matches);
+        assertEquals(List.of(rowCount - 1), rows("A = " + (rowCount - 1) + " or A is null", rowCount));
+        assertEquals(2, rows("A is null", rowCount + 2).size());
+    }
+
+    @Test
+    void scan_ReadsTheVersionPinnedWhenPrepared() throws Exception {
+        Column a = columns.get("A");
+        Column s = columns.get("My Col");
+        for (int row = 0; row < 10; row++) {
+            a.setCell(row, row * 50);
+        }
+        s.setCell(4, "pear");
+
+        try (SheetQuery query = query("A > 100 and \"My Col\" = 'pear' or A = 0", 10)) {
+            // Written after the query pinned the sheet: neither the filter nor the projection may see them
+            a.setCell(4, 50);
+            a.setCell(1, 0);
+            s.setCell(4, "plum");
+            s.setCell(6, "pear");
+
+            assertEquals(List.of(0, 4), rows(query));
+            assertEquals(200, query.getVersion().storage(a).get(4));
+        }
+        assertEquals(List.of(6), rows("\"My Col\" = 'pear'", 10));
+    }
+
+    @Test
+    void parse_RejectsInvalidQueries() {
+        assertThrows(IllegalArgumentException.class, () -> parse("A >"));
+        assertThrows(IllegalArgumentException.class, () -> parse("A > 1 and"));
+        assertThrows(IllegalArgumentException.class, () -> parse("(A > 1"));
+        assertThrows(IllegalArgumentException.class, () -> parse("A > 'x'"));
+        assertThrows(IllegalArgumentException.class, () -> parse("C > true"));
+        assertThrows(IllegalArgumentException.class, () -> parse("\"My Col\" = 1"));
+        assertThrows(IllegalArgumentException.class, () -> parse("A is 1"));
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+            () -> parse("D = 1"));
+        assertEquals("Column not found: D", missing.getMessage());
+    }
+}
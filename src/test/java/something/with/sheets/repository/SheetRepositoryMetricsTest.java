@@ -0,0 +1,49 @@
+package something.with.sheets.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SheetRepositoryMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SheetRepository repository = mock(SheetRepository.class);
+
+    // A sheet with the given number of allocated int pages
+    private static Sheet sheet(String id, int pages) {
+        Sheet sheet = new Sheet(id, List.of(new Column("A", "int")));
+        for (int page = 0; page < pages; page++) {
+            sheet.setCellValue(page * 4096, "A", page);
+        }
+        return sheet;
+    }
+
+    @Test
+    void sheetBytes_ReportsTheLargestSheetsBySheetId() {
+        Sheet small = sheet("small", 1);
+        Sheet medium = sheet("medium", 2);
+        Sheet large = sheet("large", 3);
+        when(repository.getHotSheets()).thenReturn(List.of(small, large, medium));
+        SheetRepositoryMetrics metrics = new SheetRepositoryMetrics(repository, 2);
+        metrics.bindTo(registry);
+
+        assertEquals(large.estimatedBytes(), registry.get("sheets.bytes").tag("sheet", "large").gauge().value());
+        assertEquals(medium.estimatedBytes(), registry.get("sheets.bytes").tag("sheet", "medium").gauge().value());
+        assertNull(registry.find("sheets.bytes").tag("sheet", "small").gauge());
+        assertEquals(large.estimatedBytes(), registry.get("sheets.largest.bytes").gauge().value());
+
+        large.setCellValue(3 * 4096, "A", 3);
+        assertEquals(large.estimatedBytes(), registry.get("sheets.bytes").tag("sheet", "large").gauge().value());
+
+        when(repository.getHotSheets()).thenReturn(List.of(small, medium));
+        metrics.refreshSheetBytes();
+        assertNull(registry.find("sheets.bytes").tag("sheet", "large").gauge());
+        assertEquals(small.estimatedBytes(), registry.get("sheets.bytes").tag("sheet", "small").gauge().value());
+    }
+}
@@ -0,0 +1,61 @@
+package something.with.sheets.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.persistence.SheetSpillStore;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredSheetCacheTest {
+    @TempDir
+    Path tempDir;
+
+    // One allocated int page, roughly 17 KB
+    private static Sheet sheet(String id, int value) {
+        Sheet sheet = new Sheet(id, List.of(new Column("A", "int")));
+        sheet.setCellValue(0, "A", value);
+        return sheet;
+    }
+
+    @Test
+    void put_SpillsLeastRecentlyUsedSheetsAndReloadsThem() {
+        TieredSheetCache cache = new TieredSheetCache(40_000, new SheetSpillStore(tempDir));
+        cache.put(sheet("a", 1));
+        cache.put(sheet("b", 2));
+        cache.get("a", id -> null);
+        cache.put(sheet("c", 3));
+
+        SheetCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(1, stats.getSpilledSheets());
+        assertEquals(2, stats.getHotSheets());
+        assertTrue(stats.getHotBytes() <= 40_000);
+        System.gc();
+
+        Sheet reloaded = cache.get("b", id -> fail("spilled sheet should not reach the loader"));
+        assertEquals(2, reloaded.getCellValue(0, "A"));
+        assertNull(cache.get("missing", id -> null));
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(2, cache.getStats().getMisses());
+    }
+
+    @Test
+    void get_ReturnsTheEvictedInstanceWhileItIsStillReferenced() {
+        TieredSheetCache cache = new TieredSheetCache(20_000, new SheetSpillStore(tempDir));
+        Sheet held = sheet("a", 1);
+        cache.put(held);
+        cache.put(sheet("b", 2));
+        assertEquals(1, cache.getStats().getEvictions());
+
+        // A write that lands after the spill must not be lost to the stale copy on disk
+        held.setCellValue(0, "A", 5);
+        assertSame(held, cache.get("a", id -> null));
+        assertEquals(5, cache.get("a", id -> null).getCellValue(0, "A"));
+        assertEquals(5, cache.peek("a").getCellValue(0, "A"));
+    }
+}
@@ -0,0 +1,59 @@
+package something.with.sheets.serialization;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvImportReaderTest {
+    private static CsvImportReader reader(String csv) {
+        return new CsvImportReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void next_ReadsQuotedFieldsAndBlankLines() throws Exception {
+        CsvImportReader reader = reader("A, B ,C\r\n1,\"x, \"\"y\"\"\nz\",\n\n2,,\"\"\n");
+
+        ImportRecord first = reader.next();
+        assertArrayEquals(new String[] {"A", "B", "C"}, first.getNames());
+        assertArrayEquals(new Object[] {"1", "x, \"y\"\nz", null}, first.getValues());
+        assertEquals(0, first.getNumber());
+        ImportRecord blank = reader.next();
+        assertArrayEquals(new Object[] {null, null, null}, blank.getValues());
+        assertEquals(1, blank.getNumber());
+        ImportRecord second = reader.next();
+        assertArrayEquals(new Object[] {"2", null, ""}, second.getValues());
+        assertEquals(2, second.getNumber());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void next_ReportsMalformedRecordsAndRejectsBadHeaders() throws Exception {
+        CsvImportReader reader = reader("A,B\n1\n2,3\n\"open,4");
+
+        assertEquals("Expected 2 fields but found 1", reader.next().getError());
+        assertArrayEquals(new Object[] {"2", "3"}, reader.next().getValues());
+        assertEquals("Unterminated quoted field", reader.next().getError());
+        assertNull(reader.next());
+        assertThrows(IllegalArgumentException.class, () -> reader("A,A\n1,2").next());
+    }
+
+    @Test
+    void next_FailsOnRecordsLongerThanTheLimit() throws Exception {
+        CsvImportReader reader = new CsvImportReader(new ByteArrayInputStream(
+            ("A,B\n1,2\n\"" + "x".repeat(100)).getBytes(StandardCharsets.UTF_8)), 20);
+
+        assertArrayEquals(new Object[] {"1", "2"}, reader.next().getValues());
+        Exception ex = assertThrows(IllegalArgumentException.class, reader::next);
+        assertEquals("Record 1 is longer than 20 characters", ex.getMessage());
+
+        NdjsonImportReader lines = new NdjsonImportReader(new ByteArrayInputStream(
+            ("{\"A\": 1}\r\n\n{\"A\": \"" + "x".repeat(100) + "\"}").getBytes(StandardCharsets.UTF_8)),
+            new com.fasterxml.jackson.core.JsonFactory(), 20);
+        assertArrayEquals(new Object[] {1}, lines.next().getValues());
+        ex = assertThrows(IllegalArgumentException.class, lines::next);
+        assertEquals("Record 1 is longer than 20 characters", ex.getMessage());
+    }
+}
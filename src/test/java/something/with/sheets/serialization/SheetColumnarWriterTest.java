@@ -0,0 +1,237 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.dto.GetSheetWindowResponse;
+import something.with.sheets.model.Column;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetColumnarWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SheetColumnarWriter writer = new SheetColumnarWriter(objectMapper);
+
+    @Test
+    void write_CopiesPagesIntoAlignedBatches() throws Exception {
+        Column ints = new Column("A", "int");
+        ints.setCell(0, 1);
+        ints.setCell(4095, -7);
+        ints.setCell(5000, 2);
+        Column doubles = new Column("B", "double");
+        doubles.setCell(4096, 1.5);
+        Column booleans = new Column("C", "boolean");
+        booleans.setCell(3, true);
+        booleans.setCell(4, false);
+        Column strings = new Column("D", "string");
+        strings.setCell(1, "x");
+        strings.setCell(4097, "y");
+        strings.setCell(4098, "x");
+        GetSheetResponse response = new GetSheetResponse("sheet-1", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "int", ints.values()),
+            new GetSheetResponse.ColumnData("B", "double", doubles.values()),
+            new GetSheetResponse.ColumnData("C", "boolean", booleans.values()),
+            new GetSheetResponse.ColumnData("D", "string", strings.values())));
+
+        Decoded decoded = decode(write(response));
+
+        assertEquals("sheet-1", decoded.schema.get("id").asText());
+        assertEquals(0, decoded.schema.get("fromRow").asInt());
+        assertEquals(5001, decoded.schema.get("rowCount").asInt());
+        assertEquals(Arrays.asList(4096, 905), decoded.batchRows);
+        List<Object> a = decoded.columns.get("A");
+        assertEquals(5001, a.size());
+        assertEquals(1, a.get(0));
+        assertNull(a.get(1));
+        assertEquals(-7, a.get(4095));
+        assertEquals(2, a.get(5000));
+        assertEquals(1.5, decoded.columns.get("B").get(4096));
+        assertNull(decoded.columns.get("B").get(0));
+        assertEquals(true, decoded.columns.get("C").get(3));
+        assertEquals(false, decoded.columns.get("C").get(4));
+        assertNull(decoded.columns.get("C").get(5));
+        List<Object> d = decoded.columns.get("D");
+        assertEquals("x", d.get(1));
+        assertEquals("y", d.get(4097));
+        assertEquals("x", d.get(4098));
+        assertNull(d.get(4099));
+    }
+
+    @Test
+    void write_WindowStartsMidPage() throws Exception {
+        Column ints = new Column("A", "int");
+        for (int row = 4080; row < 4110; row += 3) {
+            ints.setCell(row, row);
+        }
+        Column strings = new Column("B", "string");
+        strings.setCell(4094, "last");
+        strings.setCell(4100, "first");
+        GetSheetWindowResponse response = new GetSheetWindowResponse("sheet-2", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "int", ints.values(4090, 4105)),
+            new GetSheetResponse.ColumnData("B", "string", strings.values(4090, 4105))), 4090, 4105, 4108, null);
+
+        Decoded decoded = decode(write(response));
+
+        assertEquals(4090, decoded.schema.get("fromRow").asInt());
+        assertEquals(Arrays.asList(6, 9), decoded.batchRows);
+        List<Object> a = decoded.columns.get("A");
+        for (int i = 0; i < 15; i++) {
+            int row = 4090 + i;
+            assertEquals((row - 4080) % 3 == 0 ? row : null, a.get(i), "row " + row);
+        }
+        assertEquals("last", decoded.columns.get("B").get(4));
+        assertEquals("first", decoded.columns.get("B").get(10));
+        assertNull(decoded.columns.get("B").get(0));
+    }
+
+    @Test
+    void write_SendsOnlyTheDictionaryEntriesTheRowsUse() throws Exception {
+        Column strings = new Column("A", "string");
+        for (int row = 0; row < 10_000; row++) {
+            strings.setCell(row, "v" + row);
+        }
+        strings.setCell(9001, "v9000");
+        GetSheetWindowResponse response = new GetSheetWindowResponse("sheet-4", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "string", strings.values(9000, 9003))), 9000, 9003, 10_000, null);
+
+        Decoded decoded = decode(write(response));
+
+        assertEquals(Arrays.asList("v9000", "v9000", "v9002"), decoded.columns.get("A"));
+        assertEquals(Arrays.asList("v9000", "v9002"), decoded.dictionaries.get("A"));
+    }
+
+    @Test
+    void write_SupportsPlainValueLists() throws Exception {
+        GetSheetResponse response = new GetSheetResponse("sheet-3", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "boolean", Arrays.asList(true, null, false))));
+
+        Decoded decoded = decode(write(response));
+
+        assertEquals(Arrays.asList(true, null, false), decoded.columns.get("A"));
+    }
+
+    private byte[] write(GetSheetResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(response, out);
+        return out.toByteArray();
+    }
+
+    private static class Decoded {
+        JsonNode schema;
+        List<Integer> batchRows = new ArrayList<>();
+        Map<String, List<Object>> columns = new LinkedHashMap<>();
+        Map<String, List<String>> dictionaries = new LinkedHashMap<>();
+    }
+
+    // Reader for the documented layout; also checks that every buffer starts on an 8-byte boundary
+    private Decoded decode(byte[] bytes) throws Exception {
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[8];
+        in.get(magic);
+        assertEquals("SHEETCOL", new String(magic, StandardCharsets.US_ASCII));
+        byte[] json = new byte[in.getInt()];
+        in.get(json);
+        align(in);
+        Decoded decoded = new Decoded();
+        decoded.schema = objectMapper.readTree(json);
+        Map<String, List<String>> dictionaries = decoded.dictionaries;
+        for (JsonNode column : decoded.schema.get("columns")) {
+            decoded.columns.put(column.get("name").asText(), new ArrayList<>());
+            dictionaries.put(column.get("name").asText(), new ArrayList<>());
+        }
+        while (true) {
+            assertEquals(0, in.position() % 8);
+            int rows = in.getInt();
+            in.getInt();
+            if (rows == 0) {
+                break;
+            }
+            decoded.batchRows.add(rows);
+            for (JsonNode column : decoded.schema.get("columns")) {
+                String name = column.get("name").asText();
+                String type = column.get("type").asText();
+                byte[] validity = bitmap(in, rows);
+                int valuesAt = in.position();
+                in.position(valuesAt + valueBytes(type, rows));
+                align(in);
+                if (type.equals("string")) {
+                    readDictionaryDelta(in, dictionaries.get(name));
+                }
+                int end = in.position();
+                in.position(valuesAt);
+                byte[] bits = type.equals("boolean") ? bitmap(in, rows) : null;
+                for (int i = 0; i < rows; i++) {
+                    boolean present = (validity[i >>> 3] & (1 << (i & 7))) != 0;
+                    Object value;
+                    switch (type) {
+                        case "int":
+                            value = in.getInt(valuesAt + i * 4);
+                            break;
+                        case "double":
+                            value = in.getDouble(valuesAt + i * 8);
+                            break;
+                        case "boolean":
+                            value = (bits[i >>> 3] & (1 << (i & 7))) != 0;
+                            break;
+                        default:
+                            value = present ? dictionaries.get(name).get(in.getInt(valuesAt + i * 4)) : null;
+                    }
+                    decoded.columns.get(name).add(present ? value : null);
+                }
+                in.position(end);
+            }
+        }
+        assertEquals(bytes.length, in.position());
+        return decoded;
+    }
+
+    private static byte[] bitmap(ByteBuffer in, int rows) {
+        assertEquals(0, in.position() % 8);
+        byte[] bits = new byte[(rows + 7) / 8];
+        in.get(bits);
+        align(in);
+        return bits;
+    }
+
+    private static int valueBytes(String type, int rows) {
+        switch (type) {
+            case "double":
+                return rows * 8;
+            case "boolean":
+                return (rows + 7) / 8;
+            default:
+                return rows * 4;
+        }
+    }
+
+    private static void readDictionaryDelta(ByteBuffer in, List<String> dictionary) {
+        assertEquals(0, in.position() % 8);
+        int count = in.getInt();
+        in.getInt();
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            offsets[i] = in.getInt();
+        }
+        int data = in.position();
+        for (int i = 0; i < count; i++) {
+            dictionary.add(new String(in.array(), data + offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8));
+        }
+        in.position(data + offsets[count]);
+        align(in);
+    }
+
+    private static void align(ByteBuffer in) {
+        in.position((in.position() + 7) & ~7);
+    }
+}
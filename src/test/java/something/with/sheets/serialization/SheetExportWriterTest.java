@@ -0,0 +1,59 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.model.Column;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetExportWriterTest {
+    private final SheetExportWriter writer = new SheetExportWriter(new ObjectMapper());
+
+    private static GetSheetResponse sheet() {
+        Column colA = new Column("A", "int");
+        colA.setCell(0, 1);
+        colA.setCell(2, 3);
+        Column colB = new Column("B", "string");
+        colB.setCell(0, "plain");
+        colB.setCell(1, "a,\"b\"\nc");
+        colB.setCell(2, "");
+        Column colC = new Column("C", "double");
+        colC.setCell(1, 0.5);
+        return new GetSheetResponse("sheet-1", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "int", colA.values()),
+            new GetSheetResponse.ColumnData("B", "string", colB.values()),
+            new GetSheetResponse.ColumnData("C", "double", colC.values())));
+    }
+
+    @Test
+    void writeCsv_QuotesFieldsAndKeepsEmptyRows() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeCsv(sheet(), out);
+
+        assertEquals("A,B,C\n1,plain,\n,\"a,\"\"b\"\"\nc\",0.5\n3,\"\",\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeNdjson_WritesOneObjectPerRowAcrossPages() throws Exception {
+        Column colA = new Column("A", "boolean");
+        colA.setCell(0, true);
+        colA.setCell(5000, false);
+        GetSheetResponse response = new GetSheetResponse("sheet-2", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "boolean", colA.values())));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeNdjson(response, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+
+        assertEquals(5002, lines.length);
+        assertEquals("{\"A\":true}", lines[0]);
+        assertEquals("{}", lines[4096]);
+        assertEquals("{\"A\":false}", lines[5000]);
+        assertEquals("", lines[5001]);
+    }
+}
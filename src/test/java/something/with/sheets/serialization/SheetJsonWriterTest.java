@@ -0,0 +1,72 @@
+package something.with.sheets.serialization;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.GetSheetResponse;
+import something.with.sheets.model.Column;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetJsonWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SheetJsonWriter writer = new SheetJsonWriter(objectMapper);
+
+    @Test
+    void write_StreamsColumnStorageValues() throws Exception {
+        Column colA = new Column("A", "int");
+        colA.setCell(0, 1);
+        colA.setCell(5000, 2);
+        Column colB = new Column("B", "string");
+        colB.setCell(1, "x");
+        GetSheetResponse response = new GetSheetResponse("sheet-1", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "int", colA.values()),
+            new GetSheetResponse.ColumnData("B", "string", colB.values())));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(response, out);
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+
+        assertEquals("sheet-1", json.get("id").asText());
+        JsonNode valuesA = json.get("columns").get(0).get("values");
+        assertEquals(5001, valuesA.size());
+        assertEquals(1, valuesA.get(0).asInt());
+        assertTrue(valuesA.get(4999).isNull());
+        assertEquals(2, valuesA.get(5000).asInt());
+        JsonNode valuesB = json.get("columns").get(1).get("values");
+        assertTrue(valuesB.get(0).isNull());
+        assertEquals("x", valuesB.get(1).asText());
+    }
+
+    @Test
+    void write_SupportsPlainValueLists() throws Exception {
+        GetSheetResponse response = new GetSheetResponse("sheet-2", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "boolean", Arrays.asList(true, null))));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(response, out);
+
+        assertEquals("{\"id\":\"sheet-2\",\"columns\":[{\"name\":\"A\",\"type\":\"boolean\",\"values\":[true,null]}]}", out.toString());
+    }
+
+    @Test
+    void writeCbor_HasTheJsonStructure() throws Exception {
+        Column colA = new Column("A", "double");
+        colA.setCell(1, 2.5);
+        GetSheetResponse response = new GetSheetResponse("sheet-3", Arrays.asList(
+            new GetSheetResponse.ColumnData("A", "double", colA.values())));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeCbor(response, out);
+        JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(out.toByteArray());
+
+        assertEquals("sheet-3", cbor.get("id").asText());
+        JsonNode values = cbor.get("columns").get(0).get("values");
+        assertTrue(values.get(0).isNull());
+        assertEquals(2.5, values.get(1).asDouble());
+    }
+}
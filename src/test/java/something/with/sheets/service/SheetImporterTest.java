@@ -0,0 +1,93 @@
+package something.with.sheets.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.ImportSheetResponse;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.persistence.SheetMutation;
+import something.with.sheets.repository.SheetRepository;
+import something.with.sheets.serialization.CsvImportReader;
+import something.with.sheets.serialization.NdjsonImportReader;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SheetImporterTest {
+    private final SheetRepository sheetRepository = mock(SheetRepository.class);
+    private final Sheet sheet = new Sheet("sheet-1", Arrays.asList(
+        new Column("A", "int"), new Column("B", "double"), new Column("C", "boolean"), new Column("D", "string")));
+
+    private SheetImporter importer(int batchRows) {
+        when(sheetRepository.findById("sheet-1")).thenReturn(sheet);
+        return new SheetImporter(new SheetService(sheetRepository), SheetMetrics.noop(), batchRows, 2);
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importRows_ParsesFieldsIntoColumnTypesAndSkipsBadRows() throws Exception {
+        String csv = "A,B,C,D\n"
+            + "1,2.5,true,x\n"
+            + "2.0,3,FALSE,\"y,z\"\n"
+            + "1.5,1,true,bad int\n"
+            + "4,,maybe,bad boolean\n"
+            + "5,,,\"lookup(D,10)\"\n"
+            + "6,x,true,bad double\n";
+
+        ImportSheetResponse response = importer(4).importRows("sheet-1", new CsvImportReader(body(csv)), 10);
+
+        assertEquals(3, response.getImportedRows());
+        assertEquals(3, response.getFailedRows());
+        assertEquals(2, response.getBatches());
+        assertEquals(2, response.getErrors().size());
+        assertEquals(2, response.getErrors().get(0).getRecord());
+        assertEquals(12, response.getErrors().get(0).getRowIndex());
+        assertTrue(response.getErrors().get(0).getMessage().startsWith("A: Value does not match column type: int"));
+        assertTrue(response.getErrors().get(1).getMessage().startsWith("C:"));
+        Column a = sheet.getColumns().get("A");
+        assertEquals(1, a.getCell(10));
+        assertEquals(2, a.getCell(11));
+        assertNull(a.getCell(12));
+        assertEquals(2.5, sheet.getColumns().get("B").getCell(10));
+        assertEquals(3.0, sheet.getColumns().get("B").getCell(11));
+        assertEquals(false, sheet.getColumns().get("C").getCell(11));
+        assertEquals("y,z", sheet.getColumns().get("D").getCell(11));
+        assertEquals(5, a.getCell(14));
+        assertEquals("x", sheet.getColumns().get("D").getCell(14));
+        assertEquals(2, sheet.getVersion());
+        verify(sheetRepository, times(2)).appendMutation(any(SheetMutation.class));
+    }
+
+    @Test
+    void importRows_ConvertsLargeNdjsonBatchesInParallel() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            ndjson.append("{\"A\":").append(i).append(",\"B\":").append(i / 2.0)
+                .append(",\"C\":").append(i % 2 == 0).append(",\"D\":\"s").append(i % 7).append("\"}\n");
+        }
+        ndjson.append("{\"A\":1,\"E\":2}\n").append("{\"A\":\n").append("{\"D\":\"lookup(E,0)\"}\n");
+
+        ImportSheetResponse response = importer(10000).importRows("sheet-1",
+            new NdjsonImportReader(body(ndjson.toString()), new JsonFactory()), 0);
+
+        assertEquals(5000, response.getImportedRows());
+        assertEquals(3, response.getFailedRows());
+        assertEquals("Column not found: E", response.getErrors().get(0).getMessage());
+        assertTrue(response.getErrors().get(1).getMessage().startsWith("Malformed JSON"));
+        assertEquals(4999, sheet.getColumns().get("A").getCell(4999));
+        assertEquals(2499.5, sheet.getColumns().get("B").getCell(4999));
+        assertEquals("s1", sheet.getColumns().get("D").getCell(4999));
+        assertEquals(1, sheet.getVersion());
+    }
+}
@@ -0,0 +1,128 @@
+package something.with.sheets.service;
+
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.FindRowsResponse;
+import something.with.sheets.dto.IndexStatus;
+import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.repository.SheetRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SheetIndexServiceTest {
+    private final SheetRepository sheetRepository = mock(SheetRepository.class);
+    private final Sheet sheet = new Sheet("sheet-1", Arrays.asList(
+        new Column("A", "int"), new Column("B", "string"), new Column("C", "boolean")));
+    private final SheetService sheetService = new SheetService(sheetRepository);
+    private final SheetIndexService indexService;
+
+    SheetIndexServiceTest() {
+        when(sheetRepository.findById("sheet-1")).thenReturn(sheet);
+        indexService = new SheetIndexService(sheetService, SheetMetrics.noop());
+    }
+
+    private void set(String column, int row, Object value) {
+        SetCellValueRequest request = new SetCellValueRequest();
+        request.setColumnName(column);
+        request.setRowIndex(row);
+        request.setValue(value);
+        sheetService.setCellValue("sheet-1", request);
+    }
+
+    private void awaitReady(String column) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            List<IndexStatus> statuses = indexService.getIndexes("sheet-1", column);
+            if (statuses.stream().allMatch(status -> status.getState().equals("ready"))) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("index on " + column + " did not become ready");
+    }
+
+    @Test
+    void find_BuildsInBackgroundWhileWritesContinue() throws Exception {
+        Column a = sheet.getColumns().get("A");
+        int rows = 30 * 4096;
+        for (int row = 0; row < rows; row++) {
+            a.setCell(row, row % 1000);
+        }
+
+        IndexStatus status = indexService.createIndex("sheet-1", "A", "sorted");
+        assertEquals("sorted", status.getType());
+        indexService.createIndex("sheet-1", "A", "hash");
+        // Writes during the build land either in covered pages (maintained) or uncovered ones (built later)
+        for (int row = 0; row < rows; row += 4096) {
+            set("A", row, 5000);
+        }
+        set("A", rows + 10, 5000);
+        awaitReady("A");
+
+        FindRowsResponse equal = indexService.find("sheet-1", "A", "5000", null, null);
+        assertEquals("hash", equal.getIndex());
+        assertEquals(31, equal.getRows().length);
+        assertEquals(rows + 10, equal.getRows()[30]);
+        int zeros = 0;
+        for (int row = 0; row < rows; row++) {
+            if (row % 4096 != 0 && row % 1000 == 0) {
+                zeros++;
+            }
+        }
+        assertEquals(zeros, indexService.find("sheet-1", "A", "0", null, null).getRows().length);
+
+        FindRowsResponse range = indexService.find("sheet-1", "A", null, "998", "5000");
+        assertEquals("sorted", range.getIndex());
+        int expected = 31;
+        for (int row = 0; row < rows; row++) {
+            if (row % 4096 != 0 && row % 1000 >= 998) {
+                expected++;
+            }
+        }
+        assertEquals(expected, range.getRows().length);
+        assertArrayEquals(range.getRows(), scanned("A", "998", "5000"));
+    }
+
+    // The same find on a sheet without indexes
+    private int[] scanned(String column, String from, String to) {
+        Sheet copy = new Sheet("sheet-2", List.of(new Column(column, "int")));
+        Column source = sheet.getColumns().get(column);
+        for (int row = 0; row < source.size(); row++) {
+            if (source.getCell(row) != null) {
+                copy.getColumns().get(column).setCell(row, source.getCell(row));
+            }
+        }
+        when(sheetRepository.findById("sheet-2")).thenReturn(copy);
+        FindRowsResponse response = indexService.find("sheet-2", column, null, from, to);
+        assertNull(response.getIndex());
+        return response.getRows();
+    }
+
+    @Test
+    void find_FollowsLookupResultsAndFallsBackToScans() throws Exception {
+        set("B", 0, "x");
+        set("B", 1, "y");
+        indexService.createIndex("sheet-1", "B", "hash");
+        awaitReady("B");
+        set("B", 2, "lookup(B,0)");
+        set("B", 3, "x");
+
+        assertArrayEquals(new int[] {0, 2, 3}, indexService.find("sheet-1", "B", "x", null, null).getRows());
+        set("B", 0, "z");
+        assertArrayEquals(new int[] {3}, indexService.find("sheet-1", "B", "x", null, null).getRows());
+        assertArrayEquals(new int[] {0, 2}, indexService.find("sheet-1", "B", "z", null, null).getRows());
+
+        set("C", 4, true);
+        FindRowsResponse scanned = indexService.find("sheet-1", "C", "true", null, null);
+        assertNull(scanned.getIndex());
+        assertArrayEquals(new int[] {4}, scanned.getRows());
+        assertThrows(IllegalArgumentException.class, () -> indexService.find("sheet-1", "C", null, "false", null));
+        assertThrows(IllegalArgumentException.class, () -> indexService.find("sheet-1", "A", "x", null, null));
+        assertThrows(IllegalArgumentException.class, () -> indexService.createIndex("sheet-1", "A", "btree"));
+    }
+}
@@ -0,0 +1,68 @@
+package something.with.sheets.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.model.Column;
+import something.with.sheets.model.Sheet;
+import something.with.sheets.repository.SheetRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SheetMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SheetRepository sheetRepository = mock(SheetRepository.class);
+    private final SheetService sheetService = new SheetService(sheetRepository, new SheetMetrics(registry), null);
+
+    private static SetCellValueRequest cell(String column, int row, Object value) {
+        SetCellValueRequest request = new SetCellValueRequest();
+        request.setColumnName(column);
+        request.setRowIndex(row);
+        request.setValue(value);
+        return request;
+    }
+
+    private double failures(String reason) {
+        return registry.get("sheets.failures").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void operations_AreTimedAndFailuresCountedByReason() {
+        Sheet sheet = new Sheet("s", List.of(new Column("A", "int"), new Column("B", "int")));
+        when(sheetRepository.findById("s")).thenReturn(sheet);
+
+        sheetService.setCellValue("s", cell("A", 0, 1));
+        sheetService.setCellValues("s", List.of(cell("B", 0, "lookup(A,0)")));
+        sheetService.getSheetById("s");
+        assertThrows(IllegalArgumentException.class, () -> sheetService.getSheetById("missing"));
+        assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("s", cell("C", 0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("s", cell("A", 0, "lookup(B,0)")));
+        assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("s", cell("A", -1, 1)));
+
+        assertEquals(4, registry.get("sheets.operations").tag("operation", "set_cell").timer().count());
+        assertEquals(1, registry.get("sheets.operations").tag("operation", "set_cells").timer().count());
+        assertEquals(2, registry.get("sheets.operations").tag("operation", "get").timer().count());
+        assertEquals(2, failures("not_found"));
+        assertEquals(1, failures("cycle"));
+        assertEquals(1, failures("validation"));
+    }
+
+    @Test
+    void writes_RecordTheDepthOfTheRecomputedChain() {
+        Sheet sheet = new Sheet("s", List.of(new Column("A", "int")));
+        when(sheetRepository.findById("s")).thenReturn(sheet);
+        sheetService.setCellValue("s", cell("A", 0, 1));
+        for (int row = 1; row <= 3; row++) {
+            sheetService.setCellValue("s", cell("A", row, "lookup(A," + (row - 1) + ")"));
+        }
+
+        sheetService.setCellValue("s", cell("A", 0, 2));
+        assertEquals(2, sheet.getCellValue(3, "A"));
+        assertEquals(5, registry.get("sheets.lookup.chain.depth").summary().count());
+        assertEquals(3, registry.get("sheets.lookup.chain.depth").summary().max());
+    }
+}
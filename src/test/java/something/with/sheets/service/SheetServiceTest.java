@@ -9,13 +9,20 @@ import org.mockito.MockitoAnnotations;
 import something.with.sheets.dto.ColumnDto;
 import something.with.sheets.dto.CreateSheetRequest;
 import something.with.sheets.dto.SetCellValueRequest;
+import something.with.sheets.dto.SheetWindowRequest;
+import something.with.sheets.dto.GetSheetWindowResponse;
 import something.with.sheets.model.Column;
 import something.with.sheets.model.Sheet;
+import something.with.sheets.persistence.SheetMutation;
 import something.with.sheets.repository.SheetRepository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -225,10 +232,460 @@ class SheetServiceTest {
         assertEquals(Arrays.asList(42, 99), colBData.getValues());
     }
 
+    @Test
+    void getSheetById_ReadsOnePinnedVersionWhileWritesContinue() throws Exception {
+        Sheet sheet = new Sheet("sheet-pinned", Arrays.asList(new Column("A", "int"), new Column("B", "int")));
+        when(sheetRepository.findById("sheet-pinned")).thenReturn(sheet);
+        int rows = 3 * 4096;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Each batch sets both columns of every row to the batch number, so a consistent read sees A == B
+            Future<?> writer = executor.submit(() -> {
+                for (int batch = 1; batch <= 20; batch++) {
+                    List<SetCellValueRequest> requests = new ArrayList<>();
+                    for (int row = 0; row < rows; row += 7) {
+                        for (String column : List.of("A", "B")) {
+                            SetCellValueRequest req = new SetCellValueRequest();
+                            req.setRowIndex(row);
+                            req.setColumnName(column);
+                            req.setValue(batch);
+                            requests.add(req);
+                        }
+                    }
+                    sheetService.setCellValues("sheet-pinned", requests);
+                }
+            });
+            while (!writer.isDone()) {
+                try (var response = sheetService.getSheetById("sheet-pinned")) {
+                    List<Object> a = response.getColumns().get(0).getValues();
+                    List<Object> b = response.getColumns().get(1).getValues();
+                    assertEquals(a.size(), b.size());
+                    for (int row = 0; row < a.size(); row++) {
+                        assertEquals(a.get(row), b.get(row));
+                        assertEquals(a.get(0), a.get(row - row % 7));
+                    }
+                    if (!a.isEmpty()) {
+                        assertEquals((long) (Integer) a.get(0), response.getVersion());
+                    }
+                }
+            }
+            writer.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        var response = sheetService.getSheetById("sheet-pinned");
+        SetCellValueRequest req = new SetCellValueRequest();
+        req.setRowIndex(0);
+        req.setColumnName("A");
+        req.setValue(99);
+        sheetService.setCellValue("sheet-pinned", req);
+        assertEquals(20, response.getColumns().get(0).getValues().get(0));
+        assertEquals(20L, response.getVersion());
+        response.close();
+        assertEquals(99, sheet.getCellValue(0, "A"));
+    }
+
     @Test
     void getSheetById_ThrowsIfSheetNotFound() {
         when(sheetRepository.findById("missing-id")).thenReturn(null);
         Exception ex = assertThrows(IllegalArgumentException.class, () -> sheetService.getSheetById("missing-id"));
         assertTrue(ex.getMessage().contains("Sheet not found"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void setCellValue_ThrowsOnNegativeRowIndex() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-1", Arrays.asList(colA));
+        when(sheetRepository.findById("sheet-1")).thenReturn(sheet);
+        SetCellValueRequest req = new SetCellValueRequest();
+        req.setRowIndex(-1);
+        req.setColumnName("A");
+        req.setValue(1);
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("sheet-1", req));
+        assertTrue(ex.getMessage().contains("Row index must be non-negative"));
+    }
+
+    @Test
+    void setCellValue_ConcurrentWritersAndLookupsKeepColumnsConsistent() throws Exception {
+        int threads = 8;
+        int rows = 2_000;
+        List<Column> columns = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            columns.add(new Column("C" + t, "int"));
+        }
+        columns.add(new Column("L", "int"));
+        Sheet sheet = new Sheet("sheet-concurrent", columns);
+        when(sheetRepository.findById("sheet-concurrent")).thenReturn(sheet);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String name = "C" + t;
+                futures.add(executor.submit(() -> {
+                    for (int row = 0; row < rows; row++) {
+                        SetCellValueRequest req = new SetCellValueRequest();
+                        req.setRowIndex(row);
+                        req.setColumnName(name);
+                        req.setValue(row);
+                        sheetService.setCellValue("sheet-concurrent", req);
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int row = 0; row < rows; row++) {
+                    SetCellValueRequest req = new SetCellValueRequest();
+                    req.setRowIndex(row);
+                    req.setColumnName("L");
+                    req.setValue("lookup(C" + (row % threads) + "," + row + ")");
+                    sheetService.setCellValue("sheet-concurrent", req);
+                    try (var response = sheetService.getSheetById("sheet-concurrent")) {
+                        response.getColumns().forEach(c -> c.getValues().forEach(v -> { }));
+                    }
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int t = 0; t < threads; t++) {
+            Column column = sheet.getColumns().get("C" + t);
+            assertEquals(rows, column.size());
+            for (int row = 0; row < rows; row++) {
+                assertEquals(row, column.getCell(row));
+            }
+        }
+        Column lookups = sheet.getColumns().get("L");
+        for (int row = 0; row < rows; row++) {
+            assertEquals(row, lookups.getCell(row));
+        }
+    }
+
+    private static SetCellValueRequest cellRequest(int rowIndex, String columnName, Object value) {
+        SetCellValueRequest req = new SetCellValueRequest();
+        req.setRowIndex(rowIndex);
+        req.setColumnName(columnName);
+        req.setValue(value);
+        return req;
+    }
+
+    private static SetCellValueRequest formulaRequest(int rowIndex, String columnName, String formula) {
+        SetCellValueRequest req = new SetCellValueRequest();
+        req.setRowIndex(rowIndex);
+        req.setColumnName(columnName);
+        req.setFormula(formula);
+        return req;
+    }
+
+    @Test
+    void setCellValues_AppliesAllEntries() {
+        Column colA = new Column("A", "int");
+        Column colB = new Column("B", "int");
+        Sheet sheet = new Sheet("sheet-batch", Arrays.asList(colA, colB));
+        when(sheetRepository.findById("sheet-batch")).thenReturn(sheet);
+
+        sheetService.setCellValues("sheet-batch", Arrays.asList(
+            cellRequest(0, "B", "lookup(A,1)"),
+            cellRequest(0, "A", 1),
+            cellRequest(1, "A", 2),
+            cellRequest(1, "B", "lookup(B,0)")));
+        assertEquals(1, colA.getCell(0));
+        assertEquals(2, colA.getCell(1));
+        assertEquals(2, colB.getCell(0));
+        assertEquals(2, colB.getCell(1));
+        verify(sheetRepository).save(sheet);
+    }
+
+    @Test
+    void setCellValues_SkipsListingBatchesLargerThanTheChangeLog() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-batch", List.of(colA));
+        when(sheetRepository.findById("sheet-batch")).thenReturn(sheet);
+        int maxCells = sheet.getChangeLog().getMaxCells();
+
+        sheetService.setCellValues("sheet-batch", List.of(cellRequest(0, "A", 1)));
+        List<SetCellValueRequest> large = new ArrayList<>();
+        for (int row = 0; row <= maxCells; row++) {
+            large.add(cellRequest(row, "A", row));
+        }
+        sheetService.setCellValues("sheet-batch", large);
+        sheetService.setCellValues("sheet-batch", List.of(cellRequest(0, "A", 7)));
+
+        assertEquals(maxCells, colA.getCell(maxCells));
+        assertNull(sheet.getChangeLog().since(1));
+        assertEquals(1, sheet.getChangeLog().since(2).getCells().size());
+        assertEquals(3, sheet.getChangeLog().since(2).getVersion());
+    }
+
+    @Test
+    void setCellValues_RejectsWholeBatchOnInvalidEntry() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-batch", Arrays.asList(colA));
+        when(sheetRepository.findById("sheet-batch")).thenReturn(sheet);
+
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValues("sheet-batch", Arrays.asList(
+            cellRequest(0, "A", 1),
+            cellRequest(1, "A", true))));
+        assertTrue(ex.getMessage().contains("index 1"));
+        assertTrue(ex.getMessage().contains("Value does not match column type"));
+        assertEquals(0, colA.size());
+    }
+
+    @Test
+    void setCellValues_DetectsCycleFormedWithinBatch() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-batch", Arrays.asList(colA));
+        colA.setCell(2, 7);
+        when(sheetRepository.findById("sheet-batch")).thenReturn(sheet);
+
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValues("sheet-batch", Arrays.asList(
+            cellRequest(0, "A", "lookup(A,1)"),
+            cellRequest(1, "A", "lookup(A,2)"),
+            cellRequest(2, "A", "lookup(A,0)"))));
+        assertTrue(ex.getMessage().contains("Cycle detected"));
+        assertEquals(7, colA.getCell(2));
+        assertFalse(colA.getOrCreateCell(0).isLookup());
+    }
+
+    @Test
+    void setCellValues_AllowsReversingAnExistingLookupInOneBatch() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-batch", Arrays.asList(colA));
+        colA.setCell(0, 1);
+        when(sheetRepository.findById("sheet-batch")).thenReturn(sheet);
+        sheetService.setCellValue("sheet-batch", cellRequest(1, "A", "lookup(A,0)"));
+
+        sheetService.setCellValues("sheet-batch", Arrays.asList(
+            cellRequest(0, "A", "lookup(A,1)"),
+            cellRequest(1, "A", 5)));
+        assertEquals(5, colA.getCell(0));
+        assertEquals(5, colA.getCell(1));
+        assertTrue(colA.getOrCreateCell(0).isLookup());
+        assertFalse(colA.getOrCreateCell(1).isLookup());
+    }
+
+    @Test
+    void getSheetWindow_ReturnsRequestedRowsAndColumns() {
+        Column colA = new Column("A", "int");
+        Column colB = new Column("B", "int");
+        Column colC = new Column("C", "string");
+        for (int row = 0; row < 10; row++) {
+            colA.setCell(row, row);
+            colC.setCell(row, "r" + row);
+        }
+        Sheet sheet = new Sheet("sheet-window", Arrays.asList(colA, colB, colC));
+        when(sheetRepository.findById("sheet-window")).thenReturn(sheet);
+
+        SheetWindowRequest window = new SheetWindowRequest();
+        window.setFromRow(3);
+        window.setToRow(6);
+        window.setColumns(Arrays.asList("C", "A"));
+        GetSheetWindowResponse response = sheetService.getSheetWindow("sheet-window", window);
+        assertEquals(2, response.getColumns().size());
+        assertEquals("C", response.getColumns().get(0).getName());
+        assertEquals(Arrays.asList("r3", "r4", "r5"), response.getColumns().get(0).getValues());
+        assertEquals(Arrays.asList(3, 4, 5), response.getColumns().get(1).getValues());
+        assertEquals(10, response.getRowCount());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    void getSheetWindow_PaginatesWithCursor() {
+        Column colA = new Column("A", "int");
+        for (int row = 0; row < 5; row++) {
+            colA.setCell(row, row);
+        }
+        Sheet sheet = new Sheet("sheet-window", Arrays.asList(colA));
+        when(sheetRepository.findById("sheet-window")).thenReturn(sheet);
+
+        SheetWindowRequest window = new SheetWindowRequest();
+        window.setLimit(2);
+        List<Object> seen = new java.util.ArrayList<>();
+        int pages = 0;
+        do {
+            GetSheetWindowResponse page = sheetService.getSheetWindow("sheet-window", window);
+            seen.addAll(page.getColumns().get(0).getValues());
+            window.setCursor(page.getNextCursor());
+            pages++;
+        } while (window.getCursor() != null);
+        assertEquals(3, pages);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), seen);
+    }
+
+    @Test
+    void getSheetWindow_ThrowsOnUnknownColumnOrBadCursor() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-window", Arrays.asList(colA));
+        when(sheetRepository.findById("sheet-window")).thenReturn(sheet);
+
+        SheetWindowRequest window = new SheetWindowRequest();
+        window.setColumns(Arrays.asList("Z"));
+        Exception ex1 = assertThrows(IllegalArgumentException.class, () -> sheetService.getSheetWindow("sheet-window", window));
+        assertTrue(ex1.getMessage().contains("Column not found"));
+
+        SheetWindowRequest badCursor = new SheetWindowRequest();
+        badCursor.setCursor("not-a-cursor");
+        Exception ex2 = assertThrows(IllegalArgumentException.class, () -> sheetService.getSheetWindow("sheet-window", badCursor));
+        assertTrue(ex2.getMessage().contains("Invalid cursor"));
+    }
+
+    @Test
+    void setCellValue_EvaluatesFormulasAndRecomputesDependents() {
+        Column colA = new Column("A", "int");
+        Column colB = new Column("B", "double");
+        Sheet sheet = new Sheet("sheet-formula", Arrays.asList(colA, colB));
+        when(sheetRepository.findById("sheet-formula")).thenReturn(sheet);
+        sheetService.setCellValues("sheet-formula", Arrays.asList(
+            cellRequest(0, "A", 1),
+            cellRequest(1, "A", 2),
+            cellRequest(2, "A", 3),
+            formulaRequest(0, "B", "sum(A,0,2) / 2"),
+            formulaRequest(1, "B", "lookup(B,0) + lookup(A,0)"),
+            formulaRequest(3, "A", "max(A,0,2) * 2")));
+        assertEquals(3.0, colB.getCell(0));
+        assertEquals(4.0, colB.getCell(1));
+        assertEquals(6, colA.getCell(3));
+
+        sheetService.setCellValue("sheet-formula", cellRequest(1, "A", 5));
+        assertEquals(4.5, colB.getCell(0));
+        assertEquals(5.5, colB.getCell(1));
+        assertEquals(10, colA.getCell(3));
+    }
+
+    @Test
+    void setCellValue_StoresValuesStartingWithEqualsAsStrings() {
+        Column colS = new Column("S", "string");
+        Sheet sheet = new Sheet("sheet-formula", Arrays.asList(colS));
+        when(sheetRepository.findById("sheet-formula")).thenReturn(sheet);
+        sheetService.setCellValues("sheet-formula", Arrays.asList(
+            cellRequest(0, "S", "=abc"),
+            cellRequest(1, "S", "=== header ===")));
+        assertEquals("=abc", colS.getCell(0));
+        assertEquals("=== header ===", colS.getCell(1));
+        assertNull(colS.getFormula(0));
+
+        SetCellValueRequest both = formulaRequest(2, "S", "lookup(S,0)");
+        both.setValue("x");
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("sheet-formula", both));
+        assertTrue(ex.getMessage().contains("either value or formula"));
+    }
+
+    @Test
+    void setCellValue_FormulaResultNotRepresentableInIntColumnIsNull() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-formula", Arrays.asList(colA));
+        colA.setCell(0, 3);
+        when(sheetRepository.findById("sheet-formula")).thenReturn(sheet);
+        sheetService.setCellValue("sheet-formula", formulaRequest(1, "A", "lookup(A,0) / 2"));
+        assertNull(colA.getCell(1));
+        sheetService.setCellValue("sheet-formula", cellRequest(0, "A", 4));
+        assertEquals(2, colA.getCell(1));
+    }
+
+    @Test
+    void setCellValue_ThrowsOnFormulaTypeMismatchAndRangeCycle() {
+        Column colA = new Column("A", "int");
+        Column colS = new Column("S", "string");
+        Sheet sheet = new Sheet("sheet-formula", Arrays.asList(colA, colS));
+        when(sheetRepository.findById("sheet-formula")).thenReturn(sheet);
+
+        Exception ex1 = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("sheet-formula", formulaRequest(0, "S", "lookup(A,0) + 1")));
+        assertTrue(ex1.getMessage().contains("Type mismatch"));
+        Exception ex2 = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("sheet-formula", formulaRequest(0, "A", "sum(S,0,3)")));
+        assertTrue(ex2.getMessage().contains("Type mismatch"));
+
+        sheetService.setCellValue("sheet-formula", formulaRequest(10, "A", "sum(A,0,5)"));
+        Exception ex3 = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("sheet-formula", formulaRequest(3, "A", "lookup(A,10)")));
+        assertTrue(ex3.getMessage().contains("Cycle detected"));
+        Exception ex4 = assertThrows(IllegalArgumentException.class, () -> sheetService.setCellValue("sheet-formula", formulaRequest(2, "A", "sum(A,0,4)")));
+        assertTrue(ex4.getMessage().contains("Cycle detected"));
+    }
+
+    @Test
+    void recover_ReplaysLoggedMutations() {
+        ColumnDto colA = new ColumnDto();
+        colA.setName("A");
+        colA.setType("int");
+        java.util.Map<String, Sheet> saved = new java.util.HashMap<>();
+        org.mockito.Mockito.doAnswer(inv -> {
+            Sheet sheet = inv.getArgument(0);
+            saved.put(sheet.getId(), sheet);
+            return null;
+        }).when(sheetRepository).save(any(Sheet.class));
+        when(sheetRepository.findById(org.mockito.Mockito.anyString())).thenAnswer(inv -> saved.get(inv.<String>getArgument(0)));
+        org.mockito.Mockito.doAnswer(inv -> {
+            java.util.function.Consumer<SheetMutation> consumer = inv.getArgument(0);
+            consumer.accept(SheetMutation.createSheet("sheet-log", List.of(colA)));
+            consumer.accept(SheetMutation.setCells("sheet-log", List.of(cellRequest(0, "A", 5))));
+            consumer.accept(SheetMutation.setCells("sheet-log", List.of(formulaRequest(1, "A", "lookup(A,0) * 2"))));
+            return null;
+        }).when(sheetRepository).replayMutations(any());
+
+        sheetService.recover();
+
+        Column recovered = saved.get("sheet-log").getColumns().get("A");
+        assertEquals(5, recovered.getCell(0));
+        assertEquals(10, recovered.getCell(1));
+        verify(sheetRepository, org.mockito.Mockito.never()).appendMutation(any());
+    }
+
+    @Test
+    void recover_AppliesMutationsLoggedOutOfVersionOrder() {
+        Sheet sheet = new Sheet("sheet-snap", Arrays.asList(new Column("A", "int"), new Column("B", "int")));
+        sheet.getColumns().get("A").setCell(0, 1);
+        sheet.setVersion(3);
+        when(sheetRepository.findById("sheet-snap")).thenReturn(sheet);
+        org.mockito.Mockito.doAnswer(inv -> {
+            java.util.function.Consumer<SheetMutation> consumer = inv.getArgument(0);
+            consumer.accept(versioned(2, cellRequest(0, "A", 99)));
+            consumer.accept(versioned(4, cellRequest(1, "A", 4)));
+            consumer.accept(versioned(6, cellRequest(0, "B", 6)));
+            consumer.accept(versioned(5, cellRequest(2, "A", 5)));
+            return null;
+        }).when(sheetRepository).replayMutations(any());
+
+        sheetService.recover();
+
+        assertEquals(1, sheet.getCellValue(0, "A"));
+        assertEquals(4, sheet.getCellValue(1, "A"));
+        assertEquals(5, sheet.getCellValue(2, "A"));
+        assertEquals(6, sheet.getCellValue(0, "B"));
+        assertEquals(6, sheet.getVersion());
+    }
+
+    private static SheetMutation versioned(long version, SetCellValueRequest request) {
+        SheetMutation mutation = SheetMutation.setCells("sheet-snap", List.of(request));
+        mutation.setVersion(version);
+        return mutation;
+    }
+
+    @Test
+    void setCellValue_RejectsRowIndexPastTheLastRow() {
+        Sheet sheet = new Sheet("sheet-1", Arrays.asList(new Column("A", "int")));
+        when(sheetRepository.findById("sheet-1")).thenReturn(sheet);
+        Exception ex = assertThrows(IllegalArgumentException.class,
+            () -> sheetService.setCellValue("sheet-1", cellRequest(Integer.MAX_VALUE, "A", 1)));
+        assertTrue(ex.getMessage().contains("at most"));
+        assertEquals(0, sheet.getColumns().get("A").size());
+        verify(sheetRepository, org.mockito.Mockito.never()).appendMutation(any());
+    }
+
+    @Test
+    void setCellValue_AppendsMutationAndWaitsForDurability() {
+        Column colA = new Column("A", "int");
+        Sheet sheet = new Sheet("sheet-1", Arrays.asList(colA));
+        when(sheetRepository.findById("sheet-1")).thenReturn(sheet);
+        when(sheetRepository.appendMutation(any())).thenReturn(7L);
+
+        sheetService.setCellValue("sheet-1", cellRequest(0, "A", 1));
+
+        ArgumentCaptor<SheetMutation> captor = ArgumentCaptor.forClass(SheetMutation.class);
+        verify(sheetRepository).appendMutation(captor.capture());
+        assertEquals(SheetMutation.Type.SET_CELLS, captor.getValue().getType());
+        verify(sheetRepository).awaitDurable(7L);
+    }
+}